@@ -0,0 +1,23 @@
+package com.hmall.cart.jfr;
+
+import com.hmall.common.jfr.BusinessEvent;
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import lombok.Setter;
+
+/**
+ * 查询购物车（CartServiceImpl.queryMyCarts）的JFR事件
+ */
+@Name("com.hmall.cart.CartQuery")
+@Label("查询购物车")
+@Category({BusinessEvent.CATEGORY, "Cart"})
+@Setter
+public class CartQueryEvent extends BusinessEvent {
+
+    @Label("命中Redis缓存")
+    private boolean cacheHit;
+
+    @Label("购物车条目数")
+    private int itemCount;
+}
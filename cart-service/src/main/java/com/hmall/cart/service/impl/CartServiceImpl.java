@@ -1,7 +1,5 @@
 package com.hmall.cart.service.impl;
 
-import cn.hutool.core.util.StrUtil;
-import cn.hutool.json.JSONUtil;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.hmall.api.client.ItemClient;
@@ -9,19 +7,23 @@ import com.hmall.api.dto.ItemDTO;
 import com.hmall.cart.domain.dto.CartFormDTO;
 import com.hmall.cart.domain.po.Cart;
 import com.hmall.cart.domain.vo.CartVO;
+import com.hmall.cart.jfr.CartQueryEvent;
 import com.hmall.cart.mapper.CartMapper;
 import com.hmall.cart.service.ICartService;
-import com.hmall.common.exception.BizIllegalException;
+import com.hmall.common.exception.ErrorCodes;
+import com.hmall.common.redis.BinaryRedisSerializer;
 import com.hmall.common.utils.BeanUtils;
 import com.hmall.common.utils.CollUtils;
 import com.hmall.common.utils.UserContext;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
@@ -45,6 +47,9 @@ public class CartServiceImpl extends ServiceImpl<CartMapper, Cart> implements IC
 
     private final String cartKey = "cart:userId:";  //这是往redis中存放购物车数据时的key值前段
 
+    //购物车列表在redis中的编码，二进制格式，较大的列表会压缩
+    private static final BinaryRedisSerializer<List<CartVO>> CART_SERIALIZER = BinaryRedisSerializer.listOf(CartVO.class);
+
     //注入openFeign的客户端ItemClient
     private final ItemClient itemClient;
 
@@ -79,15 +84,33 @@ public class CartServiceImpl extends ServiceImpl<CartMapper, Cart> implements IC
 
     @Override
     public List<CartVO> queryMyCarts() {
+        CartQueryEvent event = new CartQueryEvent();
+        event.start();
+        try {
+            List<CartVO> vos = doQueryMyCarts(event);
+            event.setItemCount(vos.size());
+            return vos;
+        } catch (RuntimeException e) {
+            event.fail(e);
+            throw e;
+        } finally {
+            event.finish();
+        }
+    }
+
+    private List<CartVO> doQueryMyCarts(CartQueryEvent event) {
         Long userId = UserContext.getUser();  //user的id
-        String cartJson = stringRedisTemplate.opsForValue().get(cartKey + userId);
-        if (StrUtil.isNotBlank(cartJson)) {
+        byte[] redisKey = (cartKey + userId).getBytes(StandardCharsets.UTF_8);
+        // 直接读取字节，二进制格式和以前写入的JSON都能解析
+        byte[] cached = stringRedisTemplate.execute((RedisCallback<byte[]>) connection -> connection.get(redisKey));
+        if (cached != null && cached.length > 0) {
             try {
                 // Redis 中有，反序列化并返回
-                List<CartVO> cachedVos = JSONUtil.toList(cartJson, CartVO.class);
+                List<CartVO> cachedVos = CART_SERIALIZER.deserialize(cached);
+                event.setCacheHit(true);
                 return CollUtils.isEmpty(cachedVos) ? CollUtils.emptyList() : cachedVos;
             } catch (Exception e) {
-                // JSON 解析失败，可能是脏数据，继续查数据库
+                // 解析失败，可能是脏数据，继续查数据库
                 log.warn("Redis cart data parse failed for user: " + userId, e);
             }
         }
@@ -98,7 +121,7 @@ public class CartServiceImpl extends ServiceImpl<CartMapper, Cart> implements IC
                 .list();
         if (CollUtils.isEmpty(carts)) {
             // 数据库也没有，写空列表到 Redis（缓存穿透防护）
-            stringRedisTemplate.opsForValue().set(cartKey + userId, "[]", 300, TimeUnit.MINUTES);
+            cacheCarts(userId, redisKey, CollUtils.emptyList());
             return CollUtils.emptyList();
         }
 
@@ -109,16 +132,21 @@ public class CartServiceImpl extends ServiceImpl<CartMapper, Cart> implements IC
         handleCartItems(vos);
 
         //写回redis中
+        cacheCarts(userId, redisKey, vos);
+
+        // 4.返回
+        return vos;
+    }
+
+    private void cacheCarts(Long userId, byte[] redisKey, List<CartVO> vos) {
         try {
-            String json = JSONUtil.toJsonStr(vos);
-            stringRedisTemplate.opsForValue().set(cartKey + userId, json, 300, TimeUnit.MINUTES);
+            byte[] value = CART_SERIALIZER.serialize(vos);
+            stringRedisTemplate.execute((RedisCallback<Boolean>) connection ->
+                    connection.setEx(redisKey, TimeUnit.MINUTES.toSeconds(300), value));
         } catch (Exception e) {
             // 序列化失败也别影响主流程
             log.error("Failed to cache cart for user: " + userId, e);
         }
-
-        // 4.返回
-        return vos;
     }
 
     private void handleCartItems(List<CartVO> vos) {
@@ -193,7 +221,7 @@ public class CartServiceImpl extends ServiceImpl<CartMapper, Cart> implements IC
     private void checkCartsFull(Long userId) {
         Long count = lambdaQuery().eq(Cart::getUserId, userId).count();
         if (count >= 10) {
-            throw new BizIllegalException(StrUtil.format("用户购物车课程不能超过{}", 10));
+            throw ErrorCodes.CART_FULL.exception();
         }
     }
 
@@ -0,0 +1,71 @@
+package com.hmall.cart;
+
+import com.hmall.cart.domain.vo.CartVO;
+import com.hmall.common.redis.BinaryRedisSerializer;
+import com.hmall.common.utils.JsonUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 购物车列表在Redis中的编码：JSON（以前JsonUtils的写法）、Smile、Smile + deflate（BinaryRedisSerializer的默认行为）
+ * write是写缓存时的序列化，read是queryMyCarts命中缓存时的反序列化；n是购物车条数。
+ * 每种组合编码后的字节数在启动时打印一行 [size]，就是Redis中value的大小。
+ * 在IDE中运行main方法，或者用 test classpath 执行 java com.hmall.cart.CartCacheSerializerBenchmark。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CartCacheSerializerBenchmark {
+
+    @Param({"JSON", "SMILE", "SMILE_DEFLATE"})
+    private String codec;
+
+    @Param({"1", "20", "100"})
+    private int n;
+
+    private List<CartVO> carts;
+
+    private BinaryRedisSerializer<List<CartVO>> serializer;
+
+    private byte[] bytes;
+
+    @Setup
+    public void setup() {
+        carts = CartCacheSerializerTest.carts(n);
+        serializer = "SMILE".equals(codec) ? CartCacheSerializerTest.uncompressed() : BinaryRedisSerializer.listOf(CartVO.class);
+        bytes = write();
+        System.out.printf("[size] %s %d carts: %d bytes%n", codec, n, bytes.length);
+    }
+
+    @Benchmark
+    public byte[] write() {
+        return "JSON".equals(codec) ? JsonUtils.toBytes(carts) : serializer.serialize(carts);
+    }
+
+    @Benchmark
+    public List<CartVO> read() {
+        return "JSON".equals(codec) ? JsonUtils.parseList(bytes, CartVO.class) : serializer.deserialize(bytes);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(CartCacheSerializerBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,130 @@
+package com.hmall.cart;
+
+import cn.hutool.json.JSONUtil;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.hmall.cart.domain.vo.CartVO;
+import com.hmall.common.redis.BinaryRedisSerializer;
+import com.hmall.common.utils.JsonUtils;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 购物车列表在Redis中的编码：以前hutool写的JSON、Smile二进制、压缩后的Smile的大小对比和兼容性
+ * 具体的大小和读写耗时见CartCacheSerializerBenchmark
+ */
+class CartCacheSerializerTest {
+
+    private final BinaryRedisSerializer<List<CartVO>> serializer = BinaryRedisSerializer.listOf(CartVO.class);
+
+    static List<CartVO> carts(int n) {
+        List<CartVO> carts = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            CartVO cart = new CartVO();
+            cart.setId(1848345186352545792L + i);
+            cart.setItemId(100000006163L + i * 7L);
+            cart.setNum(1 + i % 3);
+            cart.setName("小米 Redmi Note13 Pro 5G 8GB+256GB 子夜黑 " + i);
+            cart.setSpec("颜色:子夜黑 版本:8GB+256GB");
+            cart.setPrice(139900 + i * 100);
+            cart.setNewPrice(139900 + i * 100);
+            cart.setStatus(1);
+            cart.setStock(100 + i);
+            cart.setImage("https://m.360buyimg.com/mobilecms/s720x720_jfs/t1/1000" + i + "/cart-item-" + i + ".jpg");
+            cart.setCreateTime(LocalDateTime.of(2024, 5, 1, 12, 30, 15).plusMinutes(i));
+            carts.add(cart);
+        }
+        return carts;
+    }
+
+    /**
+     * 同样的Smile格式，但从不压缩
+     */
+    static BinaryRedisSerializer<List<CartVO>> uncompressed() {
+        SmileFactory factory = SmileFactory.builder().enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES).build();
+        ObjectMapper smile = SmileMapper.builder(factory).addModule(new JavaTimeModule()).build();
+        JavaType type = smile.getTypeFactory().constructCollectionType(List.class, CartVO.class);
+        return new BinaryRedisSerializer<>(smile, JsonUtils.mapper(), type, Integer.MAX_VALUE);
+    }
+
+    @Test
+    void encodedSizeOfTypicalCart() {
+        List<CartVO> carts = carts(20);
+        int json = JSONUtil.toJsonStr(carts).getBytes(StandardCharsets.UTF_8).length;
+        int binary = uncompressed().serialize(carts).length;
+        byte[] deflated = serializer.serialize(carts);
+
+        assertThat(deflated[1]).as("压缩标志").isEqualTo((byte) 1);
+        assertThat(binary).isLessThan(json);
+        assertThat(deflated.length).isLessThan(binary);
+    }
+
+    @Test
+    void readsLegacyHutoolJsonWithEpochMillis() {
+        List<CartVO> carts = carts(3);
+        String json = JSONUtil.toJsonStr(carts);
+        // hutool把LocalDateTime写成毫秒时间戳
+        assertThat(JSONUtil.parseArray(json).getJSONObject(0).get("createTime")).isInstanceOf(Number.class);
+
+        assertThat(serializer.deserialize(json.getBytes(StandardCharsets.UTF_8))).isEqualTo(carts);
+    }
+
+    @Test
+    void smallListIsNotCompressed() {
+        List<CartVO> carts = carts(1);
+        byte[] bytes = serializer.serialize(carts);
+        assertThat(bytes[0]).isEqualTo((byte) 0x81);
+        assertThat(bytes[1]).isEqualTo((byte) 0);
+        assertThat(serializer.deserialize(bytes)).isEqualTo(carts);
+    }
+
+    @Test
+    void compressedRoundTrip() {
+        List<CartVO> carts = carts(50);
+        byte[] bytes = serializer.serialize(carts);
+        assertThat(bytes[1]).isEqualTo((byte) 1);
+        assertThat(serializer.deserialize(bytes)).isEqualTo(carts);
+    }
+
+    @Test
+    void emptyValues() {
+        assertThat(serializer.deserialize(null)).isNull();
+        assertThat(serializer.deserialize(new byte[0])).isNull();
+        assertThat(serializer.serialize(null)).isEmpty();
+        assertThat(serializer.deserialize(serializer.serialize(new ArrayList<>()))).isEmpty();
+    }
+
+    @Test
+    void rejectsTruncatedOrCorruptPayload() {
+        byte[] compressed = serializer.serialize(carts(50));
+        assertThatThrownBy(() -> serializer.deserialize(Arrays.copyOf(compressed, compressed.length / 2)))
+                .isInstanceOf(SerializationException.class);
+
+        byte[] plain = serializer.serialize(carts(1));
+        assertThatThrownBy(() -> serializer.deserialize(Arrays.copyOf(plain, plain.length / 2)))
+                .isInstanceOf(SerializationException.class);
+
+        // 压缩标志后面的原始长度没有结束字节
+        assertThatThrownBy(() -> serializer.deserialize(new byte[]{(byte) 0x81, 1, (byte) 0xFF}))
+                .isInstanceOf(SerializationException.class);
+        // 解压后长度超过上限
+        assertThatThrownBy(() -> serializer.deserialize(new byte[]{(byte) 0x81, 1, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0x7F}))
+                .isInstanceOf(SerializationException.class);
+        // 不认识的版本
+        assertThatThrownBy(() -> serializer.deserialize(new byte[]{(byte) 0x82, 0, 1}))
+                .isInstanceOf(SerializationException.class);
+    }
+}
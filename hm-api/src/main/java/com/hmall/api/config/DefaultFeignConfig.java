@@ -1,6 +1,9 @@
 package com.hmall.api.config;
 
-import com.hmall.common.utils.UserContext;
+import com.hmall.api.jfr.FeignJfrCapability;
+import com.hmall.common.context.RequestContext;
+import com.hmall.common.trace.Span;
+import feign.Capability;
 import feign.Logger;
 import feign.RequestInterceptor;
 import feign.RequestTemplate;
@@ -36,15 +39,34 @@ public class DefaultFeignConfig {
         return new RequestInterceptor() {
             @Override
             public void apply(RequestTemplate template) {
-                // 获取登录用户（从当前线程中取，因为openFeign远程调用依旧是同一个线程发起的）
-                Long userId = UserContext.getUser();
-                if (userId == null) {
+                // 获取请求上下文（从当前线程中取，在其他线程中发起调用时要用RequestContext.wrap把上下文带过去）
+                RequestContext context = RequestContext.current();
+                if (context == null) {
                     // 如果为空则直接跳过
                     return;
                 }
-                // 如果不为空则放入请求头中，传递给下游微服务
-                template.header("user-info", userId.toString());
+                // 如果不为空则把登录用户、链路id、截止时间放入请求头中，传递给下游微服务
+                if (context.getUserId() != null) {
+                    template.header(RequestContext.USER_HEADER, context.getUserId().toString());
+                }
+                // 只设置了登录用户的上下文（UserContext.setUser）没有链路id，下游会自己生成
+                if (context.getTraceId() != null) {
+                    template.header(RequestContext.TRACE_HEADER, context.getTraceId());
+                    // 这次调用的span id，FeignTracingCapability用它记录CLIENT span，下游把它作为父span
+                    template.header(RequestContext.SPAN_HEADER, Span.newSpanId());
+                }
+                if (context.getDeadline() != null) {
+                    template.header(RequestContext.DEADLINE_HEADER, context.getDeadline().toString());
+                }
             }
         };
     }
+
+    /**
+     * 每次Feign调用记录一个JFR事件（com.hmall.api.FeignCall），在业务事件中可以看出时间花在了哪个下游调用上
+     */
+    @Bean
+    public Capability feignJfrCapability() {
+        return new FeignJfrCapability();
+    }
 }
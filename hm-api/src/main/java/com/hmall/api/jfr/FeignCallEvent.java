@@ -0,0 +1,30 @@
+package com.hmall.api.jfr;
+
+import com.hmall.common.jfr.BusinessEvent;
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import lombok.Setter;
+
+/**
+ * 一次Feign调用的JFR事件
+ * operation为 接口名.方法名，JfrAnalyzer按它区分不同的调用。
+ */
+@Name("com.hmall.api.FeignCall")
+@Label("Feign调用")
+@Category({BusinessEvent.CATEGORY, "Feign"})
+@Setter
+public class FeignCallEvent extends BusinessEvent {
+
+    @Label("调用的方法")
+    private String operation;
+
+    @Label("目标服务")
+    private String service;
+
+    @Label("请求路径")
+    private String path;
+
+    @Label("响应状态码")
+    private int status;
+}
@@ -0,0 +1,43 @@
+package com.hmall.api.jfr;
+
+import feign.Capability;
+import feign.Client;
+import feign.MethodMetadata;
+import feign.Response;
+
+/**
+ * 每次Feign调用提交一个FeignCallEvent
+ * 和指标一样，抛出异常或响应状态码>=500算失败。
+ */
+public class FeignJfrCapability implements Capability {
+
+    @Override
+    public Client enrich(Client client) {
+        return (request, options) -> {
+            FeignCallEvent event = new FeignCallEvent();
+            if (event.isEnabled()) {
+                MethodMetadata metadata = request.requestTemplate().methodMetadata();
+                if (metadata != null) {
+                    event.setOperation(metadata.method().getDeclaringClass().getSimpleName()
+                            + "." + metadata.method().getName());
+                }
+                event.setService(request.requestTemplate().feignTarget().name());
+                event.setPath(request.requestTemplate().path());
+            }
+            event.start();
+            try {
+                Response response = client.execute(request, options);
+                event.setStatus(response.status());
+                if (response.status() >= 500) {
+                    event.fail("HTTP_" + response.status());
+                }
+                return response;
+            } catch (Throwable e) {
+                event.fail(e);
+                throw e;
+            } finally {
+                event.finish();
+            }
+        };
+    }
+}
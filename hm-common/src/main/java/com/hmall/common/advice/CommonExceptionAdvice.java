@@ -2,10 +2,13 @@ package com.hmall.common.advice;
 
 import com.hmall.common.domain.R;
 import com.hmall.common.exception.BadRequestException;
+import com.hmall.common.exception.BizRejectException;
 import com.hmall.common.exception.CommonException;
 import com.hmall.common.exception.DbException;
+import com.hmall.common.exception.ErrorCode;
 import com.hmall.common.utils.WebUtils;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.ObjectError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -26,6 +29,19 @@ public class CommonExceptionAdvice {
         return processResponse(e);
     }
 
+    @ExceptionHandler(BizRejectException.class)
+    public ResponseEntity<byte[]> handleBizRejectException(BizRejectException e) {
+        // 预期内的业务拒绝：没有堆栈，日志限流，直接返回预先序列化的响应体
+        ErrorCode errorCode = e.getErrorCode();
+        long suppressed = errorCode.tryLog();
+        if (suppressed >= 0) {
+            log.info("业务拒绝 -> code：{} , 原因：{} , 上个周期内省略了{}次", errorCode.getCode(), errorCode.getMsg(), suppressed);
+        }
+        return ResponseEntity.status(errorCode.getCode())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(errorCode.getBody());
+    }
+
     @ExceptionHandler(CommonException.class)
     public Object handleBadRequestException(CommonException e) {
         log.error("自定义异常 -> {} , 异常原因：{}  ",e.getClass().getName(), e.getMessage());
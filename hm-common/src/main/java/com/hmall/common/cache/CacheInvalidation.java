@@ -0,0 +1,26 @@
+package com.hmall.common.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 缓存失效广播消息，各节点收到后清理自己的本地缓存
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheInvalidation {
+    /**
+     * 缓存名
+     */
+    private String cacheName;
+    /**
+     * 失效的key，为null表示清空整个缓存
+     */
+    private String key;
+    /**
+     * 发出消息的节点，节点收到自己发出的消息时忽略
+     */
+    private String origin;
+}
@@ -0,0 +1,27 @@
+package com.hmall.common.cache;
+
+import com.hmall.common.constants.MqConstants;
+import lombok.RequiredArgsConstructor;
+import org.springframework.amqp.core.ExchangeTypes;
+import org.springframework.amqp.rabbit.annotation.Exchange;
+import org.springframework.amqp.rabbit.annotation.Queue;
+import org.springframework.amqp.rabbit.annotation.QueueBinding;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+
+/**
+ * 监听缓存失效广播
+ * 每个节点绑定一个匿名队列（自动删除），这样每个节点都能收到全部失效消息。
+ */
+@RequiredArgsConstructor
+public class CacheInvalidationListener {
+
+    private final TwoLevelCacheManager cacheManager;
+
+    @RabbitListener(bindings = @QueueBinding(
+            value = @Queue,
+            exchange = @Exchange(name = MqConstants.CACHE_INVALIDATE_EXCHANGE, type = ExchangeTypes.FANOUT)
+    ))
+    public void listenCacheInvalidation(CacheInvalidation message) {
+        cacheManager.onInvalidation(message);
+    }
+}
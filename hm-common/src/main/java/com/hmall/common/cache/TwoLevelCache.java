@@ -0,0 +1,328 @@
+package com.hmall.common.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.hmall.common.config.TwoLevelCacheProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+import org.springframework.cache.support.NullValue;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 两级缓存：本地Caffeine（L1） + Redis（L2）
+ * 读：L1 -> L2 -> 加载，L2命中时回填L1，加载后同时写入L1和L2。
+ * 写/删：先改Redis，再改本地，最后广播失效消息让其它节点清理自己的L1。
+ * 广播是尽力而为的，所以L1的过期时间要比L2短，消息丢了也最多脏localTtl。
+ * get(key, loader)（@Cacheable(sync = true)）同一个key在本节点只会有一个线程去加载，
+ * 其它线程等待它的结果，Redis中的过期时间带随机抖动，避免同一批key同时失效一起回源。
+ * 加载期间key被修改、删除（包括其它节点广播的失效）时，这次加载标记为过期，加载完不再写入缓存，
+ * 否则修改之前从数据库读到的旧值会被写回去，一直留到过期。
+ * Redis读写失败时降级为直接加载，删除失败时抛出异常，避免留下脏数据。
+ */
+@Slf4j
+public class TwoLevelCache extends AbstractValueAdaptingCache {
+
+    private static final int SCAN_BATCH = 500;
+
+    private final String name;
+    private final String redisPrefix;
+    private final Cache<String, Object> local;
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final Duration ttl;
+    private final Duration nullValueTtl;
+    private final TwoLevelCacheManager manager;
+    /**
+     * 正在加载的key，同一个key的并发加载只有第一个线程真正执行
+     */
+    private final ConcurrentMap<String, Load> loading = new ConcurrentHashMap<>();
+
+    private final Counter localHits;
+    private final Counter redisHits;
+    private final Counter misses;
+
+    TwoLevelCache(String name, TwoLevelCacheProperties properties, RedisTemplate<String, Object> redisTemplate,
+                  MeterRegistry registry, TwoLevelCacheManager manager) {
+        super(true);
+        TwoLevelCacheProperties.Spec spec = properties.spec(name);
+        this.name = name;
+        this.redisPrefix = properties.getKeyPrefix() + name + ":";
+        // Caffeine的maximumSize淘汰策略就是W-TinyLFU
+        this.local = Caffeine.newBuilder()
+                .maximumSize(spec.getMaximumSize())
+                .expireAfterWrite(spec.getLocalTtl())
+                .build();
+        this.redisTemplate = redisTemplate;
+        this.ttl = spec.getTtl();
+        this.nullValueTtl = properties.getNullValueTtl();
+        this.manager = manager;
+        this.localHits = counter(registry, "l1_hit");
+        this.redisHits = counter(registry, "l2_hit");
+        this.misses = counter(registry, "miss");
+        Gauge.builder("hm.cache.local.size", local, Cache::estimatedSize)
+                .description("本地缓存条数")
+                .tag("cache", name)
+                .register(registry);
+    }
+
+    private Counter counter(MeterRegistry registry, String result) {
+        return Counter.builder("hm.cache.gets")
+                .description("缓存读取次数，按命中的层级区分")
+                .tag("cache", name)
+                .tag("result", result)
+                .register(registry);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return local;
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        String k = key(key);
+        Object value = local.getIfPresent(k);
+        if (value != null) {
+            localHits.increment();
+            return value;
+        }
+        value = redisGet(k);
+        if (value != null) {
+            redisHits.increment();
+            local.put(k, value);
+            return value;
+        }
+        misses.increment();
+        return null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        String k = key(key);
+        Object value = local.getIfPresent(k);
+        if (value != null) {
+            localHits.increment();
+            return (T) fromStoreValue(value);
+        }
+        Load load = new Load();
+        Load inflight = loading.putIfAbsent(k, load);
+        if (inflight != null) {
+            // 已经有线程在加载这个key，等它的结果
+            return (T) fromStoreValue(await(inflight));
+        }
+        try {
+            value = load(k, valueLoader, load);
+            load.complete(value);
+            return (T) fromStoreValue(value);
+        } catch (RuntimeException | Error e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(k, load);
+        }
+    }
+
+    private Object load(String k, Callable<?> valueLoader, Load load) {
+        Object value = redisGet(k);
+        if (value != null) {
+            redisHits.increment();
+            fill(k, value, load, false);
+            return value;
+        }
+        misses.increment();
+        try {
+            value = toStoreValue(valueLoader.call());
+        } catch (Exception e) {
+            throw new ValueRetrievalException(k, valueLoader, e);
+        }
+        fill(k, value, load, true);
+        return value;
+    }
+
+    /**
+     * 把加载到的值写入本地缓存（toRedis为true时也写入Redis）
+     * 先写再检查是否过期：evict先标记再删除，所以不管两边怎么交错，旧值要么没写进去，要么被删掉
+     */
+    private void fill(String k, Object value, Load load, boolean toRedis) {
+        if (load.stale) {
+            return;
+        }
+        if (toRedis) {
+            redisPut(k, value);
+        }
+        local.put(k, value);
+        if (load.stale) {
+            local.invalidate(k);
+            if (toRedis) {
+                redisDelete(k);
+            }
+        }
+    }
+
+    /**
+     * key被修改或删除时调用：正在进行的加载不再写入缓存，之后的读取重新加载
+     */
+    private void invalidateLoading(String k) {
+        Load load = loading.remove(k);
+        if (load != null) {
+            load.stale = true;
+        }
+    }
+
+    private void invalidateAllLoading() {
+        for (String k : loading.keySet()) {
+            invalidateLoading(k);
+        }
+    }
+
+    private static Object await(CompletableFuture<Object> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        String k = key(key);
+        Object storeValue = toStoreValue(value);
+        invalidateLoading(k);
+        redisPut(k, storeValue);
+        local.put(k, storeValue);
+        manager.publish(name, k);
+    }
+
+    @Override
+    public void evict(Object key) {
+        String k = key(key);
+        invalidateLoading(k);
+        redisTemplate.delete(redisPrefix + k);
+        local.invalidate(k);
+        manager.publish(name, k);
+    }
+
+    @Override
+    public void clear() {
+        invalidateAllLoading();
+        redisTemplate.execute((RedisCallback<Void>) connection -> {
+            deleteByPrefix(connection);
+            return null;
+        });
+        local.invalidateAll();
+        manager.publish(name, null);
+    }
+
+    /**
+     * 收到其它节点的失效广播时清理本地缓存
+     *
+     * @param key 失效的key，null表示清空
+     */
+    void invalidateLocal(String key) {
+        if (key == null) {
+            invalidateAllLoading();
+            local.invalidateAll();
+        } else {
+            invalidateLoading(key);
+            local.invalidate(key);
+        }
+    }
+
+    private void deleteByPrefix(RedisConnection connection) {
+        ScanOptions options = ScanOptions.scanOptions().match(redisPrefix + "*").count(SCAN_BATCH).build();
+        try (Cursor<byte[]> cursor = connection.scan(options)) {
+            List<byte[]> batch = new ArrayList<>(SCAN_BATCH);
+            while (cursor.hasNext()) {
+                batch.add(cursor.next());
+                if (batch.size() == SCAN_BATCH) {
+                    connection.del(batch.toArray(new byte[0][]));
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                connection.del(batch.toArray(new byte[0][]));
+            }
+        }
+    }
+
+    private Object redisGet(String k) {
+        try {
+            return redisTemplate.opsForValue().get(redisPrefix + k);
+        } catch (RuntimeException e) {
+            log.warn("读取Redis缓存失败, key: {}{}", redisPrefix, k, e);
+            return null;
+        }
+    }
+
+    private void redisPut(String k, Object storeValue) {
+        Duration timeout = storeValue == NullValue.INSTANCE ? nullValueTtl : jitter(ttl);
+        try {
+            redisTemplate.opsForValue().set(redisPrefix + k, storeValue, timeout);
+        } catch (RuntimeException e) {
+            log.warn("写入Redis缓存失败, key: {}{}", redisPrefix, k, e);
+        }
+    }
+
+    private void redisDelete(String k) {
+        try {
+            redisTemplate.delete(redisPrefix + k);
+        } catch (RuntimeException e) {
+            log.warn("删除Redis缓存失败, key: {}{}", redisPrefix, k, e);
+        }
+    }
+
+    /**
+     * 过期时间加上±10%的随机抖动
+     */
+    private static Duration jitter(Duration ttl) {
+        long millis = ttl.toMillis();
+        long delta = millis / 10;
+        if (delta <= 0) {
+            return ttl;
+        }
+        return Duration.ofMillis(millis - delta + ThreadLocalRandom.current().nextLong(delta * 2 + 1));
+    }
+
+    private static String key(Object key) {
+        return String.valueOf(key);
+    }
+
+    /**
+     * 一次加载，等待同一个key的线程共用它的结果
+     */
+    private static final class Load extends CompletableFuture<Object> {
+        /**
+         * 加载期间key被修改或删除过，加载到的值不能再写入缓存
+         */
+        private volatile boolean stale;
+    }
+}
@@ -0,0 +1,83 @@
+package com.hmall.common.cache;
+
+import cn.hutool.core.util.IdUtil;
+import com.hmall.common.config.TwoLevelCacheProperties;
+import com.hmall.common.constants.MqConstants;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 两级缓存的CacheManager，缓存在第一次使用时按 hm.cache.caches.{name} 的配置创建
+ * 负责在本节点修改缓存后广播失效消息，以及处理其它节点发来的失效消息。
+ */
+@Slf4j
+public class TwoLevelCacheManager implements CacheManager {
+
+    /**
+     * 本节点的标识，用来忽略自己发出的失效消息
+     */
+    private final String nodeId = IdUtil.fastSimpleUUID();
+
+    private final ConcurrentMap<String, TwoLevelCache> caches = new ConcurrentHashMap<>();
+
+    private final TwoLevelCacheProperties properties;
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final RabbitTemplate rabbitTemplate;
+    private final MeterRegistry registry;
+
+    public TwoLevelCacheManager(TwoLevelCacheProperties properties, RedisTemplate<String, Object> redisTemplate,
+                                RabbitTemplate rabbitTemplate, MeterRegistry registry) {
+        this.properties = properties;
+        this.redisTemplate = redisTemplate;
+        this.rabbitTemplate = rabbitTemplate;
+        this.registry = registry;
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        return caches.computeIfAbsent(name, n -> new TwoLevelCache(n, properties, redisTemplate, registry, this));
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return Collections.unmodifiableSet(caches.keySet());
+    }
+
+    /**
+     * 广播失效消息，发送失败不影响主流程，其它节点的本地缓存最多在localTtl之后过期
+     *
+     * @param cacheName 缓存名
+     * @param key       失效的key，null表示清空
+     */
+    void publish(String cacheName, String key) {
+        try {
+            rabbitTemplate.convertAndSend(MqConstants.CACHE_INVALIDATE_EXCHANGE, "",
+                    new CacheInvalidation(cacheName, key, nodeId));
+        } catch (Exception e) {
+            log.warn("缓存失效消息发送失败, cache: {}, key: {}", cacheName, key, e);
+        }
+    }
+
+    /**
+     * 处理失效消息，清理本节点的本地缓存
+     */
+    void onInvalidation(CacheInvalidation message) {
+        if (nodeId.equals(message.getOrigin())) {
+            return;
+        }
+        TwoLevelCache cache = caches.get(message.getCacheName());
+        if (cache != null) {
+            // 本节点还没用过的缓存不需要处理
+            cache.invalidateLocal(message.getKey());
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.hmall.common.config;
+
+import com.fasterxml.jackson.databind.jsontype.BasicPolymorphicTypeValidator;
+import com.fasterxml.jackson.databind.jsontype.PolymorphicTypeValidator;
+import com.hmall.common.cache.CacheInvalidationListener;
+import com.hmall.common.cache.TwoLevelCacheManager;
+import com.hmall.common.redis.BinaryRedisSerializer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.actuate.autoconfigure.metrics.CompositeMeterRegistryAutoConfiguration;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.AutoConfigureBefore;
+import org.springframework.boot.autoconfigure.amqp.RabbitAutoConfiguration;
+import org.springframework.boot.autoconfigure.cache.CacheAutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.data.redis.RedisAutoConfiguration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.support.NullValue;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+/**
+ * 两级缓存（本地Caffeine + Redis + MQ广播失效），同时引入了Redis和MQ的服务自动开启
+ * 业务代码直接使用Spring的@Cacheable、@CachePut、@CacheEvict，读多的场景建议@Cacheable(sync = true)，
+ * 同一个key并发未命中时只有一个线程回源。各缓存的过期时间、本地条数在 hm.cache.caches.{name} 下配置。
+ */
+@Configuration
+@EnableCaching
+@ConditionalOnClass({RedisConnectionFactory.class, RabbitTemplate.class})
+@ConditionalOnProperty(prefix = "hm.cache", name = "enabled", havingValue = "true", matchIfMissing = true)
+@AutoConfigureAfter({RedisAutoConfiguration.class, RabbitAutoConfiguration.class, CompositeMeterRegistryAutoConfiguration.class})
+@AutoConfigureBefore(CacheAutoConfiguration.class)
+@ConditionalOnBean({RedisConnectionFactory.class, RabbitTemplate.class})
+@EnableConfigurationProperties(TwoLevelCacheProperties.class)
+public class CacheConfig {
+
+    /**
+     * 缓存值写入Redis时的序列化方式
+     * 默认是带类名的二进制格式（见BinaryRedisSerializer），以前写入的JSON仍然能读，
+     * 只允许反序列化成商城自己的类和JDK的类型。
+     */
+    @Bean
+    @ConditionalOnMissingBean(name = "cacheValueSerializer")
+    public RedisSerializer<Object> cacheValueSerializer() {
+        PolymorphicTypeValidator validator = BasicPolymorphicTypeValidator.builder()
+                .allowIfSubType("com.hmall.")
+                .allowIfSubType("java.")
+                .allowIfSubType(NullValue.class)
+                .build();
+        return BinaryRedisSerializer.typed(validator);
+    }
+
+    @Bean
+    public TwoLevelCacheManager cacheManager(TwoLevelCacheProperties properties,
+                                             RedisConnectionFactory connectionFactory,
+                                             @Qualifier("cacheValueSerializer") RedisSerializer<Object> cacheValueSerializer,
+                                             RabbitTemplate rabbitTemplate,
+                                             ObjectProvider<MeterRegistry> registry) {
+        RedisTemplate<String, Object> redisTemplate = new RedisTemplate<>();
+        redisTemplate.setConnectionFactory(connectionFactory);
+        redisTemplate.setKeySerializer(RedisSerializer.string());
+        redisTemplate.setValueSerializer(cacheValueSerializer);
+        redisTemplate.afterPropertiesSet();
+        return new TwoLevelCacheManager(properties, redisTemplate, rabbitTemplate,
+                registry.getIfAvailable(() -> Metrics.globalRegistry));
+    }
+
+    @Bean
+    public CacheInvalidationListener cacheInvalidationListener(TwoLevelCacheManager cacheManager) {
+        return new CacheInvalidationListener(cacheManager);
+    }
+}
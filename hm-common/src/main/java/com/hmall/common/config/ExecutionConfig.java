@@ -0,0 +1,116 @@
+package com.hmall.common.config;
+
+import com.hmall.common.context.ContextTaskDecorator;
+import com.hmall.common.utils.VirtualThreads;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.coyote.ProtocolHandler;
+import org.apache.tomcat.util.threads.TaskQueue;
+import org.apache.tomcat.util.threads.TaskThreadFactory;
+import org.apache.tomcat.util.threads.ThreadPoolExecutor;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.AutoConfigureBefore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.DispatcherServlet;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 请求处理线程模型，配置了 hm.execution.mode 才生效
+ * 服务处理请求时大部分时间阻塞在Feign、JDBC、Redis上，Tomcat默认200个线程很快用完，CPU却还很空闲。
+ * virtual：Tomcat的请求线程换成虚拟线程，阻塞时不占用平台线程，Feign调用在请求线程中发起，也就跑在虚拟线程上；
+ * 每个请求一个新的虚拟线程，UserContext等ThreadLocal语义不变（请求结束时照常清理）。
+ * bounded：JVM不支持虚拟线程或者显式配置时，用一个调大的、队列有上限的Tomcat线程池，过载时尽快拒绝而不是无限排队。
+ * 要在TaskExecutionAutoConfiguration之前处理，它看到已有applicationTaskExecutor才不会再注册默认的线程池。
+ */
+@Slf4j
+@Configuration
+@ConditionalOnClass({DispatcherServlet.class, Tomcat.class})
+@ConditionalOnProperty(prefix = "hm.execution", name = "mode")
+@EnableConfigurationProperties(ExecutionProperties.class)
+@AutoConfigureBefore(TaskExecutionAutoConfiguration.class)
+public class ExecutionConfig {
+
+    /**
+     * 把Tomcat处理请求的线程池换掉
+     * 线程池不单独注册成Bean：容器里有Executor类型的Bean时，SpringBoot就不再创建默认的applicationTaskExecutor了
+     */
+    @Bean
+    public RequestExecutorCustomizer requestExecutorCustomizer(ExecutionProperties properties) {
+        return new RequestExecutorCustomizer(requestExecutor(properties));
+    }
+
+    private ExecutorService requestExecutor(ExecutionProperties properties) {
+        if (properties.getMode() == ExecutionProperties.Mode.VIRTUAL) {
+            ExecutorService executor = VirtualThreads.newExecutor();
+            if (executor != null) {
+                log.info("请求处理使用虚拟线程");
+                return executor;
+            }
+            log.warn("当前JVM不支持虚拟线程，请求处理退回到有界线程池");
+        }
+        ExecutionProperties.Bounded bounded = properties.getBounded();
+        // Tomcat自己的线程池：线程数没到上限时先加线程再排队，和Tomcat默认的行为一致
+        TaskQueue queue = new TaskQueue(bounded.getQueueCapacity());
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(bounded.getMinSpareThreads(), bounded.getMaxThreads(),
+                bounded.getKeepAlive().toMillis(), TimeUnit.MILLISECONDS, queue,
+                new TaskThreadFactory("http-exec-", true, Thread.NORM_PRIORITY));
+        queue.setParent(executor);
+        log.info("请求处理使用有界线程池，最大线程数:{}，队列长度:{}", bounded.getMaxThreads(), bounded.getQueueCapacity());
+        return executor;
+    }
+
+    /**
+     * virtual模式下@Async和注入的线程池也用虚拟线程，同样带上请求上下文
+     */
+    @Bean(name = {"applicationTaskExecutor", "taskExecutor"})
+    @ConditionalOnProperty(prefix = "hm.execution", name = "mode", havingValue = "virtual")
+    public AsyncTaskExecutor applicationTaskExecutor(ExecutionProperties properties) {
+        ExecutorService executor = VirtualThreads.newExecutor();
+        if (executor != null) {
+            TaskExecutorAdapter adapter = new TaskExecutorAdapter(executor);
+            adapter.setTaskDecorator(new ContextTaskDecorator());
+            return adapter;
+        }
+        // 不支持虚拟线程时，用一个独立的有界线程池，不和请求线程抢
+        ThreadPoolTaskExecutor fallback = new ThreadPoolTaskExecutor();
+        fallback.setCorePoolSize(properties.getBounded().getMinSpareThreads());
+        fallback.setMaxPoolSize(properties.getBounded().getMaxThreads());
+        fallback.setQueueCapacity(properties.getBounded().getQueueCapacity());
+        fallback.setThreadNamePrefix("task-");
+        fallback.setTaskDecorator(new ContextTaskDecorator());
+        return fallback;
+    }
+
+    /**
+     * Tomcat只会关闭自己创建的线程池，外部设置的线程池在应用关闭时由这里关闭
+     */
+    public static class RequestExecutorCustomizer implements TomcatProtocolHandlerCustomizer<ProtocolHandler>, DisposableBean {
+
+        private final ExecutorService executor;
+
+        public RequestExecutorCustomizer(ExecutorService executor) {
+            this.executor = executor;
+        }
+
+        @Override
+        public void customize(ProtocolHandler protocolHandler) {
+            protocolHandler.setExecutor(executor);
+        }
+
+        @Override
+        public void destroy() {
+            executor.shutdown();
+        }
+    }
+}
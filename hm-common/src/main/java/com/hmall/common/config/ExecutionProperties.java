@@ -0,0 +1,47 @@
+package com.hmall.common.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * 请求处理线程模型配置，不配置 hm.execution.mode 时保持Tomcat默认的线程池
+ */
+@Data
+@ConfigurationProperties(prefix = "hm.execution")
+public class ExecutionProperties {
+    /**
+     * virtual：请求和@Async任务都在虚拟线程中执行（JVM不支持时退回bounded）
+     * bounded：使用下面配置的有界线程池
+     */
+    private Mode mode;
+    /**
+     * 有界线程池配置
+     */
+    private Bounded bounded = new Bounded();
+
+    public enum Mode {
+        VIRTUAL, BOUNDED
+    }
+
+    @Data
+    public static class Bounded {
+        /**
+         * 常驻线程数
+         */
+        private int minSpareThreads = 20;
+        /**
+         * 最大线程数，请求大多在等Feign、数据库、Redis，可以比CPU核数大很多
+         */
+        private int maxThreads = 400;
+        /**
+         * 线程都忙时最多排队多少个请求，超过后拒绝，避免排队太久请求早已超时
+         */
+        private int queueCapacity = 200;
+        /**
+         * 空闲线程多久后回收
+         */
+        private Duration keepAlive = Duration.ofSeconds(60);
+    }
+}
@@ -1,23 +1,50 @@
 package com.hmall.common.config;
 
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.Module;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import com.hmall.common.utils.JsonUtils;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 
-import java.math.BigInteger;
-
+/**
+ * SpringMVC、Feign等使用的ObjectMapper仍由Spring Boot构建（spring.jackson.*配置照常生效），
+ * 这里把JsonUtils的规则注册上去，两边的序列化结果保持一致。
+ * Spring Boot会把容器中所有的Module注册到ObjectMapper上。
+ */
 @Configuration
-@ConditionalOnClass(ObjectMapper.class)
+@ConditionalOnClass({ObjectMapper.class, Jackson2ObjectMapperBuilder.class})
 public class JsonConfig {
+
+    /**
+     * long -> string 等规则，在JsonUtils中统一定义
+     */
+    @Bean
+    public Module hmJsonRulesModule() {
+        return JsonUtils.rulesModule();
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public BlackbirdModule blackbirdModule() {
+        return new BlackbirdModule();
+    }
+
+    /**
+     * 排在Spring Boot处理spring.jackson.*的customizer（order为0）之前，配置文件中的设置可以覆盖这里
+     */
     @Bean
+    @Order(-1)
     public Jackson2ObjectMapperBuilderCustomizer jackson2ObjectMapperBuilderCustomizer() {
-        return jacksonObjectMapperBuilder -> {
-            // long -> string
-            jacksonObjectMapperBuilder.serializerByType(Long.class, ToStringSerializer.instance);
-            jacksonObjectMapperBuilder.serializerByType(BigInteger.class, ToStringSerializer.instance);
-        };
+        return builder -> builder.featuresToDisable(
+                DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES,
+                SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
     }
 }
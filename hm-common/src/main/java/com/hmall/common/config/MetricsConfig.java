@@ -0,0 +1,77 @@
+package com.hmall.common.config;
+
+import com.hmall.common.metrics.FeignMetricsCapability;
+import com.hmall.common.metrics.InvocationMetrics;
+import com.hmall.common.metrics.MyBatisMetricsInterceptor;
+import com.hmall.common.metrics.RabbitListenerMetricsPostProcessor;
+import com.hmall.common.metrics.RedisMetricsPostProcessor;
+import com.hmall.common.metrics.SqlProfiler;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.actuate.autoconfigure.metrics.CompositeMeterRegistryAutoConfiguration;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Feign、MyBatis、Redis、MQ监听的耗时和错误指标，通过 /actuator/prometheus 暴露
+ * 指标名：hm.feign.client、hm.mybatis.statement、hm.redis.command、hm.rabbit.listener，
+ * 以及对应的 *.errors 计数。设置 hm.metrics.enabled=false 可以整体关闭。
+ */
+@Configuration
+@ConditionalOnClass(MeterRegistry.class)
+@ConditionalOnProperty(prefix = "hm.metrics", name = "enabled", havingValue = "true", matchIfMissing = true)
+@AutoConfigureAfter(CompositeMeterRegistryAutoConfiguration.class)
+@ConditionalOnBean(MeterRegistry.class)
+public class MetricsConfig {
+
+    @Configuration
+    @ConditionalOnClass(name = "feign.Capability")
+    static class FeignMetricsConfiguration {
+        @Bean
+        public FeignMetricsCapability feignMetricsCapability(MeterRegistry registry) {
+            return new FeignMetricsCapability(new InvocationMetrics(registry, "hm.feign.client", "Feign调用耗时"));
+        }
+    }
+
+    @Configuration
+    @ConditionalOnClass(name = "org.apache.ibatis.plugin.Interceptor")
+    @EnableConfigurationProperties(SqlProfilerProperties.class)
+    static class MyBatisMetricsConfiguration {
+        @Bean
+        public MyBatisMetricsInterceptor myBatisMetricsInterceptor(MeterRegistry registry, ObjectProvider<SqlProfiler> profiler) {
+            return new MyBatisMetricsInterceptor(registry, profiler.getIfAvailable());
+        }
+
+        /**
+         * 慢查询、N+1查询和周期报告，挂在MyBatisMetricsInterceptor上，共用它的计时
+         */
+        @Bean
+        @ConditionalOnProperty(prefix = "hm.sql-profiler", name = "enabled", havingValue = "true", matchIfMissing = true)
+        public SqlProfiler sqlProfiler(MeterRegistry registry, SqlProfilerProperties properties) {
+            return new SqlProfiler(registry, properties);
+        }
+    }
+
+    @Configuration
+    @ConditionalOnClass(name = "org.springframework.data.redis.connection.RedisConnectionFactory")
+    static class RedisMetricsConfiguration {
+        @Bean
+        public static RedisMetricsPostProcessor redisMetricsPostProcessor(ObjectProvider<MeterRegistry> registry) {
+            return new RedisMetricsPostProcessor(registry);
+        }
+    }
+
+    @Configuration
+    @ConditionalOnClass(name = "org.springframework.amqp.rabbit.config.AbstractRabbitListenerContainerFactory")
+    static class RabbitMetricsConfiguration {
+        @Bean
+        public static RabbitListenerMetricsPostProcessor rabbitListenerMetricsPostProcessor(ObjectProvider<MeterRegistry> registry) {
+            return new RabbitListenerMetricsPostProcessor(registry);
+        }
+    }
+}
@@ -1,25 +1,66 @@
 package com.hmall.common.config;
 
+import com.hmall.common.context.RabbitContextPropagation;
+import com.hmall.common.context.TracingRabbitTemplate;
+import com.hmall.common.mq.CompactMessageConverter;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.ContentTypeDelegatingMessageConverter;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.boot.autoconfigure.AutoConfigureBefore;
+import org.springframework.boot.autoconfigure.amqp.RabbitAutoConfiguration;
+import org.springframework.boot.autoconfigure.amqp.RabbitTemplateConfigurer;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 /**
- * 配置Spring amqp的消息转换器
+ * 配置Spring amqp的消息转换器，以及在消息头中传递请求上下文的RabbitTemplate
  */
 @Configuration
 @ConditionalOnClass(RabbitTemplate.class)
+@AutoConfigureBefore(RabbitAutoConfiguration.class)
+@EnableConfigurationProperties(MqProperties.class)
 public class MqConfig {
 
     @Bean
-    public MessageConverter messageConverter() {
+    public MessageConverter messageConverter(MqProperties mqProperties) {
         // 1.定义消息转换器
         Jackson2JsonMessageConverter jjmc = new Jackson2JsonMessageConverter();
+        CompactMessageConverter compact = new CompactMessageConverter();
         // 2.配置自动创建消息id，用于识别不同消息，也可以在业务中基于ID判断是否是重复消息
         jjmc.setCreateMessageIds(true);
-        return jjmc;
+        compact.setCreateMessageIds(true);
+        // 3.接收时按content-type选择转换器，发送时使用配置的格式
+        MessageConverter sender = mqProperties.getCodec() == MqProperties.Codec.COMPACT ? compact : jjmc;
+        ContentTypeDelegatingMessageConverter converter = new ContentTypeDelegatingMessageConverter(sender);
+        converter.addDelegate(MessageProperties.CONTENT_TYPE_JSON, jjmc);
+        converter.addDelegate(CompactMessageConverter.CONTENT_TYPE, compact);
+        return converter;
+    }
+
+    /**
+     * 代替自动配置的RabbitTemplate（配置项一样由RabbitTemplateConfigurer设置），
+     * 发送消息时把请求上下文（用户、链路id、截止时间）写进消息头，并记录发送耗时
+     */
+    @Bean
+    @ConditionalOnMissingBean(RabbitOperations.class)
+    public RabbitTemplate rabbitTemplate(RabbitTemplateConfigurer configurer, ConnectionFactory connectionFactory) {
+        RabbitTemplate template = new TracingRabbitTemplate();
+        configurer.configure(template, connectionFactory);
+        return template;
+    }
+
+    /**
+     * 消费消息时从消息头恢复请求上下文
+     */
+    @Bean
+    public static RabbitContextPropagation rabbitContextPropagation() {
+        return new RabbitContextPropagation();
     }
 }
@@ -0,0 +1,21 @@
+package com.hmall.common.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * MQ消息格式配置
+ */
+@Data
+@ConfigurationProperties(prefix = "hm.mq")
+public class MqProperties {
+    /**
+     * 发送消息使用的格式，接收时两种格式都能解析（按content-type选择）。
+     * 升级时先让所有服务都部署能解析compact的版本，再把发送方切换成compact。
+     */
+    private Codec codec = Codec.JSON;
+
+    public enum Codec {
+        JSON, COMPACT
+    }
+}
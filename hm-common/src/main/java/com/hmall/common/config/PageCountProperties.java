@@ -0,0 +1,22 @@
+package com.hmall.common.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * 分页总条数统计配置，只对指定了CACHED/ESTIMATED的分页查询生效
+ */
+@Data
+@ConfigurationProperties(prefix = "hm.page-count")
+public class PageCountProperties {
+    /**
+     * CACHED方式下COUNT(*)结果的缓存时间
+     */
+    private Duration cacheTtl = Duration.ofSeconds(60);
+    /**
+     * 最多缓存多少种查询条件的总条数
+     */
+    private long maximumSize = 10000;
+}
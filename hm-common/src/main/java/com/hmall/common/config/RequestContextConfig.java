@@ -0,0 +1,24 @@
+package com.hmall.common.config;
+
+import com.hmall.common.context.ContextTaskDecorator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.web.servlet.DispatcherServlet;
+
+/**
+ * 请求上下文在线程之间的传递
+ * SpringBoot会把TaskDecorator装配到默认的线程池（@Async、注入的ThreadPoolTaskExecutor）上
+ */
+@Configuration
+@ConditionalOnClass(DispatcherServlet.class)
+public class RequestContextConfig {
+
+    @Bean
+    @ConditionalOnMissingBean(TaskDecorator.class)
+    public TaskDecorator contextTaskDecorator() {
+        return new ContextTaskDecorator();
+    }
+}
@@ -0,0 +1,34 @@
+package com.hmall.common.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * SQL慢查询分析配置，依赖SQL指标（hm.metrics.enabled=false时一起关闭）
+ */
+@Data
+@ConfigurationProperties(prefix = "hm.sql-profiler")
+public class SqlProfilerProperties {
+    /**
+     * 是否开启
+     */
+    private boolean enabled = true;
+    /**
+     * 超过这个耗时的SQL记为慢查询，打印并保留绑定后的SQL
+     */
+    private Duration slowThreshold = Duration.ofMillis(500);
+    /**
+     * 慢查询报告的周期，每个周期按本周期的增量打印一次耗时最多的statement
+     */
+    private Duration reportInterval = Duration.ofMinutes(1);
+    /**
+     * 报告中列出多少个statement
+     */
+    private int topN = 10;
+    /**
+     * 同一个请求中同一个statement执行超过这个次数时，认为是N+1查询
+     */
+    private int repeatThreshold = 20;
+}
@@ -0,0 +1,42 @@
+package com.hmall.common.config;
+
+import com.hmall.common.trace.FeignTracingCapability;
+import com.hmall.common.trace.SpanExporter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.nio.file.Paths;
+
+/**
+ * 链路追踪，网关和各个微服务都会开启
+ * 每个服务把自己的span写到本地文件，用TraceReport合在一起分析每个请求的耗时花在了哪一跳上。
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "hm.trace", name = "enabled", havingValue = "true", matchIfMissing = true)
+@EnableConfigurationProperties(TraceProperties.class)
+public class TraceConfig {
+
+    @Bean(initMethod = "install", destroyMethod = "stop")
+    public SpanExporter spanExporter(TraceProperties properties, Environment environment) {
+        String service = environment.getProperty("spring.application.name", "application");
+        String file = properties.getFile();
+        if (file == null || file.isBlank()) {
+            file = "logs/" + service + "/spans.log";
+        }
+        return new SpanExporter(service, Paths.get(file), properties.getBufferSize(),
+                properties.getMaxFileSize().toBytes());
+    }
+
+    @Configuration
+    @ConditionalOnClass(name = "feign.Capability")
+    static class FeignTracingConfiguration {
+        @Bean
+        public FeignTracingCapability feignTracingCapability() {
+            return new FeignTracingCapability();
+        }
+    }
+}
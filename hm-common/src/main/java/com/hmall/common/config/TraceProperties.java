@@ -0,0 +1,29 @@
+package com.hmall.common.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * 链路追踪配置
+ */
+@Data
+@ConfigurationProperties(prefix = "hm.trace")
+public class TraceProperties {
+    /**
+     * 是否把span写到本地文件，关闭后链路id照常传递、日志照常带traceId
+     */
+    private boolean enabled = true;
+    /**
+     * span文件路径，不配置时为 logs/{spring.application.name}/spans.log
+     */
+    private String file;
+    /**
+     * 等待写文件的span的最大个数，写不过来时新的span直接丢弃
+     */
+    private int bufferSize = 8192;
+    /**
+     * 单个文件的最大大小，超过后改名为 .1 重新开始写
+     */
+    private DataSize maxFileSize = DataSize.ofMegabytes(100);
+}
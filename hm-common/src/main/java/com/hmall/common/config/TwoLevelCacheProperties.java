@@ -0,0 +1,59 @@
+package com.hmall.common.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 两级缓存（本地Caffeine + Redis）配置
+ */
+@Data
+@ConfigurationProperties(prefix = "hm.cache")
+public class TwoLevelCacheProperties {
+    /**
+     * 是否开启，关闭后@Cacheable等注解不生效
+     */
+    private boolean enabled = true;
+    /**
+     * Redis中key的前缀，完整的key为 前缀 + 缓存名 + : + 业务key
+     */
+    private String keyPrefix = "cache:";
+    /**
+     * 缓存null结果（防止缓存穿透）时Redis中的过期时间
+     */
+    private Duration nullValueTtl = Duration.ofMinutes(1);
+    /**
+     * 没有单独配置的缓存使用的默认配置
+     */
+    private Spec defaults = new Spec();
+    /**
+     * 按缓存名单独配置，例如 hm.cache.caches.item.ttl=30m
+     */
+    private Map<String, Spec> caches = new LinkedHashMap<>();
+
+    /**
+     * 取某个缓存的配置，没有单独配置时使用默认配置
+     */
+    public Spec spec(String name) {
+        return caches.getOrDefault(name, defaults);
+    }
+
+    @Data
+    public static class Spec {
+        /**
+         * Redis中的过期时间，实际过期时间会加上±10%的随机抖动，避免同一批key同时过期
+         */
+        private Duration ttl = Duration.ofMinutes(10);
+        /**
+         * 本地缓存的过期时间。广播失败或者消息延迟时，其它节点的本地缓存最多脏这么久，所以要比ttl短
+         */
+        private Duration localTtl = Duration.ofMinutes(1);
+        /**
+         * 本地缓存的最大条数，超过后按W-TinyLFU淘汰
+         */
+        private long maximumSize = 10000;
+    }
+}
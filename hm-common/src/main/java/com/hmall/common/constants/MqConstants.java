@@ -0,0 +1,22 @@
+package com.hmall.common.constants;
+
+/**
+ * 多个微服务共用的MQ常量
+ */
+public interface MqConstants {
+    /**
+     * 商品变更的广播交换机，item-service在商品修改/删除后发送商品id，
+     * 网关的每个实例都绑定一个匿名队列，收到后清理自己的响应缓存
+     */
+    String ITEM_CHANGE_EXCHANGE = "item.change.fanout";
+    /**
+     * token吊销的广播交换机，user-service在用户退出登录后发送被吊销token的id和过期时间，
+     * 网关的每个实例都绑定一个匿名队列，收到后加入自己的吊销列表（启动前错过的从Redis恢复，见RedisConstants）
+     */
+    String TOKEN_REVOKE_EXCHANGE = "token.revoke.fanout";
+    /**
+     * 两级缓存失效的广播交换机，节点修改缓存后发送缓存名和key，
+     * 使用了两级缓存的每个节点都绑定一个匿名队列，收到后清理自己的本地缓存
+     */
+    String CACHE_INVALIDATE_EXCHANGE = "cache.invalidate.fanout";
+}
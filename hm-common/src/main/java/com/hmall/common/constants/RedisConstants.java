@@ -0,0 +1,12 @@
+package com.hmall.common.constants;
+
+/**
+ * 多个微服务共用的Redis key
+ */
+public interface RedisConstants {
+    /**
+     * 已吊销token的有序集合，成员是token的id，分数是token的过期时间（毫秒），
+     * user-service在用户退出登录时写入，网关实例启动时从这里恢复本地的吊销列表
+     */
+    String REVOKED_TOKENS_KEY = "hm:token:revoked";
+}
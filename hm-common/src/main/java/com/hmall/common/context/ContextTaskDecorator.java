@@ -0,0 +1,14 @@
+package com.hmall.common.context;
+
+import org.springframework.core.task.TaskDecorator;
+
+/**
+ * Spring线程池的任务装饰器，让@Async和注入的ThreadPoolTaskExecutor执行的任务带上提交时的请求上下文
+ */
+public class ContextTaskDecorator implements TaskDecorator {
+
+    @Override
+    public Runnable decorate(Runnable runnable) {
+        return RequestContext.wrap(runnable);
+    }
+}
@@ -0,0 +1,102 @@
+package com.hmall.common.context;
+
+import com.hmall.common.metrics.RabbitListenerMetricsPostProcessor;
+import com.hmall.common.trace.Span;
+import org.aopalliance.aop.Advice;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.config.AbstractRabbitListenerContainerFactory;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+
+import java.util.List;
+
+/**
+ * 通过MQ消息头传递请求上下文
+ * 发送：MqConfig中的RabbitTemplate是TracingRabbitTemplate，发送时把当前上下文写进消息头并记录PRODUCER span；
+ * 接收：给所有监听容器工厂的advice链最外层加一个拦截器，处理消息前从消息头恢复上下文，处理完（包括重试）清除。
+ * 消息头中带上发送方span的id，接收时记录的CONSUMER span以它为父span，
+ * 按队列命名（匿名队列和指标一样按交换机命名，见RabbitListenerMetricsPostProcessor.queueName）。
+ */
+public class RabbitContextPropagation implements BeanPostProcessor {
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof AbstractRabbitListenerContainerFactory) {
+            AbstractRabbitListenerContainerFactory<?> factory = (AbstractRabbitListenerContainerFactory<?>) bean;
+            Advice[] existing = factory.getAdviceChain();
+            int length = existing == null ? 0 : existing.length;
+            Advice[] chain = new Advice[length + 1];
+            chain[0] = RESTORE_CONTEXT;
+            if (length > 0) {
+                System.arraycopy(existing, 0, chain, 1, length);
+            }
+            factory.setAdviceChain(chain);
+        }
+        return bean;
+    }
+
+    /**
+     * 把上下文写进消息头，spanId是发送方PRODUCER span的id
+     */
+    static void writeHeaders(MessageProperties properties, RequestContext context, String spanId) {
+        if (context.getUserId() != null) {
+            properties.setHeader(RequestContext.USER_HEADER, context.getUserId().toString());
+        }
+        properties.setHeader(RequestContext.TRACE_HEADER, context.getTraceId());
+        if (context.getDeadline() != null) {
+            properties.setHeader(RequestContext.DEADLINE_HEADER, context.getDeadline().toString());
+        }
+        properties.setHeader(RequestContext.SPAN_HEADER, spanId);
+    }
+
+    /**
+     * 拦截的是容器的 invokeListener(Channel, Object data)，data是Message或者批量消费时的List<Message>
+     */
+    private static final MethodInterceptor RESTORE_CONTEXT = (MethodInvocation invocation) -> {
+        Message message = findMessage(invocation.getArguments());
+        RequestContext previous = RequestContext.current();
+        Span span = null;
+        if (message != null) {
+            MessageProperties properties = message.getMessageProperties();
+            RequestContext context = RequestContext.of(
+                    header(properties, RequestContext.USER_HEADER),
+                    header(properties, RequestContext.TRACE_HEADER),
+                    header(properties, RequestContext.DEADLINE_HEADER));
+            span = Span.start(Span.Kind.CONSUMER, "consume " + RabbitListenerMetricsPostProcessor.queueName(properties),
+                    context.getTraceId(), null, header(properties, RequestContext.SPAN_HEADER));
+            RequestContext.set(context.withSpanId(span.getSpanId()));
+        }
+        try {
+            return invocation.proceed();
+        } catch (Throwable e) {
+            if (span != null) {
+                span.fail(e);
+            }
+            throw e;
+        } finally {
+            if (span != null) {
+                span.finish();
+            }
+            RequestContext.set(previous);
+        }
+    };
+
+    private static Message findMessage(Object[] arguments) {
+        for (Object argument : arguments) {
+            if (argument instanceof Message) {
+                return (Message) argument;
+            }
+            if (argument instanceof List && !((List<?>) argument).isEmpty() && ((List<?>) argument).get(0) instanceof Message) {
+                return (Message) ((List<?>) argument).get(0);
+            }
+        }
+        return null;
+    }
+
+    private static String header(MessageProperties properties, String name) {
+        Object value = properties.getHeader(name);
+        return value == null ? null : value.toString();
+    }
+}
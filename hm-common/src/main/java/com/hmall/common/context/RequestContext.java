@@ -0,0 +1,192 @@
+package com.hmall.common.context;
+
+import cn.hutool.core.util.IdUtil;
+import lombok.AccessLevel;
+import lombok.Getter;
+import org.slf4j.MDC;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 一次请求的上下文：登录用户、链路id、当前span的id、截止时间
+ * 保存在ThreadLocal中，由UserInfoInterceptor从请求头中取出；
+ * 切换线程时用 wrap 方法（或ContextTaskDecorator）带过去，Feign调用和MQ消息通过请求头/消息头传给下游。
+ * 对象本身不可变，修改时换成一个新对象，所以可以放心地在多个线程之间共享。
+ * 设置上下文时同时把链路id和span id放进日志的MDC（traceId、spanId），日志格式中用 %X{traceId} 输出。
+ * 另外带着本次请求内的计数器（比如同一个statement执行了多少次），换了span（新的请求/消息）时重新计数，
+ * 请求结束清除上下文时一起丢弃。
+ */
+@Getter
+public final class RequestContext {
+
+    public static final String USER_HEADER = "user-info";
+
+    public static final String TRACE_HEADER = "trace-id";
+
+    /**
+     * 调用方span的id，下游把它作为自己span的父id
+     */
+    public static final String SPAN_HEADER = "span-id";
+
+    public static final String MDC_TRACE_ID = "traceId";
+
+    public static final String MDC_SPAN_ID = "spanId";
+
+    /**
+     * 截止时间的毫秒值，下游可以据此判断调用方是否已经放弃等待
+     */
+    public static final String DEADLINE_HEADER = "x-deadline";
+
+    private static final ThreadLocal<RequestContext> HOLDER = new ThreadLocal<>();
+
+    private final Long userId;
+
+    private final String traceId;
+
+    /**
+     * 当前span的id，发起下游调用时作为父id传过去，可能为null
+     */
+    private final String spanId;
+
+    private final Long deadline;
+
+    @Getter(AccessLevel.NONE)
+    private final Map<String, AtomicInteger> counters;
+
+    public RequestContext(Long userId, String traceId, Long deadline) {
+        this(userId, traceId, null, deadline);
+    }
+
+    public RequestContext(Long userId, String traceId, String spanId, Long deadline) {
+        this(userId, traceId, spanId, deadline, new ConcurrentHashMap<>());
+    }
+
+    private RequestContext(Long userId, String traceId, String spanId, Long deadline, Map<String, AtomicInteger> counters) {
+        this.userId = userId;
+        this.traceId = traceId;
+        this.spanId = spanId;
+        this.deadline = deadline;
+        this.counters = counters;
+    }
+
+    /**
+     * 根据请求头/消息头中的值创建上下文，没有链路id时生成一个新的
+     */
+    public static RequestContext of(String userInfo, String traceId, String deadline) {
+        Long userId = null;
+        if (userInfo != null && !userInfo.isBlank()) {
+            userId = Long.valueOf(userInfo);
+        }
+        Long deadlineMillis = null;
+        if (deadline != null && !deadline.isBlank()) {
+            try {
+                deadlineMillis = Long.valueOf(deadline);
+            } catch (NumberFormatException ignored) {
+                // 格式不对就当作没有截止时间
+            }
+        }
+        return new RequestContext(userId,
+                traceId == null || traceId.isBlank() ? IdUtil.fastSimpleUUID() : traceId, deadlineMillis);
+    }
+
+    public RequestContext withUserId(Long userId) {
+        return new RequestContext(userId, traceId, spanId, deadline, counters);
+    }
+
+    /**
+     * 开始本服务的SERVER/CONSUMER span时调用，请求内的计数器从0开始
+     */
+    public RequestContext withSpanId(String spanId) {
+        return new RequestContext(userId, traceId, spanId, deadline);
+    }
+
+    /**
+     * 本次请求内的计数加1，返回加完之后的值；线程安全，上下文被带到其它线程时共用同一组计数
+     *
+     * @param key 计数的对象，只能来自有限集合，比如statement id
+     */
+    public int increment(String key) {
+        return counters.computeIfAbsent(key, k -> new AtomicInteger()).incrementAndGet();
+    }
+
+    /**
+     * 距离截止时间还剩多少毫秒，没有截止时间时返回Long.MAX_VALUE
+     */
+    public long remainingMillis() {
+        return deadline == null ? Long.MAX_VALUE : deadline - System.currentTimeMillis();
+    }
+
+    /**
+     * 当前线程的上下文，可能为null
+     */
+    public static RequestContext current() {
+        return HOLDER.get();
+    }
+
+    public static void set(RequestContext context) {
+        if (context == null) {
+            clear();
+            return;
+        }
+        HOLDER.set(context);
+        putMdc(MDC_TRACE_ID, context.traceId);
+        putMdc(MDC_SPAN_ID, context.spanId);
+    }
+
+    public static void clear() {
+        HOLDER.remove();
+        MDC.remove(MDC_TRACE_ID);
+        MDC.remove(MDC_SPAN_ID);
+    }
+
+    private static void putMdc(String key, String value) {
+        if (value == null) {
+            MDC.remove(key);
+        } else {
+            MDC.put(key, value);
+        }
+    }
+
+    /**
+     * 把当前线程的上下文带到task执行的线程中，执行完恢复那个线程原来的上下文
+     */
+    public static Runnable wrap(Runnable task) {
+        RequestContext captured = current();
+        return () -> {
+            RequestContext previous = current();
+            set(captured);
+            try {
+                task.run();
+            } finally {
+                set(previous);
+            }
+        };
+    }
+
+    /**
+     * 把当前线程的上下文带到task执行的线程中，执行完恢复那个线程原来的上下文
+     */
+    public static <T> Callable<T> wrap(Callable<T> task) {
+        RequestContext captured = current();
+        return () -> {
+            RequestContext previous = current();
+            set(captured);
+            try {
+                return task.call();
+            } finally {
+                set(previous);
+            }
+        };
+    }
+
+    /**
+     * 包装一个线程池，提交的任务都会带上提交时的上下文，用于CompletableFuture.supplyAsync(..., executor)等
+     */
+    public static Executor wrap(Executor executor) {
+        return task -> executor.execute(wrap(task));
+    }
+}
@@ -0,0 +1,39 @@
+package com.hmall.common.context;
+
+import com.hmall.common.trace.Span;
+import com.rabbitmq.client.Channel;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.lang.Nullable;
+
+/**
+ * 发送消息时把请求上下文（用户、链路id、截止时间）写进消息头，并记录一个PRODUCER span
+ * 所有发送方法最后都走doSend，span从这里开始，到消息写进channel（事务channel还包括提交）之后结束，
+ * 消费方把它作为CONSUMER span的父span，CONSUMER开始时间减去PRODUCER结束时间就是消息在MQ中等待的时间。
+ * publisher confirm的回执是异步的，不算在span里。
+ */
+public class TracingRabbitTemplate extends RabbitTemplate {
+
+    @Override
+    public void doSend(Channel channel, String exchange, String routingKey, Message message,
+                       boolean mandatory, @Nullable CorrelationData correlationData) {
+        RequestContext context = RequestContext.current();
+        if (context == null) {
+            super.doSend(channel, exchange, routingKey, message, mandatory, correlationData);
+            return;
+        }
+        Span span = Span.start(Span.Kind.PRODUCER, "publish " + (exchange == null ? getExchange() : exchange)
+                        + "/" + (routingKey == null ? getRoutingKey() : routingKey),
+                context.getTraceId(), null, context.getSpanId());
+        RabbitContextPropagation.writeHeaders(message.getMessageProperties(), context, span.getSpanId());
+        try {
+            super.doSend(channel, exchange, routingKey, message, mandatory, correlationData);
+        } catch (RuntimeException e) {
+            span.fail(e);
+            throw e;
+        } finally {
+            span.finish();
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.hmall.common.domain;
+
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * 指定了总条数统计方式的分页对象，由 {@link PageQuery#toMpPage(String, boolean, CountStrategy)} 创建
+ * 分页拦截器按countStrategy决定是执行COUNT(*)、读缓存还是估算，并把结果是否准确记在totalExact里。
+ */
+@Getter
+@Setter
+public class CountPage<T> extends Page<T> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final CountStrategy countStrategy;
+
+    /**
+     * total是否是本次COUNT(*)得到的准确值
+     */
+    private boolean totalExact = true;
+
+    public CountPage(long current, long size, CountStrategy countStrategy) {
+        super(current, size);
+        this.countStrategy = countStrategy;
+    }
+}
@@ -0,0 +1,19 @@
+package com.hmall.common.domain;
+
+/**
+ * 分页查询总条数的统计方式
+ */
+public enum CountStrategy {
+    /**
+     * 每次都执行COUNT(*)，总数准确
+     */
+    EXACT,
+    /**
+     * COUNT(*)的结果按 (SQL, 查询参数) 缓存一段时间（hm.page-count.cache-ttl），过期前总数可能不是最新的
+     */
+    CACHED,
+    /**
+     * 不执行COUNT(*)，用EXPLAIN从表的统计信息估算行数，适合不带过滤条件或过滤条件走索引的大表
+     */
+    ESTIMATED
+}
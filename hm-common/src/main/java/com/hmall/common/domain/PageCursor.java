@@ -0,0 +1,128 @@
+package com.hmall.common.domain;
+
+import com.hmall.common.exception.BadRequestException;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * 游标分页的游标：上一页最后一条记录的排序字段值 + id
+ * 对前端是不透明的字符串（base64url），前端只需要把上一页返回的nextCursor原样传回来。
+ * 编码格式为 id|类型|排序字段值，类型用来在解码时还原排序字段的Java类型，
+ * 这样拼到SQL里的参数和列类型一致，不会因为隐式类型转换用不上索引。
+ * 排序字段可以为null（类型N，值为空），SeekPage按MySQL中NULL最小的规则接着翻页。
+ */
+@Getter
+public class PageCursor {
+
+    private static final char SEPARATOR = '|';
+
+    private static final char TYPE_DATE_TIME = 'T';
+    private static final char TYPE_LONG = 'L';
+    private static final char TYPE_DECIMAL = 'D';
+    private static final char TYPE_STRING = 'S';
+    private static final char TYPE_NULL = 'N';
+
+    /**
+     * 上一页最后一条记录的排序字段值，可能为null
+     */
+    private final Object sortValue;
+    /**
+     * 上一页最后一条记录的id
+     */
+    private final Long id;
+
+    public PageCursor(Object sortValue, Long id) {
+        if (id == null) {
+            throw new IllegalArgumentException("游标的id不能为null");
+        }
+        this.sortValue = sortValue;
+        this.id = id;
+    }
+
+    /**
+     * 编码成前端使用的游标字符串
+     */
+    public String encode() {
+        String raw = id + String.valueOf(SEPARATOR) + type(sortValue) + SEPARATOR + format(sortValue);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解析前端传来的游标字符串
+     *
+     * @param cursor 游标字符串
+     * @return 游标，格式不对时抛出BadRequestException
+     */
+    public static PageCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int first = raw.indexOf(SEPARATOR);
+            if (first < 0 || raw.length() < first + 3 || raw.charAt(first + 2) != SEPARATOR) {
+                throw new BadRequestException("分页游标格式错误");
+            }
+            Long id = Long.valueOf(raw.substring(0, first));
+            String value = raw.substring(first + 3);
+            return new PageCursor(parse(raw.charAt(first + 1), value), id);
+        } catch (BadRequestException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            throw new BadRequestException("分页游标格式错误", e);
+        }
+    }
+
+    private static char type(Object value) {
+        if (value == null) {
+            return TYPE_NULL;
+        }
+        if (value instanceof LocalDateTime) {
+            return TYPE_DATE_TIME;
+        }
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return TYPE_LONG;
+        }
+        if (value instanceof BigDecimal || value instanceof Double || value instanceof Float) {
+            return TYPE_DECIMAL;
+        }
+        if (value instanceof String) {
+            return TYPE_STRING;
+        }
+        throw new IllegalArgumentException("不支持的游标排序字段类型: " + value.getClass().getName());
+    }
+
+    private static String format(Object value) {
+        if (value == null) {
+            return "";
+        }
+        if (value instanceof Double || value instanceof Float) {
+            return new BigDecimal(value.toString()).toPlainString();
+        }
+        if (value instanceof BigDecimal) {
+            return ((BigDecimal) value).toPlainString();
+        }
+        return value.toString();
+    }
+
+    private static Object parse(char type, String value) {
+        switch (type) {
+            case TYPE_DATE_TIME:
+                return LocalDateTime.parse(value);
+            case TYPE_LONG:
+                return Long.valueOf(value);
+            case TYPE_DECIMAL:
+                return new BigDecimal(value);
+            case TYPE_STRING:
+                return value;
+            case TYPE_NULL:
+                if (!value.isEmpty()) {
+                    throw new BadRequestException("分页游标格式错误");
+                }
+                return null;
+            default:
+                throw new BadRequestException("分页游标格式错误");
+        }
+    }
+}
@@ -5,7 +5,6 @@ import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.hmall.common.utils.BeanUtils;
 import com.hmall.common.utils.CollUtils;
 import com.hmall.common.utils.Convert;
-import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
@@ -15,18 +14,37 @@ import java.util.stream.Collectors;
 
 @Data
 @NoArgsConstructor
-@AllArgsConstructor
 public class PageDTO<T> {
     protected Long total;
     protected Long pages;
     protected List<T> list;
+    /**
+     * 游标分页时下一页的游标，没有下一页或不是游标分页时为null；游标分页不查总数，total和pages为null
+     */
+    protected String nextCursor;
+    /**
+     * total是否准确，使用缓存或估算的总条数时为false，游标分页时为null
+     */
+    protected Boolean totalExact;
+
+    public PageDTO(Long total, Long pages, List<T> list) {
+        this.total = total;
+        this.pages = pages;
+        this.list = list;
+        this.totalExact = true;
+    }
+
+    private PageDTO(Page<?> page, List<T> list) {
+        this(page.getTotal(), page.getPages(), list);
+        this.totalExact = !(page instanceof CountPage) || ((CountPage<?>) page).isTotalExact();
+    }
 
     public static <T> PageDTO<T> empty(Long total, Long pages) {
         return new PageDTO<>(total, pages, CollUtils.emptyList());
     }
 
     public static <T> PageDTO<T> empty(Page<?> page) {
-        return new PageDTO<>(page.getTotal(), page.getPages(), CollUtils.emptyList());
+        return new PageDTO<>(page, CollUtils.emptyList());
     }
 
     public static <T> PageDTO<T> of(Page<T> page) {
@@ -36,7 +54,7 @@ public class PageDTO<T> {
         if (CollUtils.isEmpty(page.getRecords())) {
             return empty(page);
         }
-        return new PageDTO<>(page.getTotal(), page.getPages(), page.getRecords());
+        return new PageDTO<>(page, page.getRecords());
     }
 
     public static <T, R> PageDTO<T> of(Page<R> page, Function<R, T> mapper) {
@@ -46,16 +64,16 @@ public class PageDTO<T> {
         if (CollUtils.isEmpty(page.getRecords())) {
             return empty(page);
         }
-        return new PageDTO<>(page.getTotal(), page.getPages(),
+        return new PageDTO<>(page,
                 page.getRecords().stream().map(mapper).collect(Collectors.toList()));
     }
 
     public static <T> PageDTO<T> of(Page<?> page, List<T> list) {
-        return new PageDTO<>(page.getTotal(), page.getPages(), list);
+        return new PageDTO<>(page, list);
     }
 
     public static <T, R> PageDTO<T> of(Page<R> page, Class<T> clazz) {
-        return new PageDTO<>(page.getTotal(), page.getPages(), BeanUtils.copyList(page.getRecords(), clazz));
+        return new PageDTO<>(page, BeanUtils.copyList(page.getRecords(), clazz));
     }
 
     public static <T> PageDTO<T> of(long total, long pages, List<T> list) {
@@ -63,10 +81,25 @@ public class PageDTO<T> {
         dto.setTotal(total);
         dto.setPages(pages);
         dto.setList(list);
+        dto.setTotalExact(true);
         return dto;
     }
 
     public static <T, R> PageDTO<T> of(Page<R> page, Class<T> clazz, Convert<R, T> convert) {
-        return new PageDTO<>(page.getTotal(), page.getPages(), BeanUtils.copyList(page.getRecords(), clazz, convert));
+        return new PageDTO<>(page, BeanUtils.copyList(page.getRecords(), clazz, convert));
+    }
+
+    /**
+     * 游标分页的结果
+     *
+     * @param page    游标分页条件
+     * @param records page.apply后的查询结果
+     * @param clazz   返回的DTO类型
+     */
+    public static <T, R> PageDTO<T> of(SeekPage<R> page, List<R> records, Class<T> clazz) {
+        PageDTO<T> dto = new PageDTO<>();
+        dto.setList(CollUtils.isEmpty(records) ? CollUtils.emptyList() : BeanUtils.copyList(page.trim(records), clazz));
+        dto.setNextCursor(page.nextCursor(records));
+        return dto;
     }
 }
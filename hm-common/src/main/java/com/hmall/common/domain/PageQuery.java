@@ -3,6 +3,7 @@ package com.hmall.common.domain;
 import cn.hutool.core.util.StrUtil;
 import com.baomidou.mybatisplus.core.metadata.OrderItem;
 import com.baomidou.mybatisplus.core.toolkit.StringUtils;
+import com.baomidou.mybatisplus.core.toolkit.support.SFunction;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import io.swagger.annotations.ApiModel;
 import io.swagger.annotations.ApiModelProperty;
@@ -27,6 +28,8 @@ public class PageQuery {
     private Boolean isAsc = true;
     @ApiModelProperty("排序方式")
     private String sortBy;
+    @ApiModelProperty("分页游标，传了就按游标翻页：第一页传空字符串，之后传上一页返回的nextCursor")
+    private String cursor;
 
     public int from(){
         return (pageNo - 1) * pageSize;
@@ -52,11 +55,21 @@ public class PageQuery {
     }
 
     public <T> Page<T> toMpPage(String defaultSortBy, boolean isAsc) {
+        return toMpPage(defaultSortBy, isAsc, CountStrategy.EXACT);
+    }
+
+    /**
+     * 转换成分页对象，并指定总条数的统计方式
+     *
+     * @param countStrategy 总条数统计方式，EXACT时和原来一样每次COUNT(*)
+     */
+    public <T> Page<T> toMpPage(String defaultSortBy, boolean isAsc, CountStrategy countStrategy) {
         if (StringUtils.isBlank(sortBy)){
             sortBy = defaultSortBy;
             this.isAsc = isAsc;
         }
-        Page<T> page = new Page<>(pageNo, pageSize);
+        Page<T> page = countStrategy == CountStrategy.EXACT
+                ? new Page<>(pageNo, pageSize) : new CountPage<>(pageNo, pageSize, countStrategy);
         OrderItem orderItem = new OrderItem();
         orderItem.setAsc(this.isAsc);
         orderItem.setColumn(sortBy);
@@ -66,4 +79,23 @@ public class PageQuery {
     public <T> Page<T> toMpPageDefaultSortByCreateTimeDesc() {
         return toMpPage("create_time", false);
     }
+
+    /**
+     * 是否按游标翻页，请求里带了cursor参数（第一页为空字符串）就是游标分页
+     */
+    public boolean useCursor() {
+        return cursor != null;
+    }
+
+    /**
+     * 转换成游标分页条件，排序字段由接口指定（需要有 (排序字段, id) 的联合索引），忽略sortBy和pageNo
+     *
+     * @param sortColumn 排序字段，必须非空
+     * @param idColumn   id字段
+     * @param isAsc      是否升序
+     */
+    public <T> SeekPage<T> toSeekPage(SFunction<T, ?> sortColumn, SFunction<T, Long> idColumn, boolean isAsc) {
+        PageCursor pageCursor = StrUtil.isBlank(cursor) ? null : PageCursor.decode(cursor);
+        return new SeekPage<>(sortColumn, idColumn, isAsc, pageSize, pageCursor);
+    }
 }
@@ -0,0 +1,22 @@
+package com.hmall.common.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 被吊销的token，user-service通过MQ广播给网关
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RevokedToken {
+    /**
+     * token的id，即jwt中的jti
+     */
+    private String tokenId;
+    /**
+     * token的过期时间的毫秒值，过期后就不用再记着它了
+     */
+    private Long expiresAt;
+}
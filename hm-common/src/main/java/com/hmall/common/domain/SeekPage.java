@@ -0,0 +1,95 @@
+package com.hmall.common.domain;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.toolkit.support.SFunction;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * 游标分页（seek）条件，由 {@link PageQuery#toSeekPage} 创建
+ * OFFSET分页越往后翻，数据库要扫描并丢弃的行越多，还要额外跑一次COUNT(*)。
+ * 游标分页把“第几页”换成“上一页最后一条记录之后”，查询变成
+ * WHERE (sort < ? OR sort = ? AND id < ?) ORDER BY sort, id LIMIT size+1，
+ * 只要有 (排序字段, id) 的联合索引，翻到多深每页的代价都一样，也不查总条数。
+ * id作为第二排序字段保证顺序稳定。排序字段最好非空：允许为null时按MySQL的规则NULL最小
+ * （升序排在最前，降序排在最后），游标条件要多带一个 IS NULL 分支。
+ */
+@Getter
+public class SeekPage<T> {
+
+    private final SFunction<T, ?> sortColumn;
+    private final SFunction<T, Long> idColumn;
+    private final boolean asc;
+    private final int size;
+    /**
+     * 上一页的游标，第一页为null
+     */
+    private final PageCursor cursor;
+
+    SeekPage(SFunction<T, ?> sortColumn, SFunction<T, Long> idColumn, boolean asc, int size, PageCursor cursor) {
+        this.sortColumn = sortColumn;
+        this.idColumn = idColumn;
+        this.asc = asc;
+        this.size = size;
+        this.cursor = cursor;
+    }
+
+    /**
+     * 给查询条件加上游标条件、排序和limit
+     * 多查一条用来判断是否还有下一页。
+     *
+     * @param wrapper 业务查询条件
+     * @return wrapper本身
+     */
+    public LambdaQueryWrapper<T> apply(LambdaQueryWrapper<T> wrapper) {
+        if (cursor != null) {
+            Object sortValue = cursor.getSortValue();
+            Long id = cursor.getId();
+            if (sortValue == null) {
+                if (asc) {
+                    // 同为NULL的接着按id翻，然后是所有非NULL的记录
+                    wrapper.and(w -> w.isNull(sortColumn).gt(idColumn, id).or().isNotNull(sortColumn));
+                } else {
+                    // NULL已经排在最后，只剩同为NULL的
+                    wrapper.and(w -> w.isNull(sortColumn).lt(idColumn, id));
+                }
+            } else if (asc) {
+                wrapper.and(w -> w.gt(sortColumn, sortValue).or().eq(sortColumn, sortValue).gt(idColumn, id));
+            } else {
+                // 降序时NULL排在所有非NULL之后
+                wrapper.and(w -> w.lt(sortColumn, sortValue).or().eq(sortColumn, sortValue).lt(idColumn, id)
+                        .or().isNull(sortColumn));
+            }
+        }
+        if (asc) {
+            wrapper.orderByAsc(sortColumn).orderByAsc(idColumn);
+        } else {
+            wrapper.orderByDesc(sortColumn).orderByDesc(idColumn);
+        }
+        return wrapper.last("limit " + (size + 1));
+    }
+
+    /**
+     * 根据查询结果生成下一页的游标，没有下一页时返回null
+     *
+     * @param records apply后的查询结果，最多size+1条
+     */
+    public String nextCursor(List<T> records) {
+        if (records == null || records.size() <= size) {
+            return null;
+        }
+        T last = records.get(size - 1);
+        return new PageCursor(sortColumn.apply(last), idColumn.apply(last)).encode();
+    }
+
+    /**
+     * 去掉用来判断下一页的那一条
+     */
+    public List<T> trim(List<T> records) {
+        if (records == null || records.size() <= size) {
+            return records;
+        }
+        return records.subList(0, size);
+    }
+}
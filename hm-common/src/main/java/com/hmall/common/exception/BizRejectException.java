@@ -0,0 +1,18 @@
+package com.hmall.common.exception;
+
+import lombok.Getter;
+
+/**
+ * 预期内的业务拒绝，不填充堆栈，通过 {@link ErrorCode#exception()} 获取共享实例
+ * 不要用它包装其它异常，非预期的异常仍然使用带堆栈的BizIllegalException等。
+ */
+@Getter
+public class BizRejectException extends CommonException {
+
+    private final ErrorCode errorCode;
+
+    BizRejectException(ErrorCode errorCode) {
+        super(errorCode.getMsg(), errorCode.getCode(), false);
+        this.errorCode = errorCode;
+    }
+}
@@ -20,4 +20,12 @@ public class CommonException extends RuntimeException{
         super(cause);
         this.code = code;
     }
+
+    /**
+     * writableStackTrace为false时不填充堆栈，用于高频抛出的、预期内的业务异常
+     */
+    protected CommonException(String message, int code, boolean writableStackTrace) {
+        super(message, null, false, writableStackTrace);
+        this.code = code;
+    }
 }
@@ -0,0 +1,76 @@
+package com.hmall.common.exception;
+
+import com.hmall.common.domain.R;
+import com.hmall.common.utils.JsonUtils;
+import lombok.Getter;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 预期内的业务错误（库存不足、订单已支付等），常用的定义在 {@link ErrorCodes}
+ * 每个错误码在注册时就把响应体序列化好，并持有一个共享的、不带堆栈的异常对象，
+ * 抢购时大量请求被拒绝也不会反复填充堆栈、反复构造和序列化R。
+ * 同一个错误码的日志按 LOG_INTERVAL 限流，每个周期只打印一次并带上期间被省略的次数。
+ */
+public final class ErrorCode {
+
+    private static final Map<String, ErrorCode> REGISTRY = new ConcurrentHashMap<>();
+
+    private static final long LOG_INTERVAL = TimeUnit.SECONDS.toNanos(10);
+
+    /**
+     * http状态码，同时也是响应体中的code
+     */
+    @Getter
+    private final int code;
+    @Getter
+    private final String msg;
+    /**
+     * 预先序列化好的响应体，即R.error(code, msg)的JSON
+     */
+    @Getter
+    private final byte[] body;
+
+    private final BizRejectException exception;
+
+    private final AtomicLong nextLogTime = new AtomicLong(System.nanoTime());
+    private final LongAdder suppressed = new LongAdder();
+
+    private ErrorCode(int code, String msg) {
+        this.code = code;
+        this.msg = msg;
+        this.body = JsonUtils.toBytes(R.error(code, msg));
+        this.exception = new BizRejectException(this);
+    }
+
+    /**
+     * 注册错误码，相同的 (code, msg) 返回同一个对象
+     */
+    public static ErrorCode of(int code, String msg) {
+        return REGISTRY.computeIfAbsent(code + ":" + msg, k -> new ErrorCode(code, msg));
+    }
+
+    /**
+     * 不带堆栈的共享异常对象，可以直接throw
+     */
+    public BizRejectException exception() {
+        return exception;
+    }
+
+    /**
+     * 日志限流，本周期还没打印过时返回上个周期内被省略的次数，否则返回-1
+     */
+    public long tryLog() {
+        long now = System.nanoTime();
+        long next = nextLogTime.get();
+        if (now - next >= 0 && nextLogTime.compareAndSet(next, now + LOG_INTERVAL)) {
+            return suppressed.sumThenReset();
+        }
+        suppressed.increment();
+        return -1;
+    }
+}
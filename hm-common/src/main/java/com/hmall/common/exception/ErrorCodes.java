@@ -0,0 +1,13 @@
+package com.hmall.common.exception;
+
+/**
+ * 抢购等高频场景下的预期业务错误
+ */
+public interface ErrorCodes {
+    ErrorCode STOCK_NOT_ENOUGH = ErrorCode.of(500, "库存不足！");
+    ErrorCode ITEM_NOT_FOUND = ErrorCode.of(400, "商品不存在");
+    ErrorCode CART_FULL = ErrorCode.of(500, "用户购物车课程不能超过10");
+    ErrorCode TRADE_PAID_OR_CLOSED = ErrorCode.of(500, "交易已支付或关闭！");
+    ErrorCode ORDER_PAID = ErrorCode.of(500, "订单已经支付！");
+    ErrorCode ORDER_CLOSED = ErrorCode.of(500, "订单已关闭");
+}
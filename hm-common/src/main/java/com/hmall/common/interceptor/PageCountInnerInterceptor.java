@@ -0,0 +1,100 @@
+package com.hmall.common.interceptor;
+
+import com.baomidou.mybatisplus.annotation.DbType;
+import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.baomidou.mybatisplus.core.toolkit.ParameterUtils;
+import com.baomidou.mybatisplus.extension.plugins.inner.PaginationInnerInterceptor;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.hmall.common.config.PageCountProperties;
+import com.hmall.common.domain.CountPage;
+import com.hmall.common.domain.CountStrategy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * 支持多种总条数统计方式的分页拦截器
+ * 默认的分页拦截器每次分页都会多执行一次COUNT(*)，大表上COUNT(*)往往比查一页数据还慢。
+ * 分页对象是 {@link CountPage} 时按它的countStrategy处理：
+ * CACHED：以MyBatis的CacheKey（statement + SQL + 参数值，即规范化后的查询条件）缓存COUNT(*)结果；
+ * ESTIMATED：执行 EXPLAIN 查询语句，用优化器根据表统计信息估算的行数（rows * filtered%）作为总数，
+ * 估算失败时退回COUNT(*)。
+ * 这两种方式得到的总数不精确（totalExact=false），不能据此判断"没有数据"或"页码越界"而跳过查询，
+ * 分页查询总是执行，由查询结果决定这一页有没有数据。
+ * 普通的Page和EXACT仍然走原来的逻辑。
+ */
+@Slf4j
+public class PageCountInnerInterceptor extends PaginationInnerInterceptor {
+
+    private final Cache<CacheKey, Long> counts;
+
+    public PageCountInnerInterceptor(DbType dbType, PageCountProperties properties) {
+        super(dbType);
+        this.counts = Caffeine.newBuilder()
+                .expireAfterWrite(properties.getCacheTtl())
+                .maximumSize(properties.getMaximumSize())
+                .build();
+    }
+
+    @Override
+    public boolean willDoQuery(Executor executor, MappedStatement ms, Object parameter, RowBounds rowBounds,
+                               ResultHandler resultHandler, BoundSql boundSql) throws SQLException {
+        IPage<?> page = ParameterUtils.findPage(parameter).orElse(null);
+        if (!(page instanceof CountPage) || page.getSize() < 0 || !page.searchCount()) {
+            return super.willDoQuery(executor, ms, parameter, rowBounds, resultHandler, boundSql);
+        }
+        CountPage<?> countPage = (CountPage<?>) page;
+        if (countPage.getCountStrategy() == CountStrategy.CACHED) {
+            CacheKey key = executor.createCacheKey(ms, parameter, RowBounds.DEFAULT, boundSql);
+            Long total = counts.getIfPresent(key);
+            if (total != null) {
+                countPage.setTotal(total);
+                countPage.setTotalExact(false);
+                return true;
+            }
+            boolean next = super.willDoQuery(executor, ms, parameter, rowBounds, resultHandler, boundSql);
+            counts.put(key, countPage.getTotal());
+            return next;
+        }
+        if (countPage.getCountStrategy() == CountStrategy.ESTIMATED) {
+            Long total = estimate(executor, ms, parameter, boundSql);
+            if (total != null) {
+                countPage.setTotal(total);
+                countPage.setTotalExact(false);
+                return true;
+            }
+        }
+        return super.willDoQuery(executor, ms, parameter, rowBounds, resultHandler, boundSql);
+    }
+
+    /**
+     * 用EXPLAIN估算查询结果的行数，取驱动表（第一行）的 rows * filtered%，失败时返回null
+     */
+    private Long estimate(Executor executor, MappedStatement ms, Object parameter, BoundSql boundSql) {
+        // 连接由事务管理，这里不能关闭
+        try (PreparedStatement statement = executor.getTransaction().getConnection()
+                .prepareStatement("EXPLAIN " + boundSql.getSql())) {
+            ms.getConfiguration().newParameterHandler(ms, parameter, boundSql).setParameters(statement);
+            try (ResultSet rs = statement.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                long rows = rs.getLong("rows");
+                double filtered = rs.getDouble("filtered");
+                return Math.max(0L, Math.round(rows * filtered / 100));
+            }
+        } catch (SQLException e) {
+            log.debug("估算分页总条数失败，改为COUNT(*)，statement: {}", ms.getId(), e);
+            return null;
+        }
+    }
+}
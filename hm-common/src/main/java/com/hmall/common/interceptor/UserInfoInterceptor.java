@@ -1,37 +1,63 @@
 package com.hmall.common.interceptor;
 
-import cn.hutool.core.util.StrUtil;
-import com.hmall.common.utils.UserContext;
+import com.hmall.common.context.RequestContext;
+import com.hmall.common.trace.Span;
 import org.springframework.lang.Nullable;
 import org.springframework.web.servlet.HandlerInterceptor;
-import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.servlet.HandlerMapping;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 /**
  * 这是springMVC的拦截器，是网关转发路由的下一层(一定是),也是openFeign发起调用首先经过的地方
- * 这个拦截器只做一件事：获取当前登录用户的信息并存入ThreadLocal,不做任何的拦截，只管放行就好
+ * 这个拦截器只做一件事：获取当前登录用户的信息（以及链路id、截止时间）并存入ThreadLocal,不做任何的拦截，只管放行就好
  * request头->threadLocal
  * 只要有请求发往微服务，就一定会经过这个拦截器（openFeign发起的也算）
+ * 同时记录一个SERVER span，父span是请求头中调用方的span（网关或者Feign调用）
  */
 public class UserInfoInterceptor implements HandlerInterceptor {
 
+    private static final String SPAN_ATTRIBUTE = UserInfoInterceptor.class.getName() + ".span";
+
     @Override
     public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
-        //获取登录用户（从request的请求头中取）
-        String userInfo = request.getHeader("user-info");
-        if (!StrUtil.isNotBlank(userInfo)) {
-            return true;
-        }
-        //存入threadLocal中
-        UserContext.setUser(Long.valueOf(userInfo));
+        //从request的请求头中取出登录用户、链路id、截止时间，存入threadLocal中
+        RequestContext context = RequestContext.of(
+                request.getHeader(RequestContext.USER_HEADER),
+                request.getHeader(RequestContext.TRACE_HEADER),
+                request.getHeader(RequestContext.DEADLINE_HEADER));
+        Span span = Span.start(Span.Kind.SERVER, spanName(request), context.getTraceId(), null,
+                request.getHeader(RequestContext.SPAN_HEADER));
+        request.setAttribute(SPAN_ATTRIBUTE, span);
+        RequestContext.set(context.withSpanId(span.getSpanId()));
         return true;
     }
 
     @Override
-    public void postHandle(HttpServletRequest request, HttpServletResponse response, Object handler, @Nullable ModelAndView modelAndView) throws Exception {
-        //移除threadLocal中的用户数据
-        UserContext.removeUser();
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, @Nullable Exception ex) throws Exception {
+        Object span = request.getAttribute(SPAN_ATTRIBUTE);
+        if (span instanceof Span) {
+            finish((Span) span, response, ex);
+        }
+        //请求结束（包括抛出异常时）移除threadLocal中的数据，postHandle在抛异常时不会执行
+        RequestContext.clear();
+    }
+
+    private static void finish(Span span, HttpServletResponse response, @Nullable Exception ex) {
+        if (ex != null) {
+            span.fail(ex);
+        } else if (response.getStatus() >= 500) {
+            span.fail("HTTP_" + response.getStatus());
+        }
+        span.finish();
+    }
+
+    /**
+     * 用匹配到的路径模板命名（/items/{id}），同一个接口的span才能汇总到一起
+     */
+    private static String spanName(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return request.getMethod() + " " + (pattern == null ? request.getRequestURI() : pattern);
     }
 }
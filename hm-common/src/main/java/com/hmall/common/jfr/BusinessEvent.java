@@ -0,0 +1,91 @@
+package com.hmall.common.jfr;
+
+import com.hmall.common.context.RequestContext;
+import com.hmall.common.exception.CommonException;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+
+/**
+ * 业务操作的JFR事件的父类
+ * 各服务在自己的jfr包中继承它定义具体的事件（带上订单id、商品数等业务字段），
+ * 事件的category第一级都是 {@link #CATEGORY}，JfrAnalyzer据此找出业务事件。
+ * 用法：
+ * <pre>
+ * OrderCreateEvent event = new OrderCreateEvent();
+ * event.start();
+ * try {
+ *     ...
+ * } catch (RuntimeException e) {
+ *     event.fail(e);
+ *     throw e;
+ * } finally {
+ *     event.finish();
+ * }
+ * </pre>
+ * 没有在录制时begin/commit几乎没有开销，不需要额外判断。
+ */
+@Category(BusinessEvent.CATEGORY)
+@StackTrace(false)
+public abstract class BusinessEvent extends Event {
+
+    public static final String CATEGORY = "Hmall";
+
+    public static final String SUCCESS = "success";
+
+    @Label("链路id")
+    protected String traceId;
+
+    @Label("用户id")
+    protected long userId;
+
+    @Label("结果")
+    @Description("成功为success，失败为异常类型，业务异常带上错误码")
+    protected String outcome;
+
+    /**
+     * 开始计时，同时记下当前请求的链路id和用户
+     */
+    public void start() {
+        if (isEnabled()) {
+            RequestContext context = RequestContext.current();
+            if (context != null) {
+                traceId = context.getTraceId();
+                if (context.getUserId() != null) {
+                    userId = context.getUserId();
+                }
+            }
+        }
+        begin();
+    }
+
+    /**
+     * 标记为失败
+     */
+    public void fail(Throwable e) {
+        if (e instanceof CommonException) {
+            outcome = e.getClass().getSimpleName() + ":" + ((CommonException) e).getCode();
+        } else {
+            outcome = e.getClass().getSimpleName();
+        }
+    }
+
+    /**
+     * 标记为失败，reason为失败原因，例如HTTP_500
+     */
+    public void fail(String reason) {
+        outcome = reason;
+    }
+
+    /**
+     * 结束计时并提交，没有调用过fail的算成功
+     */
+    public void finish() {
+        if (outcome == null) {
+            outcome = SUCCESS;
+        }
+        commit();
+    }
+}
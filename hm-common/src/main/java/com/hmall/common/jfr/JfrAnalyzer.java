@@ -0,0 +1,269 @@
+package com.hmall.common.jfr;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedThread;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 把JFR录制文件整理成按业务操作的耗时分解
+ * 用法：java -cp hm-common.jar com.hmall.common.jfr.JfrAnalyzer recording.jfr
+ * 对每种业务事件（category第一级为Hmall，事件有operation字段时按 事件名 + operation 区分）输出次数、失败数、
+ * 耗时分位数，以及平均每次的时间花在哪里：
+ * 嵌套的业务事件（如createOrder中的Feign调用，按名字列出）、其余的网络读写（JDBC、Redis、ES等）、
+ * 锁等待（synchronized和LockSupport.park），剩下的算作自身耗时。
+ * 只统计同一个线程上、完全落在事件时间范围内的子事件。JFR默认只记录超过阈值的网络读写和锁等待，
+ * 要得到完整的分解，录制时把 jdk.SocketRead、jdk.SocketWrite、jdk.JavaMonitorEnter、jdk.ThreadPark 的threshold设为0。
+ */
+public final class JfrAnalyzer {
+
+    private static final String OPERATION_FIELD = "operation";
+    private static final String OUTCOME_FIELD = "outcome";
+
+    private static final Set<String> IO_EVENTS = Set.of("jdk.SocketRead", "jdk.SocketWrite");
+    private static final Set<String> WAIT_EVENTS = Set.of("jdk.JavaMonitorEnter", "jdk.ThreadPark");
+
+    private JfrAnalyzer() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("用法: java -cp hm-common.jar " + JfrAnalyzer.class.getName() + " <recording.jfr>");
+            System.exit(2);
+        }
+        analyze(Paths.get(args[0])).print(System.out);
+    }
+
+    /**
+     * 读取录制文件并统计
+     */
+    public static Report analyze(Path file) throws IOException {
+        Map<Long, List<Span>> threads = new HashMap<>();
+        try (RecordingFile recording = new RecordingFile(file)) {
+            while (recording.hasMoreEvents()) {
+                Span span = Span.of(recording.readEvent());
+                if (span != null) {
+                    threads.computeIfAbsent(span.threadId, k -> new ArrayList<>()).add(span);
+                }
+            }
+        }
+        Report report = new Report();
+        for (List<Span> spans : threads.values()) {
+            // 开始时间相同时长的在前，保证父事件排在子事件前面
+            spans.sort(Comparator.comparingLong((Span s) -> s.start).thenComparing(s -> -s.end));
+            for (int i = 0; i < spans.size(); i++) {
+                Span span = spans.get(i);
+                if (span.kind == Kind.BUSINESS) {
+                    report.add(span, breakdown(spans, i));
+                }
+            }
+        }
+        return report;
+    }
+
+    /**
+     * 统计第index个事件的时间分解
+     */
+    private static Breakdown breakdown(List<Span> spans, int index) {
+        Span parent = spans.get(index);
+        Breakdown breakdown = new Breakdown();
+        long coveredUntil = Long.MIN_VALUE;     //上一个直接子业务事件的结束时间，落在它里面的事件算它的
+        for (int i = index + 1; i < spans.size(); i++) {
+            Span child = spans.get(i);
+            if (child.start >= parent.end) {
+                break;
+            }
+            if (child.end > parent.end || child.start < coveredUntil) {
+                continue;
+            }
+            switch (child.kind) {
+                case BUSINESS:
+                    breakdown.children.merge(child.name, child.duration(), Long::sum);
+                    breakdown.nested += child.duration();
+                    coveredUntil = child.end;
+                    break;
+                case IO:
+                    breakdown.io += child.duration();
+                    break;
+                case WAIT:
+                    breakdown.wait += child.duration();
+                    break;
+                default:
+                    break;
+            }
+        }
+        return breakdown;
+    }
+
+    private enum Kind {
+        BUSINESS, IO, WAIT
+    }
+
+    /**
+     * 一个事件，时间是纳秒
+     */
+    private static final class Span {
+        private final Kind kind;
+        private final String name;
+        private final boolean failed;
+        private final long threadId;
+        private final long start;
+        private final long end;
+
+        private Span(Kind kind, String name, boolean failed, long threadId, long start, long end) {
+            this.kind = kind;
+            this.name = name;
+            this.failed = failed;
+            this.threadId = threadId;
+            this.start = start;
+            this.end = end;
+        }
+
+        long duration() {
+            return end - start;
+        }
+
+        static Span of(RecordedEvent event) {
+            RecordedThread thread = event.getThread();
+            if (thread == null) {
+                return null;
+            }
+            String type = event.getEventType().getName();
+            Kind kind;
+            String name = type;
+            boolean failed = false;
+            List<String> categories = event.getEventType().getCategoryNames();
+            if (!categories.isEmpty() && BusinessEvent.CATEGORY.equals(categories.get(0))) {
+                kind = Kind.BUSINESS;
+                String label = event.getEventType().getLabel();
+                name = label == null ? type : label;
+                if (event.hasField(OPERATION_FIELD) && event.getString(OPERATION_FIELD) != null) {
+                    name = name + " " + event.getString(OPERATION_FIELD);
+                }
+                failed = event.hasField(OUTCOME_FIELD) && !BusinessEvent.SUCCESS.equals(event.getString(OUTCOME_FIELD));
+            } else if (IO_EVENTS.contains(type)) {
+                kind = Kind.IO;
+            } else if (WAIT_EVENTS.contains(type)) {
+                kind = Kind.WAIT;
+            } else {
+                return null;
+            }
+            return new Span(kind, name, failed, thread.getJavaThreadId(),
+                    nanos(event.getStartTime()), nanos(event.getEndTime()));
+        }
+
+        private static long nanos(Instant instant) {
+            return instant.getEpochSecond() * 1_000_000_000L + instant.getNano();
+        }
+    }
+
+    /**
+     * 一次业务事件的时间分解
+     */
+    private static final class Breakdown {
+        private final Map<String, Long> children = new LinkedHashMap<>();
+        private long nested;
+        private long io;
+        private long wait;
+    }
+
+    /**
+     * 统计结果
+     */
+    public static final class Report {
+
+        private final Map<String, Operation> operations = new LinkedHashMap<>();
+
+        void add(Span span, Breakdown breakdown) {
+            operations.computeIfAbsent(span.name, Operation::new).add(span, breakdown);
+        }
+
+        /**
+         * 按总耗时从大到小输出
+         */
+        public void print(PrintStream out) {
+            List<Operation> list = new ArrayList<>(operations.values());
+            list.sort(Comparator.comparingLong((Operation o) -> -o.total));
+            out.printf("%-48s %7s %6s %9s %9s %9s %9s %9s%n",
+                    "operation", "count", "errors", "avg(ms)", "p50", "p95", "p99", "max");
+            for (Operation operation : list) {
+                operation.print(out);
+            }
+        }
+    }
+
+    private static final class Operation {
+        private final String name;
+        private long[] durations = new long[16];
+        private int count;
+        private int errors;
+        private long total;
+        private long nested;
+        private long io;
+        private long wait;
+        private final Map<String, Long> children = new LinkedHashMap<>();
+
+        Operation(String name) {
+            this.name = name;
+        }
+
+        void add(Span span, Breakdown breakdown) {
+            if (count == durations.length) {
+                durations = Arrays.copyOf(durations, count * 2);
+            }
+            durations[count++] = span.duration();
+            if (span.failed) {
+                errors++;
+            }
+            total += span.duration();
+            nested += breakdown.nested;
+            io += breakdown.io;
+            wait += breakdown.wait;
+            breakdown.children.forEach((child, nanos) -> children.merge(child, nanos, Long::sum));
+        }
+
+        void print(PrintStream out) {
+            long[] sorted = Arrays.copyOf(durations, count);
+            Arrays.sort(sorted);
+            out.printf("%-48s %7d %6d %9.2f %9.2f %9.2f %9.2f %9.2f%n", name, count, errors,
+                    avg(total), ms(percentile(sorted, 0.50)), ms(percentile(sorted, 0.95)),
+                    ms(percentile(sorted, 0.99)), ms(sorted[count - 1]));
+            children.entrySet().stream()
+                    .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                    .forEach(e -> line(out, e.getKey(), e.getValue()));
+            line(out, "network I/O", io);
+            line(out, "lock wait", wait);
+            line(out, "self", Math.max(0, total - nested - io - wait));
+        }
+
+        private void line(PrintStream out, String part, long nanos) {
+            out.printf("    %-44s %25s %9.2f %8.1f%%%n", part, "", avg(nanos), total == 0 ? 0 : nanos * 100.0 / total);
+        }
+
+        private double avg(long nanos) {
+            return ms(nanos) / count;
+        }
+
+        private static long percentile(long[] sorted, double p) {
+            int index = (int) Math.ceil(p * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+        }
+
+        private static double ms(long nanos) {
+            return nanos / 1_000_000.0;
+        }
+    }
+}
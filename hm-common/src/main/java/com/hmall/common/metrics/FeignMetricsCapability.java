@@ -0,0 +1,50 @@
+package com.hmall.common.metrics;
+
+import feign.Capability;
+import feign.Client;
+import feign.MethodMetadata;
+import feign.Response;
+import io.micrometer.core.instrument.Tags;
+
+/**
+ * 记录每个Feign客户端方法的耗时和错误
+ * tag：service（目标服务名）、client（接口名）、method（方法名）。
+ * 抛出异常或响应状态码>=500都算失败，4xx是业务上的拒绝，按成功统计耗时。
+ */
+public class FeignMetricsCapability implements Capability {
+
+    private final InvocationMetrics metrics;
+
+    public FeignMetricsCapability(InvocationMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Client enrich(Client client) {
+        return (request, options) -> {
+            MethodMetadata metadata = request.requestTemplate().methodMetadata();
+            if (metadata == null) {
+                return client.execute(request, options);
+            }
+            String service = request.requestTemplate().feignTarget().name();
+            InvocationMetrics.Site site = metrics.site(metadata, m -> Tags.of(
+                    "service", service,
+                    "client", m.method().getDeclaringClass().getSimpleName(),
+                    "method", m.method().getName()));
+            long start = System.nanoTime();
+            Response response;
+            try {
+                response = client.execute(request, options);
+            } catch (Throwable e) {
+                site.record(start, e);
+                throw e;
+            }
+            if (response.status() >= 500) {
+                site.recordFailure(start, "HTTP_" + response.status());
+            } else {
+                site.record(start, null);
+            }
+            return response;
+        };
+    }
+}
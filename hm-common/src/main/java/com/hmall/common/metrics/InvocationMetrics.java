@@ -0,0 +1,104 @@
+package com.hmall.common.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 一类调用（Feign、SQL、Redis命令、MQ监听）的耗时和错误指标
+ * 每个调用点（Feign方法、statement id、Redis命令……）第一次出现时注册好Timer和Counter并缓存，
+ * 之后记录一次调用只是一次map查找加Timer.record，不会每次都重新拼Tag、到MeterRegistry里查找。
+ * 指标：{name}（Timer，tag：调用点的tag + outcome + exception）和 {name}.errors（Counter）。
+ * Timer发布直方图，分位数由服务端根据直方图计算（可以跨实例聚合），客户端不算分位数。
+ * 调用点的tag只能来自有限集合（方法名、statement id等），不能带参数、id之类的值。
+ */
+public class InvocationMetrics {
+
+    private final MeterRegistry registry;
+    private final String name;
+    private final String description;
+
+    private final Map<Object, Site> sites = new ConcurrentHashMap<>();
+
+    public InvocationMetrics(MeterRegistry registry, String name, String description) {
+        this.registry = registry;
+        this.name = name;
+        this.description = description;
+    }
+
+    /**
+     * 获取调用点，key相同的调用共用同一组指标
+     *
+     * @param key    调用点，比如Method、statement id
+     * @param tagger 第一次出现时根据key生成tag
+     */
+    public <K> Site site(K key, Function<K, Tags> tagger) {
+        Site site = sites.get(key);
+        if (site == null) {
+            site = sites.computeIfAbsent(key, k -> new Site(tagger.apply(key)));
+        }
+        return site;
+    }
+
+    /**
+     * 一个调用点的指标
+     */
+    public final class Site {
+        private final Tags tags;
+        private final Timer success;
+        private final Map<String, Timer> failures = new ConcurrentHashMap<>();
+        private final Map<String, Counter> errors = new ConcurrentHashMap<>();
+
+        private Site(Tags tags) {
+            this.tags = tags;
+            this.success = timer("SUCCESS", "none");
+        }
+
+        /**
+         * 记录一次调用
+         *
+         * @param startNanos 开始时的System.nanoTime()
+         * @param error      调用抛出的异常，成功时为null
+         * @return 这次调用的耗时（纳秒）
+         */
+        public long record(long startNanos, Throwable error) {
+            if (error != null) {
+                return recordFailure(startNanos, error.getClass().getSimpleName());
+            }
+            long elapsed = System.nanoTime() - startNanos;
+            success.record(elapsed, TimeUnit.NANOSECONDS);
+            return elapsed;
+        }
+
+        /**
+         * 记录一次失败的调用
+         *
+         * @param startNanos 开始时的System.nanoTime()
+         * @param reason     失败原因，异常类名或 HTTP_500 之类的有限取值
+         * @return 这次调用的耗时（纳秒）
+         */
+        public long recordFailure(long startNanos, String reason) {
+            long elapsed = System.nanoTime() - startNanos;
+            failures.computeIfAbsent(reason, r -> timer("ERROR", r)).record(elapsed, TimeUnit.NANOSECONDS);
+            errors.computeIfAbsent(reason, r -> Counter.builder(name + ".errors")
+                    .description(description + "（失败次数）")
+                    .tags(tags).tag("exception", r)
+                    .register(registry)).increment();
+            return elapsed;
+        }
+
+        private Timer timer(String outcome, String exception) {
+            return Timer.builder(name)
+                    .description(description)
+                    .tags(tags).tag("outcome", outcome).tag("exception", exception)
+                    .publishPercentileHistogram()
+                    .register(registry);
+        }
+    }
+}
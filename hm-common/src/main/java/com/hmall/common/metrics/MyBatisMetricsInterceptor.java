@@ -0,0 +1,111 @@
+package com.hmall.common.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 记录每个MyBatis statement的耗时和错误，tag：statement（statement id）、command（SELECT/UPDATE等）
+ * 成功的执行同时记录返回/影响的行数（hm.mybatis.statement.rows）。
+ * 分页查询的COUNT(*)算在分页查询本身的耗时里。
+ * 配置了SqlProfiler时，慢查询和N+1查询的判断也挂在这里，和指标共用同一次计时。
+ */
+@Intercepts({
+        @Signature(type = Executor.class, method = "update", args = {MappedStatement.class, Object.class}),
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class, CacheKey.class, BoundSql.class})
+})
+public class MyBatisMetricsInterceptor implements Interceptor {
+
+    public static final String METRIC_NAME = "hm.mybatis.statement";
+
+    public static final String ROWS_METRIC_NAME = METRIC_NAME + ".rows";
+
+    private final InvocationMetrics metrics;
+
+    private final MeterRegistry registry;
+
+    private final SqlProfiler profiler;
+
+    private final Map<MappedStatement, DistributionSummary> rows = new ConcurrentHashMap<>();
+
+    /**
+     * @param profiler 慢查询/N+1分析，可以为null
+     */
+    public MyBatisMetricsInterceptor(MeterRegistry registry, SqlProfiler profiler) {
+        this.metrics = new InvocationMetrics(registry, METRIC_NAME, "SQL执行耗时");
+        this.registry = registry;
+        this.profiler = profiler;
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        Object[] args = invocation.getArgs();
+        MappedStatement ms = (MappedStatement) args[0];
+        InvocationMetrics.Site site = metrics.site(ms, MyBatisMetricsInterceptor::tags);
+        if (profiler != null) {
+            profiler.executing(ms);
+        }
+        long start = System.nanoTime();
+        try {
+            Object result = invocation.proceed();
+            profile(ms, args, site.record(start, null));
+            rows(ms).record(rowCount(result));
+            return result;
+        } catch (InvocationTargetException e) {
+            profile(ms, args, site.record(start, e.getTargetException()));
+            throw e;
+        } catch (Throwable e) {
+            profile(ms, args, site.record(start, e));
+            throw e;
+        }
+    }
+
+    private void profile(MappedStatement ms, Object[] args, long elapsedNanos) {
+        if (profiler != null) {
+            profiler.executed(ms, args, elapsedNanos);
+        }
+    }
+
+    private DistributionSummary rows(MappedStatement ms) {
+        DistributionSummary summary = rows.get(ms);
+        if (summary == null) {
+            summary = rows.computeIfAbsent(ms, k -> DistributionSummary.builder(ROWS_METRIC_NAME)
+                    .description("SQL返回/影响的行数")
+                    .tags(tags(ms))
+                    .register(registry));
+        }
+        return summary;
+    }
+
+    private static long rowCount(Object result) {
+        if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        }
+        if (result instanceof Number) {
+            return ((Number) result).longValue();
+        }
+        return 0;
+    }
+
+    private static Tags tags(MappedStatement ms) {
+        return Tags.of("statement", ms.getId(), "command", ms.getSqlCommandType().name());
+    }
+}
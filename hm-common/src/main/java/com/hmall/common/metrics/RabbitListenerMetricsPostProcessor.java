@@ -0,0 +1,97 @@
+package com.hmall.common.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.aopalliance.aop.Advice;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.config.AbstractRabbitListenerContainerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+
+import java.util.List;
+
+/**
+ * 记录每个@RabbitListener处理消息的耗时和错误，tag：queue
+ * 拦截器加在监听容器工厂advice链的最里层，重试时每次处理都单独计时。
+ * 匿名队列（spring.gen-*、amq.gen-*）每个实例、每次启动名字都不一样，改用 exchange:交换机名 作为tag。
+ */
+public class RabbitListenerMetricsPostProcessor implements BeanPostProcessor {
+
+    private final ObjectProvider<MeterRegistry> registry;
+
+    private volatile InvocationMetrics metrics;
+
+    public RabbitListenerMetricsPostProcessor(ObjectProvider<MeterRegistry> registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof AbstractRabbitListenerContainerFactory) {
+            AbstractRabbitListenerContainerFactory<?> factory = (AbstractRabbitListenerContainerFactory<?>) bean;
+            Advice[] existing = factory.getAdviceChain();
+            int length = existing == null ? 0 : existing.length;
+            Advice[] chain = new Advice[length + 1];
+            if (length > 0) {
+                System.arraycopy(existing, 0, chain, 0, length);
+            }
+            chain[length] = (MethodInterceptor) this::invoke;
+            factory.setAdviceChain(chain);
+        }
+        return bean;
+    }
+
+    private Object invoke(MethodInvocation invocation) throws Throwable {
+        Object[] args = invocation.getArguments();
+        Message message = null;
+        if (args.length > 1) {
+            Object data = args[1];
+            if (data instanceof Message) {
+                message = (Message) data;
+            } else if (data instanceof List && !((List<?>) data).isEmpty() && ((List<?>) data).get(0) instanceof Message) {
+                message = (Message) ((List<?>) data).get(0);
+            }
+        }
+        if (message == null) {
+            return invocation.proceed();
+        }
+        InvocationMetrics.Site site = metrics().site(queueName(message.getMessageProperties()),
+                RabbitListenerMetricsPostProcessor::tags);
+        long start = System.nanoTime();
+        try {
+            Object result = invocation.proceed();
+            site.record(start, null);
+            return result;
+        } catch (Throwable e) {
+            site.record(start, e);
+            throw e;
+        }
+    }
+
+    /**
+     * 消息所在队列的名字，匿名队列换成 exchange:交换机名，同一个监听在各个实例上的名字相同
+     */
+    public static String queueName(MessageProperties properties) {
+        String queue = properties.getConsumerQueue();
+        if (queue == null || queue.startsWith("spring.gen-") || queue.startsWith("amq.gen-")) {
+            return "exchange:" + properties.getReceivedExchange();
+        }
+        return queue;
+    }
+
+    private static Tags tags(String queue) {
+        return Tags.of("queue", queue);
+    }
+
+    private InvocationMetrics metrics() {
+        InvocationMetrics m = metrics;
+        if (m == null) {
+            m = new InvocationMetrics(registry.getObject(), "hm.rabbit.listener", "MQ消息处理耗时");
+            metrics = m;
+        }
+        return m;
+    }
+}
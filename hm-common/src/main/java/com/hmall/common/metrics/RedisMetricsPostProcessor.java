@@ -0,0 +1,108 @@
+package com.hmall.common.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.util.ClassUtils;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 记录每个Redis命令的耗时和错误，tag：command（RedisConnection的方法名，如get、setEx、del）
+ * StringRedisTemplate等所有模板最终都通过RedisConnection执行命令，这里把RedisConnectionFactory包一层，
+ * 它返回的连接再用JDK动态代理包一层，连接上的每个命令方法都计时。
+ */
+public class RedisMetricsPostProcessor implements BeanPostProcessor {
+
+    /**
+     * 不是Redis命令的连接方法，不计时
+     */
+    private static final Set<String> NOT_COMMANDS = Set.of("close", "isClosed", "getNativeConnection",
+            "isQueueing", "isPipelined", "getSentinelConnection");
+
+    private final ObjectProvider<MeterRegistry> registry;
+
+    private final Map<Class<?>, Class<?>[]> interfaces = new ConcurrentHashMap<>();
+
+    private volatile InvocationMetrics metrics;
+
+    public RedisMetricsPostProcessor(ObjectProvider<MeterRegistry> registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!(bean instanceof RedisConnectionFactory)) {
+            return bean;
+        }
+        ProxyFactory factory = new ProxyFactory(bean);
+        factory.addAdvice((MethodInterceptor) invocation -> {
+            Object result = invocation.proceed();
+            return result instanceof RedisConnection ? wrap((RedisConnection) result) : result;
+        });
+        return factory.getProxy(ClassUtils.getDefaultClassLoader());
+    }
+
+    private Object wrap(RedisConnection connection) {
+        Class<?>[] types = interfaces.computeIfAbsent(connection.getClass(), ClassUtils::getAllInterfacesForClass);
+        return Proxy.newProxyInstance(ClassUtils.getDefaultClassLoader(), types, new TimedConnection(connection));
+    }
+
+    private InvocationMetrics metrics() {
+        InvocationMetrics m = metrics;
+        if (m == null) {
+            m = new InvocationMetrics(registry.getObject(), "hm.redis.command", "Redis命令耗时");
+            metrics = m;
+        }
+        return m;
+    }
+
+    private static Tags tags(Method method) {
+        return Tags.of("command", method.getName());
+    }
+
+    private final class TimedConnection implements InvocationHandler {
+        private final RedisConnection target;
+
+        private TimedConnection(RedisConnection target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (method.getDeclaringClass() == Object.class || NOT_COMMANDS.contains(name) || name.endsWith("Commands")) {
+                return invokeTarget(method, args);
+            }
+            InvocationMetrics.Site site = metrics().site(method, RedisMetricsPostProcessor::tags);
+            long start = System.nanoTime();
+            try {
+                Object result = invokeTarget(method, args);
+                site.record(start, null);
+                return result;
+            } catch (Throwable e) {
+                site.record(start, e);
+                throw e;
+            }
+        }
+
+        private Object invokeTarget(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+            }
+        }
+    }
+}
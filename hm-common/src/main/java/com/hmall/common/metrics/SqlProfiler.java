@@ -0,0 +1,179 @@
+package com.hmall.common.metrics;
+
+import com.hmall.common.config.SqlProfilerProperties;
+import com.hmall.common.context.RequestContext;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 找出慢查询和N+1查询
+ * 1.超过慢查询阈值的执行打印warn日志，并保留本周期内每个statement最慢一次的SQL（只在慢的时候才取绑定后的SQL）；
+ * 2.每个报告周期按总耗时打印前N个statement，数据取自 hm.mybatis.statement 指标在本周期的增量；
+ * 3.同一个请求（本服务处理这次请求的SERVER/CONSUMER span）中同一个statement执行次数超过阈值时打印一次N+1警告，
+ *   计数放在RequestContext里，请求结束时随上下文一起丢弃。
+ * 耗时、行数和分位数只由MyBatisMetricsInterceptor记录一份（Prometheus中按直方图算分位数），这里不再单独计时：
+ * MyBatis-Plus的InnerInterceptor只有执行前的回调（beforeQuery/beforeUpdate），拿不到耗时，
+ * 所以没有做成InnerInterceptor，也不再注册第二个Executor插件，而是由MyBatisMetricsInterceptor在同一次计时后回调。
+ */
+@Slf4j
+public class SqlProfiler implements DisposableBean {
+
+    private static final String COUNTER_PREFIX = "sql:";
+
+    private final MeterRegistry registry;
+    private final long slowThresholdNanos;
+    private final int topN;
+    private final int repeatThreshold;
+
+    private volatile Map<String, SlowSample> slowest = new ConcurrentHashMap<>();
+
+    /**
+     * 上次报告时各statement的累计值，用来算本周期的增量；只在报告线程中访问
+     */
+    private Map<String, Totals> lastTotals = new HashMap<>();
+
+    private final ScheduledExecutorService reporter;
+
+    public SqlProfiler(MeterRegistry registry, SqlProfilerProperties properties) {
+        this.registry = registry;
+        this.slowThresholdNanos = properties.getSlowThreshold().toNanos();
+        this.topN = properties.getTopN();
+        this.repeatThreshold = properties.getRepeatThreshold();
+        this.reporter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "sql-profiler-report");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = properties.getReportInterval().toMillis();
+        reporter.scheduleAtFixedRate(this::report, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * statement开始执行前调用，统计本次请求中的执行次数
+     */
+    void executing(MappedStatement ms) {
+        RequestContext context = RequestContext.current();
+        if (context == null) {
+            return;
+        }
+        if (context.increment(COUNTER_PREFIX + ms.getId()) == repeatThreshold + 1) {
+            log.warn("疑似N+1查询：链路 {} span {} 中 {} 已执行超过 {} 次",
+                    context.getTraceId(), context.getSpanId(), ms.getId(), repeatThreshold);
+        }
+    }
+
+    /**
+     * statement执行完（包括失败）后调用
+     *
+     * @param args         Executor方法的参数
+     * @param elapsedNanos 指标中记录的耗时
+     */
+    void executed(MappedStatement ms, Object[] args, long elapsedNanos) {
+        if (elapsedNanos < slowThresholdNanos) {
+            return;
+        }
+        BoundSql boundSql = args.length > 5 ? (BoundSql) args[5] : ms.getBoundSql(args[1]);
+        String sql = boundSql.getSql().replaceAll("\\s+", " ");
+        slowest.merge(ms.getId(), new SlowSample(elapsedNanos, sql), (old, now) -> now.nanos > old.nanos ? now : old);
+        log.warn("慢SQL {} 耗时 {} ms -> {}", ms.getId(), TimeUnit.NANOSECONDS.toMillis(elapsedNanos), sql);
+    }
+
+    /**
+     * 打印本周期耗时最多的statement，并开始新的周期
+     */
+    void report() {
+        Map<String, SlowSample> samples = slowest;
+        slowest = new ConcurrentHashMap<>();
+        Map<String, Totals> totals = new HashMap<>();
+        for (Timer timer : registry.find(MyBatisMetricsInterceptor.METRIC_NAME).timers()) {
+            Totals t = totals.computeIfAbsent(timer.getId().getTag("statement"), id -> new Totals());
+            t.count += timer.count();
+            t.nanos += (long) timer.totalTime(TimeUnit.NANOSECONDS);
+            t.maxNanos = Math.max(t.maxNanos, (long) timer.max(TimeUnit.NANOSECONDS));
+        }
+        for (DistributionSummary summary : registry.find(MyBatisMetricsInterceptor.ROWS_METRIC_NAME).summaries()) {
+            Totals t = totals.get(summary.getId().getTag("statement"));
+            if (t != null) {
+                t.rows += (long) summary.totalAmount();
+            }
+        }
+        List<Map.Entry<String, Totals>> top = new ArrayList<>();
+        for (Map.Entry<String, Totals> e : totals.entrySet()) {
+            Totals delta = e.getValue().minus(lastTotals.get(e.getKey()));
+            if (delta.count > 0) {
+                top.add(Map.entry(e.getKey(), delta));
+            }
+        }
+        lastTotals = totals;
+        if (top.isEmpty()) {
+            return;
+        }
+        top.sort(Comparator.comparingLong((Map.Entry<String, Totals> e) -> e.getValue().nanos).reversed());
+        StringBuilder sb = new StringBuilder("SQL耗时报告（按总耗时排序，分位数见 ")
+                .append(MyBatisMetricsInterceptor.METRIC_NAME).append(" 直方图）：");
+        for (int i = 0; i < Math.min(topN, top.size()); i++) {
+            String id = top.get(i).getKey();
+            Totals t = top.get(i).getValue();
+            sb.append("\n  ").append(id)
+                    .append(" 次数=").append(t.count)
+                    .append(" 总耗时=").append(TimeUnit.NANOSECONDS.toMillis(t.nanos)).append("ms")
+                    .append(" 平均=").append(TimeUnit.NANOSECONDS.toMicros(t.nanos / t.count)).append("us")
+                    .append(" 最大=").append(TimeUnit.NANOSECONDS.toMicros(t.maxNanos)).append("us")
+                    .append(" 平均行数=").append(t.rows / t.count);
+            SlowSample sample = samples.get(id);
+            if (sample != null) {
+                sb.append("\n    最慢一次 ").append(TimeUnit.NANOSECONDS.toMillis(sample.nanos)).append("ms: ").append(sample.sql);
+            }
+        }
+        log.info(sb.toString());
+    }
+
+    @Override
+    public void destroy() {
+        reporter.shutdownNow();
+    }
+
+    /**
+     * 一个statement的累计值（成功和失败的Timer合在一起），max是Timer最近一段时间内的最大值
+     */
+    private static final class Totals {
+        private long count;
+        private long nanos;
+        private long rows;
+        private long maxNanos;
+
+        Totals minus(Totals last) {
+            Totals delta = new Totals();
+            delta.count = count - (last == null ? 0 : last.count);
+            delta.nanos = nanos - (last == null ? 0 : last.nanos);
+            delta.rows = rows - (last == null ? 0 : last.rows);
+            delta.maxNanos = maxNanos;
+            return delta;
+        }
+    }
+
+    private static final class SlowSample {
+        private final long nanos;
+        private final String sql;
+
+        private SlowSample(long nanos, String sql) {
+            this.nanos = nanos;
+            this.sql = sql;
+        }
+    }
+}
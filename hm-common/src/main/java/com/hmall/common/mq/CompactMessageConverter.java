@@ -0,0 +1,169 @@
+package com.hmall.common.mq;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.AbstractMessageConverter;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.util.ClassUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 紧凑的二进制消息格式，content-type为 {@link #CONTENT_TYPE}
+ * 最常见的消息只是一个订单id，用JSON时消息体是十几个字符的数字，还要带上__TypeId__=java.lang.Long等消息头。
+ * 这里第一个字节是类型标记：
+ * Long/Integer用zigzag变长整数（一个雪花id连同类型标记共10个字节），String直接存UTF-8，Boolean一个字节，
+ * 其它对象（各种DTO）用Jackson的Smile二进制格式，类名放在__TypeId__消息头中，消费者优先按监听方法的参数类型解析。
+ * 按__TypeId__解析时只接受 {@link #TRUSTED_PACKAGES} 下的类，消息头是发送方随便填的，不能用来加载任意类。
+ */
+public class CompactMessageConverter extends AbstractMessageConverter {
+
+    public static final String CONTENT_TYPE = "application/x-hm-compact";
+
+    private static final String TYPE_ID_HEADER = "__TypeId__";
+
+    /**
+     * 允许按__TypeId__反序列化的包（和缓存的类型白名单一致）
+     */
+    private static final String[] TRUSTED_PACKAGES = {"com.hmall.", "java."};
+
+    private static final byte TYPE_NULL = 0;
+    private static final byte TYPE_LONG = 1;
+    private static final byte TYPE_INT = 2;
+    private static final byte TYPE_STRING = 3;
+    private static final byte TYPE_BOOLEAN = 4;
+    private static final byte TYPE_OBJECT = 5;
+
+    private final ObjectMapper smileMapper = SmileMapper.builder()
+            .addModule(new Jdk8Module())
+            .addModule(new JavaTimeModule())
+            .addModule(new BlackbirdModule())
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .build();
+
+    @Override
+    protected Message createMessage(Object object, MessageProperties messageProperties) {
+        messageProperties.setContentType(CONTENT_TYPE);
+        byte[] body;
+        if (object == null) {
+            body = new byte[]{TYPE_NULL};
+        } else if (object instanceof Long) {
+            body = varLong(TYPE_LONG, (Long) object);
+        } else if (object instanceof Integer) {
+            body = varLong(TYPE_INT, (Integer) object);
+        } else if (object instanceof String) {
+            byte[] bytes = ((String) object).getBytes(StandardCharsets.UTF_8);
+            body = new byte[bytes.length + 1];
+            body[0] = TYPE_STRING;
+            System.arraycopy(bytes, 0, body, 1, bytes.length);
+        } else if (object instanceof Boolean) {
+            body = new byte[]{TYPE_BOOLEAN, (byte) ((Boolean) object ? 1 : 0)};
+        } else {
+            messageProperties.setHeader(TYPE_ID_HEADER, object.getClass().getName());
+            ByteArrayOutputStream out = new ByteArrayOutputStream(128);
+            out.write(TYPE_OBJECT);
+            try {
+                smileMapper.writeValue(out, object);
+            } catch (IOException e) {
+                throw new MessageConversionException("消息序列化失败: " + object.getClass().getName(), e);
+            }
+            body = out.toByteArray();
+        }
+        messageProperties.setContentLength(body.length);
+        return new Message(body, messageProperties);
+    }
+
+    @Override
+    public Object fromMessage(Message message) throws MessageConversionException {
+        byte[] body = message.getBody();
+        if (body == null || body.length == 0) {
+            throw new MessageConversionException("消息体为空");
+        }
+        switch (body[0]) {
+            case TYPE_NULL:
+                return null;
+            case TYPE_LONG:
+                return readVarLong(body);
+            case TYPE_INT:
+                return (int) readVarLong(body);
+            case TYPE_STRING:
+                return new String(body, 1, body.length - 1, StandardCharsets.UTF_8);
+            case TYPE_BOOLEAN:
+                return body.length > 1 && body[1] != 0;
+            case TYPE_OBJECT:
+                return readObject(message);
+            default:
+                throw new MessageConversionException("未知的消息类型标记: " + body[0]);
+        }
+    }
+
+    private Object readObject(Message message) {
+        MessageProperties properties = message.getMessageProperties();
+        byte[] body = message.getBody();
+        try {
+            Type inferred = properties.getInferredArgumentType();
+            if (inferred != null && inferred != Object.class) {
+                return smileMapper.readValue(body, 1, body.length - 1, smileMapper.constructType(inferred));
+            }
+            Object typeId = properties.getHeaders().get(TYPE_ID_HEADER);
+            if (typeId == null) {
+                return smileMapper.readValue(body, 1, body.length - 1, Object.class);
+            }
+            String className = typeId.toString();
+            if (!trusted(className)) {
+                throw new MessageConversionException("不允许反序列化的消息类型: " + className);
+            }
+            Class<?> clazz = ClassUtils.forName(className, ClassUtils.getDefaultClassLoader());
+            return smileMapper.readValue(body, 1, body.length - 1, clazz);
+        } catch (IOException | ClassNotFoundException e) {
+            throw new MessageConversionException("消息反序列化失败", e);
+        }
+    }
+
+    private static boolean trusted(String className) {
+        for (String prefix : TRUSTED_PACKAGES) {
+            if (className.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    //类型标记 + zigzag变长整数，每个字节7位有效位
+    private static byte[] varLong(byte type, long value) {
+        byte[] buffer = new byte[11];
+        buffer[0] = type;
+        long v = (value << 1) ^ (value >> 63);
+        int i = 1;
+        while ((v & ~0x7FL) != 0) {
+            buffer[i++] = (byte) ((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        buffer[i++] = (byte) v;
+        byte[] body = new byte[i];
+        System.arraycopy(buffer, 0, body, 0, i);
+        return body;
+    }
+
+    private static long readVarLong(byte[] body) {
+        long v = 0;
+        int shift = 0;
+        for (int i = 1; i < body.length && shift < 64; i++, shift += 7) {
+            byte b = body[i];
+            v |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return (v >>> 1) ^ -(v & 1);
+            }
+        }
+        throw new MessageConversionException("变长整数格式错误");
+    }
+}
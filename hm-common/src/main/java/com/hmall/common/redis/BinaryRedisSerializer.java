@@ -0,0 +1,234 @@
+package com.hmall.common.redis;
+
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.jsontype.PolymorphicTypeValidator;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import com.hmall.common.utils.JsonUtils;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Redis值的二进制编解码
+ * 格式：版本字节 + 标志字节 + 数据。
+ * 版本字节最高位为1，低7位是格式版本，JSON文本的第一个字节一定是ASCII字符（最高位为0），
+ * 所以读取时看第一个字节就能区分新格式和以前写入的JSON（包括hutool写的毫秒时间戳格式），两种都能读。
+ * 版本1的数据是Jackson的Smile二进制格式：数字按变长整数存，时间存成数字数组，
+ * 一个列表中重复出现的属性名和短字符串只写一次、之后写引用，列表越长省得越多。
+ * 数据超过压缩阈值时用Deflate（BEST_SPEED）压缩，压缩后没有变小就不压缩，标志字节记录是否压缩。
+ * 以后格式有变化时增加版本号，旧版本的数据保持可读。
+ */
+public class BinaryRedisSerializer<T> implements RedisSerializer<T> {
+
+    /**
+     * 压缩阈值的默认值，Smile数据小于这个长度时不压缩
+     */
+    public static final int DEFAULT_COMPRESS_THRESHOLD = 512;
+
+    private static final int BINARY_MARK = 0x80;
+    private static final int VERSION_1 = 1;
+
+    private static final int FLAG_DEFLATE = 1;
+    /**
+     * 解压后长度的上限，防止错误的数据导致分配超大的数组
+     */
+    private static final int MAX_RAW_LENGTH = 64 * 1024 * 1024;
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private final ObjectWriter writer;
+    private final ObjectReader reader;
+    private final ObjectReader legacyReader;
+    private final int compressThreshold;
+
+    /**
+     * @param smileMapper       写入和读取二进制格式使用的mapper
+     * @param jsonMapper        读取以前的JSON数据使用的mapper
+     * @param type              值的类型
+     * @param compressThreshold 压缩阈值（字节）
+     */
+    public BinaryRedisSerializer(ObjectMapper smileMapper, ObjectMapper jsonMapper, JavaType type, int compressThreshold) {
+        this.writer = smileMapper.writerFor(type);
+        this.reader = smileMapper.readerFor(type);
+        this.legacyReader = jsonMapper.readerFor(type);
+        this.compressThreshold = compressThreshold;
+    }
+
+    /**
+     * 固定类型的值，例如一个DTO
+     */
+    public static <T> BinaryRedisSerializer<T> of(Class<T> type) {
+        ObjectMapper mapper = smileMapper();
+        return new BinaryRedisSerializer<>(mapper, JsonUtils.mapper(),
+                mapper.constructType(type), DEFAULT_COMPRESS_THRESHOLD);
+    }
+
+    /**
+     * 元素类型固定的列表，例如购物车列表
+     */
+    public static <T> BinaryRedisSerializer<List<T>> listOf(Class<T> elementType) {
+        ObjectMapper mapper = smileMapper();
+        return new BinaryRedisSerializer<>(mapper, JsonUtils.mapper(),
+                mapper.getTypeFactory().constructCollectionType(List.class, elementType), DEFAULT_COMPRESS_THRESHOLD);
+    }
+
+    /**
+     * 类型不固定的值（两级缓存），数据中带有类名，只能反序列化成validator允许的类型
+     * 缓存的null结果以Spring的NullValue保存。
+     */
+    public static BinaryRedisSerializer<Object> typed(PolymorphicTypeValidator validator) {
+        ObjectMapper smile = smileMapper()
+                .activateDefaultTyping(validator, ObjectMapper.DefaultTyping.NON_FINAL, JsonTypeInfo.As.PROPERTY);
+        ObjectMapper json = JsonUtils.mapper().copy()
+                .activateDefaultTyping(validator, ObjectMapper.DefaultTyping.NON_FINAL, JsonTypeInfo.As.PROPERTY);
+        GenericJackson2JsonRedisSerializer.registerNullValueSerializer(smile, null);
+        GenericJackson2JsonRedisSerializer.registerNullValueSerializer(json, null);
+        return new BinaryRedisSerializer<>(smile, json, smile.constructType(Object.class), DEFAULT_COMPRESS_THRESHOLD);
+    }
+
+    private static ObjectMapper smileMapper() {
+        SmileFactory factory = SmileFactory.builder()
+                .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+                .build();
+        return SmileMapper.builder(factory)
+                .addModule(new Jdk8Module())
+                .addModule(new JavaTimeModule())
+                .addModule(new BlackbirdModule())
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .build();
+    }
+
+    @Override
+    public byte[] serialize(T value) throws SerializationException {
+        if (value == null) {
+            return EMPTY;
+        }
+        byte[] data;
+        try {
+            data = writer.writeValueAsBytes(value);
+        } catch (IOException e) {
+            throw new SerializationException("Redis值序列化失败: " + value.getClass().getName(), e);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length + 8);
+        out.write(BINARY_MARK | VERSION_1);
+        if (data.length >= compressThreshold) {
+            byte[] compressed = deflate(data);
+            // 压缩后要多存一个原始长度，比原数据小才有意义
+            if (compressed.length + 5 < data.length) {
+                out.write(FLAG_DEFLATE);
+                writeVarInt(out, data.length);
+                out.write(compressed, 0, compressed.length);
+                return out.toByteArray();
+            }
+        }
+        out.write(0);
+        out.write(data, 0, data.length);
+        return out.toByteArray();
+    }
+
+    @Override
+    public T deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        try {
+            int first = bytes[0] & 0xFF;
+            if ((first & BINARY_MARK) == 0) {
+                // 以前写入的JSON
+                return legacyReader.readValue(bytes);
+            }
+            int version = first & ~BINARY_MARK;
+            if (version != VERSION_1 || bytes.length < 2) {
+                throw new SerializationException("不支持的Redis值格式版本: " + version);
+            }
+            if ((bytes[1] & FLAG_DEFLATE) == 0) {
+                return reader.readValue(bytes, 2, bytes.length - 2);
+            }
+            int[] pos = {2};
+            int rawLength = readVarInt(bytes, pos);
+            byte[] data = inflate(bytes, pos[0], rawLength);
+            return reader.readValue(data);
+        } catch (IOException | DataFormatException e) {
+            throw new SerializationException("Redis值反序列化失败", e);
+        }
+    }
+
+    private static byte[] deflate(byte[] data) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2 + 16);
+            byte[] buffer = new byte[Math.min(data.length, 8192)];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(buffer);
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] bytes, int offset, int rawLength) throws DataFormatException {
+        if (rawLength < 0 || rawLength > MAX_RAW_LENGTH) {
+            throw new DataFormatException("解压后长度错误: " + rawLength);
+        }
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(bytes, offset, bytes.length - offset);
+            byte[] data = new byte[rawLength];
+            int n = 0;
+            while (n < rawLength) {
+                int read = inflater.inflate(data, n, rawLength - n);
+                if (read == 0 && (inflater.finished() || inflater.needsInput())) {
+                    throw new DataFormatException("压缩数据不完整");
+                }
+                n += read;
+            }
+            return data;
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static void writeVarInt(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarInt(byte[] bytes, int[] pos) throws DataFormatException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            if (pos[0] >= bytes.length) {
+                break;
+            }
+            byte b = bytes[pos[0]++];
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new DataFormatException("压缩数据的长度格式错误");
+    }
+}
@@ -0,0 +1,56 @@
+package com.hmall.common.trace;
+
+import com.hmall.common.context.RequestContext;
+import feign.Capability;
+import feign.Client;
+import feign.MethodMetadata;
+import feign.Request;
+import feign.Response;
+
+import java.util.Collection;
+
+/**
+ * 每次Feign调用记录一个CLIENT span
+ * span的id由RequestInterceptor放在请求头（span-id）中，下游的SERVER span以它为父span，
+ * CLIENT span的耗时减去下游SERVER span的耗时就是网络、负载均衡和排队的时间。
+ * 和指标一样，抛出异常或响应状态码>=500算失败。
+ */
+public class FeignTracingCapability implements Capability {
+
+    @Override
+    public Client enrich(Client client) {
+        return (request, options) -> {
+            RequestContext context = RequestContext.current();
+            if (context == null) {
+                return client.execute(request, options);
+            }
+            Span span = Span.start(Span.Kind.CLIENT, spanName(request), context.getTraceId(),
+                    header(request, RequestContext.SPAN_HEADER), context.getSpanId());
+            try {
+                Response response = client.execute(request, options);
+                if (response.status() >= 500) {
+                    span.fail("HTTP_" + response.status());
+                }
+                return response;
+            } catch (Throwable e) {
+                span.fail(e);
+                throw e;
+            } finally {
+                span.finish();
+            }
+        };
+    }
+
+    private static String spanName(Request request) {
+        MethodMetadata metadata = request.requestTemplate().methodMetadata();
+        if (metadata == null) {
+            return request.httpMethod() + " " + request.url();
+        }
+        return "feign " + metadata.method().getDeclaringClass().getSimpleName() + "." + metadata.method().getName();
+    }
+
+    private static String header(Request request, String name) {
+        Collection<String> values = request.headers().get(name);
+        return values == null || values.isEmpty() ? null : values.iterator().next();
+    }
+}
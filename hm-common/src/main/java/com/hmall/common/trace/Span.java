@@ -0,0 +1,124 @@
+package com.hmall.common.trace;
+
+import cn.hutool.core.util.IdUtil;
+import com.hmall.common.context.RequestContext;
+import lombok.Getter;
+
+import java.time.Instant;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 链路中的一段耗时（一次请求处理、一次Feign调用、一次消息发送/消费）
+ * 同一条链路的span共用traceId，通过parentId串成一棵树；finish时交给SpanExporter写到本地文件，
+ * 再用TraceReport把各个服务的文件合在一起分析。
+ */
+@Getter
+public final class Span {
+
+    public static final String SUCCESS = "success";
+
+    public enum Kind {
+        /**
+         * 处理一个HTTP请求（网关、各个微服务）
+         */
+        SERVER,
+        /**
+         * 发起一次下游调用（Feign），耗时减去下游SERVER的耗时就是网络和排队的时间
+         */
+        CLIENT,
+        /**
+         * 发送一条MQ消息
+         */
+        PRODUCER,
+        /**
+         * 消费一条MQ消息，开始时间减去PRODUCER的结束时间就是消息在MQ中等待的时间
+         */
+        CONSUMER
+    }
+
+    private final String traceId;
+    private final String spanId;
+    private final String parentId;
+    private final Kind kind;
+    private final String name;
+    /**
+     * 开始时间，epoch微秒
+     */
+    private final long startMicros;
+    private final long startNanos;
+    private long durationMicros;
+    private String outcome;
+
+    private Span(String traceId, String spanId, String parentId, Kind kind, String name) {
+        Instant now = Instant.now();
+        this.traceId = traceId;
+        this.spanId = spanId;
+        this.parentId = parentId;
+        this.kind = kind;
+        this.name = name;
+        this.startMicros = now.getEpochSecond() * 1_000_000L + now.getNano() / 1000;
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * 开始一个span
+     *
+     * @param traceId  链路id
+     * @param spanId   span的id，为null时生成一个
+     * @param parentId 父span的id，链路起点为null
+     */
+    public static Span start(Kind kind, String name, String traceId, String spanId, String parentId) {
+        return new Span(traceId, spanId == null ? newSpanId() : spanId, parentId, kind, name);
+    }
+
+    /**
+     * 在当前请求上下文下开始一个子span，没有上下文时作为一条新链路的起点
+     */
+    public static Span startChild(Kind kind, String name) {
+        RequestContext context = RequestContext.current();
+        if (context == null) {
+            return start(kind, name, newTraceId(), null, null);
+        }
+        return start(kind, name, context.getTraceId(), null, context.getSpanId());
+    }
+
+    public static String newTraceId() {
+        return IdUtil.fastSimpleUUID();
+    }
+
+    /**
+     * 16位十六进制的随机id
+     */
+    public static String newSpanId() {
+        String hex = Long.toHexString(ThreadLocalRandom.current().nextLong());
+        return hex.length() == 16 ? hex : "0000000000000000".substring(hex.length()) + hex;
+    }
+
+    /**
+     * 标记为失败
+     */
+    public void fail(Throwable e) {
+        outcome = e.getClass().getSimpleName();
+    }
+
+    /**
+     * 标记为失败，reason为失败原因，例如HTTP_500
+     */
+    public void fail(String reason) {
+        outcome = reason;
+    }
+
+    /**
+     * 结束并导出，没有调用过fail的算成功，重复调用只导出一次
+     */
+    public void finish() {
+        if (durationMicros > 0) {
+            return;
+        }
+        durationMicros = Math.max(1, (System.nanoTime() - startNanos) / 1000);
+        if (outcome == null) {
+            outcome = SUCCESS;
+        }
+        SpanExporter.export(this);
+    }
+}
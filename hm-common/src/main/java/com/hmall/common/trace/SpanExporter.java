@@ -0,0 +1,168 @@
+package com.hmall.common.trace;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 把结束的span异步写到本地文件
+ * 业务线程只把span放进有界缓冲区，放不下就丢弃并计数，绝不等待；后台线程批量写文件。
+ * 每行一个span，字段用tab分隔：
+ * traceId spanId parentId service kind name startMicros durationMicros outcome（parentId为空时写 -）。
+ * 文件超过maxFileSize后改名为 .1（覆盖上一个）重新开始写。
+ * 由TraceConfig在启动时安装，没有安装时export什么也不做。
+ */
+@Slf4j
+public class SpanExporter {
+
+    private static final int BATCH = 256;
+
+    private static volatile SpanExporter installed;
+
+    private final String service;
+    private final Path file;
+    private final long maxFileSize;
+    private final BlockingQueue<Span> buffer;
+    private final LongAdder dropped = new LongAdder();
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    private BufferedWriter writer;
+    private long written;
+
+    public SpanExporter(String service, Path file, int bufferSize, long maxFileSize) {
+        this.service = clean(service);
+        this.file = file;
+        this.maxFileSize = maxFileSize;
+        this.buffer = new ArrayBlockingQueue<>(Math.max(1, bufferSize));
+        this.worker = new Thread(this::drain, "span-exporter");
+        this.worker.setDaemon(true);
+    }
+
+    /**
+     * 启动后台线程并设置为全局的导出器
+     */
+    public void install() {
+        worker.start();
+        installed = this;
+    }
+
+    /**
+     * 导出一个span，没有安装导出器或缓冲区已满时丢弃
+     */
+    static void export(Span span) {
+        SpanExporter exporter = installed;
+        if (exporter != null && !exporter.buffer.offer(span)) {
+            exporter.dropped.increment();
+        }
+    }
+
+    /**
+     * 因缓冲区满而丢弃的span数
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    private void drain() {
+        List<Span> batch = new ArrayList<>(BATCH);
+        while (running || !buffer.isEmpty()) {
+            try {
+                Span first = buffer.poll(500, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                buffer.drainTo(batch, BATCH - 1);
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                // 写文件失败不能让后台线程退出，丢掉这一批
+                log.warn("写span文件失败: {}", file, e);
+                closeWriter();
+            } finally {
+                batch.clear();
+            }
+        }
+        closeWriter();
+    }
+
+    private void write(List<Span> spans) throws IOException {
+        if (writer == null) {
+            open();
+        }
+        StringBuilder sb = new StringBuilder(160);
+        for (Span span : spans) {
+            sb.setLength(0);
+            sb.append(span.getTraceId()).append('\t')
+                    .append(span.getSpanId()).append('\t')
+                    .append(span.getParentId() == null ? "-" : span.getParentId()).append('\t')
+                    .append(service).append('\t')
+                    .append(span.getKind()).append('\t')
+                    .append(clean(span.getName())).append('\t')
+                    .append(span.getStartMicros()).append('\t')
+                    .append(span.getDurationMicros()).append('\t')
+                    .append(clean(span.getOutcome())).append('\n');
+            writer.append(sb);
+            written += sb.length();
+        }
+        writer.flush();
+        if (written > maxFileSize) {
+            closeWriter();
+            Files.move(file, file.resolveSibling(file.getFileName() + ".1"), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void open() throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        written = Files.size(file);
+    }
+
+    private void closeWriter() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException ignored) {
+                // 关闭失败没有什么可以做的
+            }
+            writer = null;
+        }
+    }
+
+    private static String clean(String value) {
+        if (value == null || value.isEmpty()) {
+            return "-";
+        }
+        return value.replace('\t', ' ').replace('\n', ' ');
+    }
+
+    /**
+     * 停止导出，写完缓冲区中剩下的span
+     */
+    public void stop() throws InterruptedException {
+        if (installed == this) {
+            installed = null;
+        }
+        running = false;
+        worker.join(2000);
+    }
+}
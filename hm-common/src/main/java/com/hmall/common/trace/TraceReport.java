@@ -0,0 +1,295 @@
+package com.hmall.common.trace;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 把各个服务写出的span文件合在一起，分析每个请求的耗时花在了哪一跳上
+ * 用法：java -cp hm-common.jar com.hmall.common.trace.TraceReport [--top N] [--trace traceId] 文件或目录...
+ * 目录下所有 spans.log* 文件都会读取（网关和各个服务的logs目录可以直接传进来）。
+ * 每条链路从根span（网关的SERVER span）开始，沿着"最后结束的子span"往回找出关键路径，
+ * 关键路径上每个span除去子span之外的时间算作它自己的耗时：SERVER是服务内的处理时间，
+ * CLIENT是网络、负载均衡和排队的时间。输出：
+ * 1. 所有链路汇总后，关键路径耗时按 服务 + span 的占比排序；
+ * 2. 最慢的N条链路的span树，*标出关键路径，MQ消费是异步分支，不在关键路径上，单独列出在MQ中等待的时间。
+ * 不同机器的时钟有偏差，子span超出父span范围的部分按父span的范围截断。
+ */
+public final class TraceReport {
+
+    private static final String FILE_PREFIX = "spans.log";
+    private static final String NO_PARENT = "-";
+
+    private TraceReport() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        int top = 10;
+        String traceId = null;
+        List<Path> inputs = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if ("--top".equals(args[i]) && i + 1 < args.length) {
+                top = Integer.parseInt(args[++i]);
+            } else if ("--trace".equals(args[i]) && i + 1 < args.length) {
+                traceId = args[++i];
+            } else {
+                inputs.add(Paths.get(args[i]));
+            }
+        }
+        if (inputs.isEmpty()) {
+            System.err.println("用法: java -cp hm-common.jar " + TraceReport.class.getName()
+                    + " [--top N] [--trace traceId] <文件或目录>...");
+            System.exit(2);
+        }
+        Map<String, Trace> traces = read(inputs);
+        if (traceId != null) {
+            Trace trace = traces.get(traceId);
+            if (trace == null) {
+                System.err.println("没有找到链路: " + traceId);
+                System.exit(1);
+            }
+            trace.print(System.out);
+            return;
+        }
+        print(traces.values(), top, System.out);
+    }
+
+    /**
+     * 读取span文件，按链路分组
+     */
+    public static Map<String, Trace> read(List<Path> inputs) throws IOException {
+        Map<String, Trace> traces = new HashMap<>();
+        for (Path input : inputs) {
+            for (Path file : files(input)) {
+                try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        Node node = Node.parse(line);
+                        if (node != null) {
+                            traces.computeIfAbsent(node.traceId, Trace::new).nodes.add(node);
+                        }
+                    }
+                }
+            }
+        }
+        traces.values().removeIf(trace -> !trace.link());
+        return traces;
+    }
+
+    private static List<Path> files(Path input) throws IOException {
+        if (!Files.isDirectory(input)) {
+            return List.of(input);
+        }
+        try (Stream<Path> walk = Files.walk(input)) {
+            return walk.filter(Files::isRegularFile)
+                    .filter(p -> p.getFileName().toString().startsWith(FILE_PREFIX))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * 输出关键路径汇总和最慢的top条链路
+     */
+    public static void print(Collection<Trace> traces, int top, PrintStream out) {
+        Map<String, long[]> shares = new HashMap<>();     // span -> [关键路径耗时, 出现在关键路径上的链路数]
+        long total = 0;
+        for (Trace trace : traces) {
+            total += trace.root.duration;
+            Set<String> seen = new HashSet<>();
+            trace.criticalSelf.forEach((node, micros) -> {
+                long[] share = shares.computeIfAbsent(node.key(), k -> new long[2]);
+                share[0] += micros;
+                if (seen.add(node.key())) {
+                    share[1]++;
+                }
+            });
+        }
+        out.printf("traces: %d, avg(ms): %.2f%n%n", traces.size(), traces.isEmpty() ? 0 : ms(total) / traces.size());
+        out.printf("%-72s %8s %10s %7s%n", "critical path (service kind name)", "traces", "avg(ms)", "share");
+        long sum = total;
+        shares.entrySet().stream()
+                .sorted(Comparator.comparingLong((Map.Entry<String, long[]> e) -> -e.getValue()[0]))
+                .forEach(e -> out.printf("%-72s %8d %10.2f %6.1f%%%n", e.getKey(), e.getValue()[1],
+                        ms(e.getValue()[0]) / traces.size(), sum == 0 ? 0 : e.getValue()[0] * 100.0 / sum));
+        List<Trace> slowest = new ArrayList<>(traces);
+        slowest.sort(Comparator.comparingLong((Trace t) -> -t.root.duration));
+        for (Trace trace : slowest.subList(0, Math.min(top, slowest.size()))) {
+            out.println();
+            trace.print(out);
+        }
+    }
+
+    private static double ms(long micros) {
+        return micros / 1000.0;
+    }
+
+    /**
+     * 一条链路
+     */
+    public static final class Trace {
+        private final String traceId;
+        private final List<Node> nodes = new ArrayList<>();
+        private Node root;
+        /**
+         * 关键路径上的span和它自己的耗时（微秒）
+         */
+        private final Map<Node, Long> criticalSelf = new HashMap<>();
+
+        Trace(String traceId) {
+            this.traceId = traceId;
+        }
+
+        /**
+         * 连成树并计算关键路径，没有根span时返回false
+         */
+        boolean link() {
+            Map<String, Node> byId = new HashMap<>();
+            for (Node node : nodes) {
+                byId.put(node.spanId, node);
+            }
+            for (Node node : nodes) {
+                Node parent = NO_PARENT.equals(node.parentId) ? null : byId.get(node.parentId);
+                if (parent == null) {
+                    // 链路起点，或者父span所在的服务没有把文件传进来
+                    if (root == null || node.start < root.start) {
+                        root = node;
+                    }
+                } else {
+                    node.parent = parent;
+                    parent.children.add(node);
+                }
+            }
+            if (root == null) {
+                return false;
+            }
+            for (Node node : nodes) {
+                node.children.sort(Comparator.comparingLong(n -> n.start));
+            }
+            root.critical = true;
+            critical(root, root.start, root.end());
+            return true;
+        }
+
+        /**
+         * 从后往前找关键路径：在[from, to]内，每次取结束得最晚的同步子span，它之后到当前位置的空档算父span自己的耗时
+         */
+        private void critical(Node node, long from, long to) {
+            long cursor = to;
+            long self = 0;
+            while (true) {
+                Node next = null;
+                long nextEnd = Long.MIN_VALUE;
+                for (Node child : node.children) {
+                    if (child.kind == Span.Kind.CONSUMER) {
+                        continue;
+                    }
+                    long end = Math.min(child.end(), cursor);
+                    if (child.start < cursor && end > nextEnd) {
+                        next = child;
+                        nextEnd = end;
+                    }
+                }
+                if (next == null || nextEnd <= from) {
+                    break;
+                }
+                self += cursor - nextEnd;
+                long childFrom = Math.max(next.start, from);
+                critical(next, childFrom, nextEnd);
+                cursor = childFrom;
+                next.critical = true;
+            }
+            self += Math.max(0, cursor - from);
+            criticalSelf.merge(node, self, Long::sum);
+        }
+
+        void print(PrintStream out) {
+            out.printf("trace %s  %.2fms  %d spans%n", traceId, ms(root.duration), nodes.size());
+            print(root, 1, out);
+        }
+
+        private void print(Node node, int depth, PrintStream out) {
+            String indent = "  ".repeat(depth);
+            Long self = criticalSelf.get(node);
+            StringBuilder extra = new StringBuilder();
+            if (self != null) {
+                extra.append(String.format("  self %.2fms", ms(self)));
+            }
+            if (node.kind == Span.Kind.CONSUMER && node.parent != null) {
+                extra.append(String.format("  queued %.2fms", ms(node.start - node.parent.end())));
+            }
+            if (!Span.SUCCESS.equals(node.outcome)) {
+                extra.append("  ").append(node.outcome);
+            }
+            out.printf("%s%s +%.2fms %.2fms  %s %s %s%s%n", node.critical ? "*" : " ", indent,
+                    ms(node.start - root.start), ms(node.duration), node.service, node.kind, node.name, extra);
+            for (Node child : node.children) {
+                print(child, depth + 1, out);
+            }
+        }
+    }
+
+    /**
+     * 文件中的一个span，时间是微秒
+     */
+    private static final class Node {
+        private final String traceId;
+        private final String spanId;
+        private final String parentId;
+        private final String service;
+        private final Span.Kind kind;
+        private final String name;
+        private final long start;
+        private final long duration;
+        private final String outcome;
+        private final List<Node> children = new ArrayList<>();
+        private Node parent;
+        private boolean critical;
+
+        private Node(String[] fields) {
+            this.traceId = fields[0];
+            this.spanId = fields[1];
+            this.parentId = fields[2];
+            this.service = fields[3];
+            this.kind = Span.Kind.valueOf(fields[4]);
+            this.name = fields[5];
+            this.start = Long.parseLong(fields[6]);
+            this.duration = Long.parseLong(fields[7]);
+            this.outcome = fields[8];
+        }
+
+        static Node parse(String line) {
+            String[] fields = line.split("\t", -1);
+            if (fields.length != 9) {
+                return null;
+            }
+            try {
+                return new Node(fields);
+            } catch (IllegalArgumentException e) {
+                // 写到一半的行（服务被强制停止）之类的，跳过
+                return null;
+            }
+        }
+
+        long end() {
+            return start + duration;
+        }
+
+        String key() {
+            return service + " " + kind + " " + name;
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.hmall.common.utils;
+
+import cn.hutool.core.bean.BeanUtil;
+
+import java.beans.Introspector;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 不走反射的bean拷贝
+ * hutool的BeanUtil.toBean每次拷贝都要反射解析属性、反射调用getter/setter。
+ * 这里每对 (源类型, 目标类型) 只在第一次拷贝时解析一次，用LambdaMetafactory把构造方法、getter、setter
+ * 生成成普通的Supplier/Function/BiConsumer缓存起来，之后每次拷贝都是普通的接口调用，JIT可以内联。
+ * 同名属性类型相同（或可以直接赋值）时直接拷贝，否则和hutool一样用hutool的Convert做类型转换。
+ * 源对象是Map、目标类型没有无参构造方法等情况，退回到hutool的实现。
+ */
+final class BeanCopier {
+
+    private static final Map<Class<?>, Map<Class<?>, Plan>> PLANS = new ConcurrentHashMap<>();
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private static final Plan UNSUPPORTED = new Plan(null, null);   //不支持的类型对，ConcurrentHashMap不能存null
+
+    private BeanCopier() {
+    }
+
+    /**
+     * 把source的属性拷贝到一个新的clazz对象中
+     */
+    static <T> T copy(Object source, Class<T> clazz) {
+        Plan plan = PLANS.computeIfAbsent(source.getClass(), k -> new ConcurrentHashMap<>())
+                .computeIfAbsent(clazz, target -> Plan.build(source.getClass(), target));
+        if (plan == UNSUPPORTED) {
+            return BeanUtil.toBean(source, clazz);
+        }
+        @SuppressWarnings("unchecked")
+        T target = (T) plan.constructor.get();
+        for (PropertyCopy property : plan.properties) {
+            property.copy(source, target);
+        }
+        return target;
+    }
+
+    /**
+     * 一对 (源类型, 目标类型) 的拷贝计划
+     */
+    private static final class Plan {
+        private final Supplier<Object> constructor;
+        private final PropertyCopy[] properties;
+
+        private Plan(Supplier<Object> constructor, PropertyCopy[] properties) {
+            this.constructor = constructor;
+            this.properties = properties;
+        }
+
+        /**
+         * 生成拷贝计划，不支持的类型返回UNSUPPORTED
+         */
+        static Plan build(Class<?> sourceClass, Class<?> targetClass) {
+            if (Map.class.isAssignableFrom(sourceClass) || targetClass.isInterface()
+                    || Modifier.isAbstract(targetClass.getModifiers()) || !Modifier.isPublic(targetClass.getModifiers())) {
+                return UNSUPPORTED;
+            }
+            try {
+                Supplier<Object> constructor = constructor(targetClass);
+                Map<String, Method> getters = getters(sourceClass);
+                List<PropertyCopy> properties = new ArrayList<>();
+                for (Map.Entry<String, Method> setter : setters(targetClass).entrySet()) {
+                    Method getter = getters.get(setter.getKey());
+                    if (getter != null) {
+                        properties.add(PropertyCopy.of(getter, setter.getValue()));
+                    }
+                }
+                return new Plan(constructor, properties.toArray(new PropertyCopy[0]));
+            } catch (Throwable e) {
+                return UNSUPPORTED;
+            }
+        }
+    }
+
+    /**
+     * 一个属性的拷贝：getter -> (类型转换) -> setter
+     */
+    private static final class PropertyCopy {
+        private final Function<Object, Object> getter;
+        private final BiConsumer<Object, Object> setter;
+        private final Type targetType;          //需要类型转换时的目标类型，不需要转换时为null
+        private final boolean primitiveTarget;  //setter参数是基本类型时，null值不拷贝
+
+        private PropertyCopy(Function<Object, Object> getter, BiConsumer<Object, Object> setter,
+                             Type targetType, boolean primitiveTarget) {
+            this.getter = getter;
+            this.setter = setter;
+            this.targetType = targetType;
+            this.primitiveTarget = primitiveTarget;
+        }
+
+        static PropertyCopy of(Method getter, Method setter) throws Throwable {
+            Type sourceType = getter.getGenericReturnType();
+            Type targetType = setter.getGenericParameterTypes()[0];
+            Class<?> targetClass = setter.getParameterTypes()[0];
+            boolean direct = sourceType.equals(targetType)
+                    || (targetType instanceof Class && box(targetClass).isAssignableFrom(box(getter.getReturnType())));
+            return new PropertyCopy(getter(getter), setter(setter), direct ? null : targetType, targetClass.isPrimitive());
+        }
+
+        void copy(Object source, Object target) {
+            Object value = getter.apply(source);
+            if (value != null && targetType != null) {
+                value = cn.hutool.core.convert.Convert.convert(targetType, value);
+            }
+            if (value == null && primitiveTarget) {
+                return;
+            }
+            setter.accept(target, value);
+        }
+    }
+
+    //public的getXxx()/isXxx()，属性名按JavaBean规则
+    private static Map<String, Method> getters(Class<?> clazz) {
+        Map<String, Method> getters = new HashMap<>();
+        for (Method method : clazz.getMethods()) {
+            if (method.getParameterCount() != 0 || Modifier.isStatic(method.getModifiers())
+                    || method.getDeclaringClass() == Object.class || method.getReturnType() == void.class) {
+                continue;
+            }
+            String name = method.getName();
+            if (name.startsWith("get") && name.length() > 3) {
+                getters.putIfAbsent(Introspector.decapitalize(name.substring(3)), method);
+            } else if (name.startsWith("is") && name.length() > 2 && method.getReturnType() == boolean.class) {
+                getters.putIfAbsent(Introspector.decapitalize(name.substring(2)), method);
+            }
+        }
+        return getters;
+    }
+
+    //public的setXxx(value)，允许有返回值（@Accessors(chain = true)生成的setter返回this）
+    private static Map<String, Method> setters(Class<?> clazz) {
+        Map<String, Method> setters = new HashMap<>();
+        for (Method method : clazz.getMethods()) {
+            String name = method.getName();
+            if (method.getParameterCount() == 1 && !Modifier.isStatic(method.getModifiers())
+                    && name.startsWith("set") && name.length() > 3) {
+                setters.putIfAbsent(Introspector.decapitalize(name.substring(3)), method);
+            }
+        }
+        return setters;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Supplier<Object> constructor(Class<?> clazz) throws Throwable {
+        MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(clazz, LOOKUP);
+        MethodHandle handle = lookup.findConstructor(clazz, MethodType.methodType(void.class));
+        CallSite site = LambdaMetafactory.metafactory(lookup, "get",
+                MethodType.methodType(Supplier.class), MethodType.methodType(Object.class),
+                handle, MethodType.methodType(clazz));
+        return (Supplier<Object>) site.getTarget().invokeExact();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Function<Object, Object> getter(Method method) throws Throwable {
+        MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(method.getDeclaringClass(), LOOKUP);
+        MethodHandle handle = lookup.unreflect(method);
+        CallSite site = LambdaMetafactory.metafactory(lookup, "apply",
+                MethodType.methodType(Function.class), MethodType.methodType(Object.class, Object.class),
+                handle, MethodType.methodType(box(method.getReturnType()), method.getDeclaringClass()));
+        return (Function<Object, Object>) site.getTarget().invokeExact();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static BiConsumer<Object, Object> setter(Method method) throws Throwable {
+        MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(method.getDeclaringClass(), LOOKUP);
+        MethodHandle handle = lookup.unreflect(method);
+        CallSite site = LambdaMetafactory.metafactory(lookup, "accept",
+                MethodType.methodType(BiConsumer.class), MethodType.methodType(void.class, Object.class, Object.class),
+                handle, MethodType.methodType(void.class, method.getDeclaringClass(), box(method.getParameterTypes()[0])));
+        return (BiConsumer<Object, Object>) site.getTarget().invokeExact();
+    }
+
+    private static Class<?> box(Class<?> type) {
+        return MethodType.methodType(type).wrap().returnType();
+    }
+}
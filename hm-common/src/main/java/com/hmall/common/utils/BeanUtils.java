@@ -2,11 +2,13 @@ package com.hmall.common.utils;
 
 import cn.hutool.core.bean.BeanUtil;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
 /**
  * 继承自 hutool 的BeanUtil，增加了bean转换时自定义转换器的功能
+ * copyBean、copyList、toBean、copyProperties(source, Class) 使用预先生成的拷贝计划（见BeanCopier），不再每次反射
  */
 public class BeanUtils extends BeanUtil {
 
@@ -40,14 +42,46 @@ public class BeanUtils extends BeanUtil {
         if (source == null) {
             return null;
         }
-        return toBean(source, clazz);
+        return BeanCopier.copy(source, clazz);
+    }
+
+    /**
+     * 覆盖hutool的同名方法，使用预先生成的拷贝计划
+     *
+     * @param source 原对象
+     * @param clazz  目标对象的class
+     * @param <T>    目标对象类型
+     * @return 目标对象
+     */
+    public static <T> T toBean(Object source, Class<T> clazz) {
+        return copyBean(source, clazz);
+    }
+
+    /**
+     * 覆盖hutool的同名方法，没有要忽略的属性时使用预先生成的拷贝计划
+     *
+     * @param source           原对象
+     * @param tClass           目标对象的class
+     * @param ignoreProperties 不拷贝的属性
+     * @param <T>              目标对象类型
+     * @return 目标对象
+     */
+    public static <T> T copyProperties(Object source, Class<T> tClass, String... ignoreProperties) {
+        if (ignoreProperties == null || ignoreProperties.length == 0) {
+            return copyBean(source, tClass);
+        }
+        return BeanUtil.copyProperties(source, tClass, ignoreProperties);
     }
 
     public static <R, T> List<T> copyList(List<R> list, Class<T> clazz) {
         if (list == null || list.size() == 0) {
             return CollUtils.emptyList();
         }
-        return copyToList(list, clazz);
+        List<T> result = new ArrayList<>(list.size());
+        for (R r : list) {
+            result.add(copyBean(r, clazz));
+        }
+        return result;
     }
 
     public static <R, T> List<T> copyList(List<R> list, Class<T> clazz, Convert<R, T> convert) {
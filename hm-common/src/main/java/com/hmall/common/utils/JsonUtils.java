@@ -0,0 +1,168 @@
+package com.hmall.common.utils;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.datatype.jsr310.deser.LocalDateTimeDeserializer;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+/**
+ * 全局共用的JSON编解码工具
+ * Redis缓存、ES结果解析使用这里的ObjectMapper，SpringMVC、Feign使用Spring Boot构建的ObjectMapper，
+ * JsonConfig把同样的规则（{@link #rulesModule()}、BlackbirdModule、下面关闭的两个特性）应用到Spring Boot的构建器上，规则保持一致：
+ * Long、BigInteger序列化成字符串（避免前端丢精度），时间按ISO格式，忽略未知属性。
+ * 注册了BlackbirdModule，属性的读写由LambdaMetafactory生成的访问器完成，不走反射。
+ * 以前用hutool写入Redis、ES的时间是毫秒时间戳，LocalDateTime反序列化时兼容这种格式。
+ * 除了String，也提供byte[]和流的读写，调用方可以直接对接Redis、ES的字节数据，省掉中间的String。
+ */
+public final class JsonUtils {
+
+    private static final ObjectMapper MAPPER = JsonMapper.builder()
+            .addModule(new Jdk8Module())
+            .addModule(new JavaTimeModule())
+            .addModule(new BlackbirdModule())
+            .addModule(rulesModule())
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+
+    private static final ObjectWriter STREAM_WRITER = MAPPER.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+    private JsonUtils() {
+    }
+
+    /**
+     * 共用的ObjectMapper，不要修改它的配置
+     */
+    public static ObjectMapper mapper() {
+        return MAPPER;
+    }
+
+    /**
+     * 序列化规则：Long、BigInteger -> 字符串，LocalDateTime兼容毫秒时间戳，每次返回新的实例
+     */
+    public static Module rulesModule() {
+        return new SimpleModule("hm-json-rules")
+                .addSerializer(Long.class, ToStringSerializer.instance)
+                .addSerializer(BigInteger.class, ToStringSerializer.instance)
+                .addDeserializer(LocalDateTime.class, new LenientLocalDateTimeDeserializer());
+    }
+
+    public static String toJson(Object value) {
+        try {
+            return MAPPER.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static byte[] toBytes(Object value) {
+        try {
+            return MAPPER.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 直接写到输出流，不会关闭流
+     */
+    public static void write(OutputStream out, Object value) {
+        try {
+            STREAM_WRITER.writeValue(out, value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static <T> T parse(String json, Class<T> clazz) {
+        try {
+            return MAPPER.readValue(json, clazz);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static <T> T parse(byte[] json, Class<T> clazz) {
+        try {
+            return MAPPER.readValue(json, clazz);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 从输入流读取，读完后关闭流
+     */
+    public static <T> T parse(InputStream in, Class<T> clazz) {
+        try {
+            return MAPPER.readValue(in, clazz);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static <T> List<T> parseList(String json, Class<T> elementClass) {
+        try {
+            return MAPPER.readValue(json, listType(elementClass));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static <T> List<T> parseList(byte[] json, Class<T> elementClass) {
+        try {
+            return MAPPER.readValue(json, listType(elementClass));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static JavaType listType(Class<?> elementClass) {
+        return MAPPER.getTypeFactory().constructCollectionType(List.class, elementClass);
+    }
+
+    /**
+     * 兼容毫秒时间戳（hutool的默认格式，按系统时区）的LocalDateTime反序列化
+     */
+    private static final class LenientLocalDateTimeDeserializer extends StdDeserializer<LocalDateTime> {
+
+        private static final long serialVersionUID = 1L;
+
+        LenientLocalDateTimeDeserializer() {
+            super(LocalDateTime.class);
+        }
+
+        @Override
+        public LocalDateTime deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            if (p.hasToken(JsonToken.VALUE_NUMBER_INT)) {
+                return LocalDateTime.ofInstant(Instant.ofEpochMilli(p.getLongValue()), ZoneId.systemDefault());
+            }
+            return LocalDateTimeDeserializer.INSTANCE.deserialize(p, ctxt);
+        }
+    }
+}
@@ -1,14 +1,19 @@
 package com.hmall.common.utils;
 
+import com.hmall.common.context.RequestContext;
+
+/**
+ * 当前登录用户，保存在RequestContext中（RequestContext还包含链路id和截止时间）
+ */
 public class UserContext {
-    private static final ThreadLocal<Long> tl = new ThreadLocal<>();
 
     /**
      * 保存当前登录用户信息到ThreadLocal
      * @param userId 用户id
      */
     public static void setUser(Long userId) {
-        tl.set(userId);
+        RequestContext context = RequestContext.current();
+        RequestContext.set(context == null ? new RequestContext(userId, null, null) : context.withUserId(userId));
     }
 
     /**
@@ -16,13 +21,14 @@ public class UserContext {
      * @return 用户id
      */
     public static Long getUser() {
-        return tl.get();
+        RequestContext context = RequestContext.current();
+        return context == null ? null : context.getUserId();
     }
 
     /**
      * 移除当前登录用户信息
      */
     public static void removeUser(){
-        tl.remove();
+        RequestContext.clear();
     }
 }
@@ -0,0 +1,47 @@
+package com.hmall.common.utils;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 虚拟线程工具
+ * 项目按Java 11编译，不能直接调用Java 21的API，这里在运行时查找 Executors.newVirtualThreadPerTaskExecutor，
+ * 运行在支持虚拟线程的JVM上时才能用。
+ */
+public class VirtualThreads {
+
+    private static final MethodHandle NEW_EXECUTOR = find();
+
+    private static MethodHandle find() {
+        try {
+            return MethodHandles.publicLookup().findStatic(Executors.class, "newVirtualThreadPerTaskExecutor",
+                    MethodType.methodType(ExecutorService.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 当前JVM是否支持虚拟线程
+     */
+    public static boolean isSupported() {
+        return NEW_EXECUTOR != null;
+    }
+
+    /**
+     * 每个任务一个虚拟线程的线程池，不支持虚拟线程时返回null
+     */
+    public static ExecutorService newExecutor() {
+        if (NEW_EXECUTOR == null) {
+            return null;
+        }
+        try {
+            return (ExecutorService) NEW_EXECUTOR.invokeExact();
+        } catch (Throwable e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.hmall.common.cache;
+
+import com.hmall.common.config.TwoLevelCacheProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.cache.support.NullValue;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TwoLevelCacheTest {
+
+    private static final String PREFIX = "cache:item:";
+
+    /**
+     * 用Map模拟Redis，同时记下每次写入的过期时间
+     */
+    private final Map<String, Object> redis = new ConcurrentHashMap<>();
+    private final Map<String, Duration> timeouts = new ConcurrentHashMap<>();
+
+    private final TwoLevelCacheProperties properties = new TwoLevelCacheProperties();
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    private TwoLevelCache cache;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+        ValueOperations<String, Object> ops = mock(ValueOperations.class);
+        when(redisTemplate.opsForValue()).thenReturn(ops);
+        when(ops.get(anyString())).thenAnswer(inv -> redis.get(inv.<String>getArgument(0)));
+        doAnswer(inv -> {
+            redis.put(inv.getArgument(0), inv.getArgument(1));
+            timeouts.put(inv.getArgument(0), inv.getArgument(2));
+            return null;
+        }).when(ops).set(anyString(), any(), any(Duration.class));
+        when(redisTemplate.delete(anyString())).thenAnswer(inv -> redis.remove(inv.<String>getArgument(0)) != null);
+        TwoLevelCacheManager manager = new TwoLevelCacheManager(properties, redisTemplate,
+                mock(RabbitTemplate.class), new SimpleMeterRegistry());
+        cache = (TwoLevelCache) manager.getCache("item");
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void concurrentGetsLoadOnce() throws Exception {
+        int threads = 16;
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        Callable<String> loader = () -> {
+            calls.incrementAndGet();
+            release.await();
+            return "item-1";
+        };
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            results.add(executor.submit(() -> cache.get(1L, loader)));
+        }
+        // 让其它线程有机会赶上正在进行的加载；来晚的线程直接命中本地缓存，加载次数同样是1
+        TimeUnit.MILLISECONDS.sleep(100);
+        release.countDown();
+
+        for (Future<String> result : results) {
+            assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("item-1");
+        }
+        assertThat(calls).hasValue(1);
+        assertThat(redis).containsEntry(PREFIX + "1", "item-1");
+    }
+
+    @Test
+    void evictDuringLoadDiscardsTheLoadedValue() throws Exception {
+        assertStaleLoadDiscarded(() -> cache.evict(1L));
+    }
+
+    @Test
+    void remoteInvalidationDuringLoadDiscardsTheLoadedValue() throws Exception {
+        assertStaleLoadDiscarded(() -> cache.invalidateLocal("1"));
+    }
+
+    @Test
+    void putDuringLoadKeepsTheNewValue() throws Exception {
+        CountDownLatch loaded = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> inflight = executor.submit(() -> cache.get(1L, () -> {
+            loaded.countDown();
+            release.await();
+            return "old";
+        }));
+        assertThat(loaded.await(5, TimeUnit.SECONDS)).isTrue();
+
+        cache.put(1L, "new");
+        release.countDown();
+        inflight.get(5, TimeUnit.SECONDS);
+
+        assertThat(redis).containsEntry(PREFIX + "1", "new");
+        assertThat(cache.get(1L, () -> "reloaded")).isEqualTo("new");
+    }
+
+    /**
+     * 加载线程从数据库读到旧值之后、写缓存之前key被删除，旧值不能再写进Redis和本地缓存
+     */
+    private void assertStaleLoadDiscarded(Runnable invalidation) throws Exception {
+        CountDownLatch loaded = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> inflight = executor.submit(() -> cache.get(1L, () -> {
+            loaded.countDown();
+            release.await();
+            return "old";
+        }));
+        assertThat(loaded.await(5, TimeUnit.SECONDS)).isTrue();
+
+        invalidation.run();
+        release.countDown();
+
+        // 发起加载的调用方仍然拿到自己读到的值，只是不进缓存
+        assertThat(inflight.get(5, TimeUnit.SECONDS)).isEqualTo("old");
+        assertThat(redis).doesNotContainKey(PREFIX + "1");
+        assertThat(cache.get(1L, () -> "new")).isEqualTo("new");
+        assertThat(redis).containsEntry(PREFIX + "1", "new");
+    }
+
+    @Test
+    void redisTtlIsJittered() {
+        Duration ttl = properties.spec("item").getTtl();
+        for (long id = 0; id < 200; id++) {
+            cache.put(id, "item-" + id);
+        }
+
+        assertThat(timeouts.values()).allSatisfy(timeout -> assertThat(timeout)
+                .isBetween(ttl.multipliedBy(9).dividedBy(10), ttl.multipliedBy(11).dividedBy(10)));
+        // 200个key的过期时间不会都一样
+        assertThat(timeouts.values().stream().distinct().count()).isGreaterThan(1);
+    }
+
+    @Test
+    void nullValueUsesNullValueTtl() {
+        assertThat(cache.get(1L, () -> null)).isNull();
+
+        assertThat(redis).containsEntry(PREFIX + "1", NullValue.INSTANCE);
+        assertThat(timeouts).containsEntry(PREFIX + "1", properties.getNullValueTtl());
+    }
+}
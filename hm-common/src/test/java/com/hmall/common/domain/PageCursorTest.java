@@ -0,0 +1,62 @@
+package com.hmall.common.domain;
+
+import com.hmall.common.exception.BadRequestException;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PageCursorTest {
+
+    @Test
+    void roundTripKeepsSortValueType() {
+        LocalDateTime time = LocalDateTime.of(2024, 5, 1, 12, 30, 15, 123_000_000);
+        assertRoundTrip(time, time);
+        assertRoundTrip(42L, 42L);
+        // 整数类型统一还原成Long
+        assertRoundTrip(42, 42L);
+        assertRoundTrip(new BigDecimal("1E+3"), new BigDecimal("1000"));
+        assertRoundTrip(0.1d, new BigDecimal("0.1"));
+        // 排序字段中的分隔符不影响解析
+        assertRoundTrip("a|b|c", "a|b|c");
+        assertRoundTrip("", "");
+        // 排序字段为null的记录也能作为游标
+        assertRoundTrip(null, null);
+    }
+
+    private static void assertRoundTrip(Object sortValue, Object expected) {
+        PageCursor cursor = PageCursor.decode(new PageCursor(sortValue, 7L).encode());
+        assertThat(cursor.getId()).isEqualTo(7L);
+        assertThat(cursor.getSortValue()).isEqualTo(expected);
+    }
+
+    @Test
+    void encodedCursorIsUrlSafe() {
+        String encoded = new PageCursor("???>>>", Long.MAX_VALUE).encode();
+        assertThat(encoded).doesNotContain("+", "/", "=");
+    }
+
+    @Test
+    void rejectsMalformedCursor() {
+        assertThatThrownBy(() -> PageCursor.decode("not base64!")).isInstanceOf(BadRequestException.class);
+        assertThatThrownBy(() -> PageCursor.decode(encode("12"))).isInstanceOf(BadRequestException.class);
+        assertThatThrownBy(() -> PageCursor.decode(encode("x|L|1"))).isInstanceOf(BadRequestException.class);
+        assertThatThrownBy(() -> PageCursor.decode(encode("1|L|abc"))).isInstanceOf(BadRequestException.class);
+        assertThatThrownBy(() -> PageCursor.decode(encode("1|Q|abc"))).isInstanceOf(BadRequestException.class);
+        assertThatThrownBy(() -> PageCursor.decode(encode("1|N|abc"))).isInstanceOf(BadRequestException.class);
+    }
+
+    @Test
+    void rejectsUnsupportedValues() {
+        assertThatThrownBy(() -> new PageCursor(1L, null)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new PageCursor(new Object(), 1L).encode()).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static String encode(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes());
+    }
+}
@@ -0,0 +1,87 @@
+package com.hmall.common.exception;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.hmall.common.advice.CommonExceptionAdvice;
+import com.hmall.common.utils.JsonUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 业务拒绝的开销：每次 new BizIllegalException（填充堆栈）+ 异常处理器构造R + 序列化，
+ * 对比抛出共享的 ErrorCodes.X.exception() + 直接返回预先序列化的响应体。
+ * depth是抛出异常时的调用栈深度，SpringMVC的请求处理通常有上百层，堆栈越深填充越贵。
+ * 日志关掉，只比较异常和响应体本身（原来每次都打error日志，实际差距更大）。
+ * 在IDE中运行main方法，或者用 test classpath 执行 java com.hmall.common.exception.ErrorCodeBenchmark。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ErrorCodeBenchmark {
+
+    @Param({"20", "150"})
+    private int depth;
+
+    private final CommonExceptionAdvice advice = new CommonExceptionAdvice();
+
+    @Setup
+    public void setup() {
+        ((Logger) LoggerFactory.getLogger(CommonExceptionAdvice.class)).setLevel(Level.OFF);
+    }
+
+    @Benchmark
+    public byte[] newException() {
+        try {
+            throwAt(depth, false);
+        } catch (CommonException e) {
+            ResponseEntity<?> response = (ResponseEntity<?>) advice.handleBadRequestException(e);
+            // 原来由SpringMVC把R序列化成JSON
+            return JsonUtils.toBytes(response.getBody());
+        }
+        throw new IllegalStateException("没有抛出异常");
+    }
+
+    @Benchmark
+    public byte[] errorCode() {
+        try {
+            throwAt(depth, true);
+        } catch (BizRejectException e) {
+            return advice.handleBizRejectException(e).getBody();
+        }
+        throw new IllegalStateException("没有抛出异常");
+    }
+
+    private static void throwAt(int depth, boolean shared) {
+        if (depth > 0) {
+            throwAt(depth - 1, shared);
+            return;
+        }
+        if (shared) {
+            throw ErrorCodes.STOCK_NOT_ENOUGH.exception();
+        }
+        throw new BizIllegalException("库存不足！");
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ErrorCodeBenchmark.class.getSimpleName()).build()).run();
+    }
+}
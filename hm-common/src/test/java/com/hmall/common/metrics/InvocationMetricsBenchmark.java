@@ -0,0 +1,83 @@
+package com.hmall.common.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 每次调用记录指标的额外开销（纳秒/次），和服务中一样使用Prometheus的MeterRegistry
+ * bare：不记录指标；site：InvocationMetrics缓存的调用点；lookup：每次拼Tag到MeterRegistry中查找Timer（缓存前的写法）。
+ * 4个线程同时记录同一个调用点，接近线上热点statement的情况。
+ * 在IDE中运行main方法，或者用 test classpath 执行 java com.hmall.common.metrics.InvocationMetricsBenchmark。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class InvocationMetricsBenchmark {
+
+    private static final String NAME = "hm.mybatis";
+
+    private static final String STATEMENT = "com.hmall.item.mapper.ItemMapper.updateStock";
+
+    private MeterRegistry registry;
+
+    private InvocationMetrics metrics;
+
+    @Setup
+    public void setup() {
+        registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        metrics = new InvocationMetrics(registry, NAME, "SQL耗时");
+    }
+
+    private static Tags tags(String statement) {
+        return Tags.of("statement", statement, "command", "UPDATE");
+    }
+
+    @Benchmark
+    public long bare() {
+        return System.nanoTime();
+    }
+
+    @Benchmark
+    public long site() {
+        long start = System.nanoTime();
+        metrics.site(STATEMENT, InvocationMetricsBenchmark::tags).record(start, null);
+        return start;
+    }
+
+    @Benchmark
+    public long lookup() {
+        long start = System.nanoTime();
+        Timer.builder(NAME)
+                .tags(tags(STATEMENT)).tag("outcome", "SUCCESS").tag("exception", "none")
+                .register(registry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return start;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(InvocationMetricsBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,108 @@
+package com.hmall.common.mq;
+
+import com.hmall.common.domain.ItemDTO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.MessageConverter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MQ消息编解码：Jackson2JsonMessageConverter 对比 CompactMessageConverter
+ * publish是发送方的序列化，consume是消费方按监听方法参数类型的反序列化，单位是每毫秒的消息数。
+ * 每种组合的消息大小（消息体 + 转换器加的消息头）在启动时打印一行 [size]。
+ * 在IDE中运行main方法，或者用 test classpath 执行 java com.hmall.common.mq.CompactMessageConverterBenchmark。
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CompactMessageConverterBenchmark {
+
+    @Param({"JSON", "COMPACT"})
+    private String codec;
+
+    /**
+     * orderId：最常见的消息，只有一个雪花id；item：一个DTO
+     */
+    @Param({"orderId", "item"})
+    private String payload;
+
+    private MessageConverter converter;
+
+    private Object value;
+
+    private Message message;
+
+    @Setup
+    public void setup() {
+        converter = "COMPACT".equals(codec) ? new CompactMessageConverter() : new Jackson2JsonMessageConverter();
+        value = "item".equals(payload) ? item() : 1848345186352545792L;
+        message = converter.toMessage(value, new MessageProperties());
+        message.getMessageProperties().setInferredArgumentType(value.getClass());
+        System.out.printf("[size] %s %s: body %d bytes, headers %d bytes%n",
+                codec, payload, message.getBody().length, headerBytes(message.getMessageProperties()));
+    }
+
+    private static ItemDTO item() {
+        ItemDTO item = new ItemDTO();
+        item.setId(317578L);
+        item.setName("RIMOWA 21寸托运箱拉杆箱 SALSA AIR系列果绿色 820.70.36.4");
+        item.setPrice(29900);
+        item.setStock(10000);
+        item.setImage("https://m.360buyimg.com/mobilecms/s720x720_jfs/t6934/364/1195375010/84676/e9f2c55f/597ece38N0ddcbc77.jpg!q70.jpg.webp");
+        item.setCategory("拉杆箱");
+        item.setBrand("RIMOWA");
+        item.setSpec("{\"颜色\": \"红色\", \"尺码\": \"26寸\"}");
+        item.setSold(0);
+        item.setCommentCount(0);
+        item.setIsAD(false);
+        item.setStatus(2);
+        return item;
+    }
+
+    /**
+     * 转换器写入的消息头：content-type和__TypeId__等自定义头
+     */
+    private static int headerBytes(MessageProperties properties) {
+        int size = properties.getContentType() == null ? 0 : properties.getContentType().length();
+        for (Map.Entry<String, Object> header : properties.getHeaders().entrySet()) {
+            size += header.getKey().getBytes(StandardCharsets.UTF_8).length
+                    + String.valueOf(header.getValue()).getBytes(StandardCharsets.UTF_8).length;
+        }
+        return size;
+    }
+
+    @Benchmark
+    public Message publish() {
+        return converter.toMessage(value, new MessageProperties());
+    }
+
+    @Benchmark
+    public Object consume() {
+        return converter.fromMessage(message);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(CompactMessageConverterBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,99 @@
+package com.hmall.common.mq;
+
+import com.hmall.common.domain.ItemDTO;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.MessageConversionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CompactMessageConverterTest {
+
+    private final CompactMessageConverter converter = new CompactMessageConverter();
+
+    private Message send(Object object) {
+        return converter.toMessage(object, new MessageProperties());
+    }
+
+    @ParameterizedTest
+    @ValueSource(longs = {0, 1, -1, 63, -64, 64, -65, 1_700_000_000_000L, 1848345186352545792L,
+            Integer.MIN_VALUE, Integer.MAX_VALUE, Long.MIN_VALUE, Long.MAX_VALUE})
+    void longRoundTrip(long value) {
+        Message message = send(value);
+        assertThat(message.getMessageProperties().getContentType()).isEqualTo(CompactMessageConverter.CONTENT_TYPE);
+        assertThat(converter.fromMessage(message)).isEqualTo(value);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, -1, -2, -1000, 1000, Integer.MIN_VALUE, Integer.MAX_VALUE})
+    void intRoundTripKeepsType(int value) {
+        assertThat(converter.fromMessage(send(value))).isInstanceOf(Integer.class).isEqualTo(value);
+    }
+
+    @Test
+    void zigzagKeepsSmallNegativesShort() {
+        // 类型标记 + 1个字节
+        assertThat(send(0L).getBody()).hasSize(2);
+        assertThat(send(-1L).getBody()).hasSize(2);
+        assertThat(send(-64L).getBody()).hasSize(2);
+        assertThat(send(-65L).getBody()).hasSize(3);
+        assertThat(send(64L).getBody()).hasSize(3);
+        // 64位的极值需要10个字节
+        assertThat(send(Long.MIN_VALUE).getBody()).hasSize(11);
+        assertThat(send(Long.MAX_VALUE).getBody()).hasSize(11);
+    }
+
+    @Test
+    void stringBooleanAndNullRoundTrip() {
+        assertThat(converter.fromMessage(send(""))).isEqualTo("");
+        assertThat(send("").getBody()).hasSize(1);
+        assertThat(converter.fromMessage(send("订单-1"))).isEqualTo("订单-1");
+        assertThat(converter.fromMessage(send(true))).isEqualTo(true);
+        assertThat(converter.fromMessage(send(false))).isEqualTo(false);
+    }
+
+    @Test
+    void objectRoundTripByTypeIdHeader() {
+        ItemDTO item = new ItemDTO();
+        item.setId(317578L);
+        item.setName("RIMOWA 21寸托运箱");
+        item.setPrice(29900);
+        Message message = send(item);
+        assertThat(message.getMessageProperties().getHeaders()).containsEntry("__TypeId__", ItemDTO.class.getName());
+        assertThat(converter.fromMessage(message)).isEqualTo(item);
+    }
+
+    @Test
+    void objectPrefersInferredArgumentType() {
+        ItemDTO item = new ItemDTO();
+        item.setId(1L);
+        Message message = send(item);
+        message.getMessageProperties().getHeaders().remove("__TypeId__");
+        message.getMessageProperties().setInferredArgumentType(ItemDTO.class);
+        assertThat(converter.fromMessage(message)).isEqualTo(item);
+    }
+
+    @Test
+    void rejectsUntrustedTypeId() {
+        Message message = send(new ItemDTO());
+        message.getMessageProperties().setHeader("__TypeId__", "javax.management.ObjectName");
+        assertThatThrownBy(() -> converter.fromMessage(message))
+                .isInstanceOf(MessageConversionException.class)
+                .hasMessageContaining("javax.management.ObjectName");
+    }
+
+    @Test
+    void rejectsCorruptBody() {
+        // 变长整数没有结束字节
+        Message truncated = new Message(new byte[]{1, (byte) 0x80, (byte) 0x80}, new MessageProperties());
+        assertThatThrownBy(() -> converter.fromMessage(truncated)).isInstanceOf(MessageConversionException.class);
+        Message unknownTag = new Message(new byte[]{42}, new MessageProperties());
+        assertThatThrownBy(() -> converter.fromMessage(unknownTag)).isInstanceOf(MessageConversionException.class);
+        Message empty = new Message(new byte[0], new MessageProperties());
+        assertThatThrownBy(() -> converter.fromMessage(empty)).isInstanceOf(MessageConversionException.class);
+    }
+}
@@ -0,0 +1,101 @@
+package com.hmall.common.trace;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TraceReportTest {
+
+    private static final long BASE = 1_700_000_000_000_000L;
+
+    @TempDir
+    Path dir;
+
+    private final List<String> lines = new ArrayList<>();
+
+    /**
+     * 手工写一个span，时间单位是毫秒（相对链路起点）
+     */
+    private void span(String spanId, String parentId, String service, Span.Kind kind, String name, long startMs, long durationMs) {
+        lines.add(String.join("\t", "t1", spanId, parentId, service, kind.name(), name,
+                String.valueOf(BASE + startMs * 1000), String.valueOf(durationMs * 1000), Span.SUCCESS));
+    }
+
+    /**
+     * 网关 [0,100]：先调购物车 [10,30]，20ms时并发调商品 [20,90]，最后发一条MQ消息 [91,92]，
+     * 消息在 [95,300] 被异步消费
+     */
+    private Map<String, TraceReport.Trace> checkoutTrace() throws IOException {
+        span("root", "-", "gateway", Span.Kind.SERVER, "POST /orders", 0, 100);
+        span("c1", "root", "gateway", Span.Kind.CLIENT, "cart", 10, 20);
+        span("s1", "c1", "cart-service", Span.Kind.SERVER, "GET /carts", 12, 16);
+        span("c2", "root", "gateway", Span.Kind.CLIENT, "item", 20, 70);
+        span("s2", "c2", "item-service", Span.Kind.SERVER, "GET /items", 25, 60);
+        span("p1", "root", "gateway", Span.Kind.PRODUCER, "publish trade.topic/order.create", 91, 1);
+        span("m1", "p1", "trade-service", Span.Kind.CONSUMER, "consume exchange:trade.topic", 95, 205);
+        Path file = dir.resolve("spans.log");
+        Files.write(file, lines, StandardCharsets.UTF_8);
+        return TraceReport.read(List.of(dir));
+    }
+
+    private static List<String> print(TraceReport.Trace trace) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Locale previous = Locale.getDefault();
+        Locale.setDefault(Locale.ROOT);
+        try {
+            trace.print(new PrintStream(out, true, StandardCharsets.UTF_8));
+        } finally {
+            Locale.setDefault(previous);
+        }
+        return List.of(out.toString(StandardCharsets.UTF_8).split("\n"));
+    }
+
+    private static String line(List<String> lines, String name) {
+        return lines.stream().filter(l -> l.contains(name)).findFirst().orElseThrow();
+    }
+
+    @Test
+    void criticalPathFollowsTheLastFinishingChild() throws IOException {
+        List<String> out = print(checkoutTrace().get("t1"));
+
+        // 100 = 网关自己19 + 购物车CLIENT 2 + 购物车SERVER 8 + 商品CLIENT 10 + 商品SERVER 60 + 发送1
+        assertThat(line(out, "gateway SERVER POST /orders")).startsWith("*").contains("self 19.00ms");
+        assertThat(line(out, "gateway CLIENT item")).startsWith("*").contains("self 10.00ms");
+        assertThat(line(out, "item-service SERVER GET /items")).startsWith("*").contains("self 60.00ms");
+        assertThat(line(out, "gateway PRODUCER")).startsWith("*").contains("self 1.00ms");
+        // 购物车调用和商品调用重叠，只有商品调用开始之前的部分在关键路径上
+        assertThat(line(out, "gateway CLIENT cart")).startsWith("*").contains("self 2.00ms");
+        assertThat(line(out, "cart-service SERVER GET /carts")).startsWith("*").contains("self 8.00ms");
+    }
+
+    @Test
+    void consumerIsAnAsyncBranchWithQueueTime() throws IOException {
+        String consumer = line(print(checkoutTrace().get("t1")), "trade-service CONSUMER");
+
+        assertThat(consumer).startsWith(" ").doesNotContain("self").contains("queued 3.00ms");
+    }
+
+    @Test
+    void spanWithMissingParentBecomesRoot() throws IOException {
+        span("orphan", "missing", "cart-service", Span.Kind.SERVER, "GET /carts", 0, 10);
+        lines.set(0, lines.get(0).replace("t1", "t2"));
+
+        Map<String, TraceReport.Trace> traces = checkoutTrace();
+
+        // 父span不在文件里的span自己作为根，t2只有这一个span，仍然能分析
+        assertThat(traces).containsKeys("t1", "t2");
+        assertThat(line(print(traces.get("t2")), "GET /carts")).contains("self 10.00ms");
+    }
+}
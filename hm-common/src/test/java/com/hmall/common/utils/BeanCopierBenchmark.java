@@ -0,0 +1,153 @@
+package com.hmall.common.utils;
+
+import cn.hutool.core.bean.BeanUtil;
+import com.hmall.common.domain.Item;
+import com.hmall.common.domain.ItemDTO;
+import lombok.Data;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * bean拷贝：hutool的BeanUtil（每次反射）对比BeanUtils的缓存拷贝计划（LambdaMetafactory生成的访问器）
+ * direct：Item -> ItemDTO，同名属性类型相同；
+ * convert：基本类型 -> 包装类型（装箱），以及 int -> Long、long -> String、LocalDateTime -> String（走hutool的Convert）；
+ * list：100个Item的copyList。
+ * 在IDE中运行main方法，或者用 test classpath 执行 java com.hmall.common.utils.BeanCopierBenchmark。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BeanCopierBenchmark {
+
+    private Item item;
+
+    private Primitives primitives;
+
+    private List<Item> items;
+
+    @Setup
+    public void setup() {
+        item = item(1);
+        primitives = new Primitives();
+        primitives.setId(1848345186352545792L);
+        primitives.setPrice(29900);
+        primitives.setStock(10000);
+        primitives.setSold(12);
+        primitives.setEnabled(true);
+        primitives.setCreateTime(LocalDateTime.of(2024, 5, 1, 12, 30, 15));
+        items = new ArrayList<>(100);
+        for (int i = 0; i < 100; i++) {
+            items.add(item(i));
+        }
+    }
+
+    private static Item item(int i) {
+        Item item = new Item();
+        item.setId(317578L + i);
+        item.setName("RIMOWA 21寸托运箱拉杆箱 SALSA AIR系列果绿色 820.70.36.4");
+        item.setPrice(29900);
+        item.setStock(10000);
+        item.setImage("https://m.360buyimg.com/mobilecms/s720x720_jfs/t6934/364/1195375010/84676/e9f2c55f/597ece38N0ddcbc77.jpg");
+        item.setCategory("拉杆箱");
+        item.setBrand("RIMOWA");
+        item.setSpec("{\"颜色\": \"红色\", \"尺码\": \"26寸\"}");
+        item.setSold(i);
+        item.setCommentCount(0);
+        item.setIsAD(false);
+        item.setStatus(1);
+        item.setCreateTime(LocalDateTime.of(2024, 5, 1, 12, 30, 15));
+        item.setUpdateTime(LocalDateTime.of(2024, 5, 2, 8, 0, 0));
+        return item;
+    }
+
+    @Benchmark
+    public ItemDTO directHutool() {
+        return BeanUtil.copyProperties(item, ItemDTO.class);
+    }
+
+    @Benchmark
+    public ItemDTO directPlan() {
+        return BeanUtils.copyBean(item, ItemDTO.class);
+    }
+
+    @Benchmark
+    public Converted convertHutool() {
+        return BeanUtil.copyProperties(primitives, Converted.class);
+    }
+
+    @Benchmark
+    public Converted convertPlan() {
+        return BeanUtils.copyBean(primitives, Converted.class);
+    }
+
+    @Benchmark
+    public List<ItemDTO> listHutool() {
+        return BeanUtil.copyToList(items, ItemDTO.class);
+    }
+
+    @Benchmark
+    public List<ItemDTO> listPlan() {
+        return BeanUtils.copyList(items, ItemDTO.class);
+    }
+
+    @Data
+    public static class Primitives {
+        private long id;
+        private int price;
+        private int stock;
+        private int sold;
+        private boolean enabled;
+        private LocalDateTime createTime;
+    }
+
+    @Data
+    public static class Converted {
+        /**
+         * long -> String
+         */
+        private String id;
+        /**
+         * int -> Integer，装箱
+         */
+        private Integer price;
+        /**
+         * int -> Long
+         */
+        private Long stock;
+        /**
+         * int -> Integer，装箱
+         */
+        private Integer sold;
+        /**
+         * boolean -> Boolean，装箱
+         */
+        private Boolean enabled;
+        /**
+         * LocalDateTime -> String
+         */
+        private String createTime;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(BeanCopierBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,142 @@
+package com.hmall.gateway.bff;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.hmall.common.context.RequestContext;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.client.loadbalancer.reactive.LoadBalancedExchangeFilterFunction;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.ReactiveLoadBalancerClientFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+
+import java.time.Duration;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.setAlreadyRouted;
+
+/**
+ * 购物车页面的BFF聚合过滤器，在路由上配置 filters: - CartPageAggregation
+ * 并行请求购物车列表和收货地址列表，合并成 {"carts": [...], "addresses": [...]} 一次返回，
+ * 页面只需要一次往返，耗时等于最慢的那个请求。
+ * 作为路由过滤器而不是Controller实现，这样鉴权、限流等全局过滤器照常生效，下游也能拿到user-info。
+ * 购物车请求失败时整个请求失败；地址请求失败时addresses返回null，页面仍然可以展示购物车。
+ * 下游地址写成 http://服务名/路径，由负载均衡的ExchangeFilterFunction选实例，和网关转发共用同一个HttpClient连接池。
+ */
+@Slf4j
+@Component
+public class CartPageAggregationGatewayFilterFactory
+        extends AbstractGatewayFilterFactory<CartPageAggregationGatewayFilterFactory.Config> {
+
+    private static final String[] FORWARD_HEADERS = {
+            RequestContext.USER_HEADER, RequestContext.TRACE_HEADER, RequestContext.SPAN_HEADER};
+
+    private final WebClient webClient;
+
+    private final ObjectMapper objectMapper;
+
+    public CartPageAggregationGatewayFilterFactory(HttpClient httpClient, LoadBalancedExchangeFilterFunction loadBalancer,
+                                                   ObjectMapper objectMapper) {
+        super(Config.class);
+        // 自己构建WebClient，不注册全局的WebClient.Builder，免得替换掉Spring Boot默认的Builder
+        this.webClient = WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .filter(loadBalancer)
+                .build();
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        // 在负载均衡之前执行，鉴权、限流等过滤器都已经执行完了
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            setAlreadyRouted(exchange);
+            HttpHeaders inbound = exchange.getRequest().getHeaders();
+            Mono<JsonNode> carts = get(config.getCartUri(), inbound, config.getTimeout());
+            Mono<JsonNode> addresses = get(config.getAddressUri(), inbound, config.getTimeout())
+                    .onErrorResume(e -> {
+                        log.warn("购物车页面查询收货地址失败，返回空地址", e);
+                        return Mono.just(NullNode.getInstance());
+                    });
+            return Mono.zip(carts, addresses)
+                    .flatMap(tuple -> {
+                        ObjectNode page = objectMapper.createObjectNode();
+                        page.set("carts", tuple.getT1());
+                        page.set("addresses", tuple.getT2());
+                        return write(exchange, HttpStatus.OK, page);
+                    })
+                    .onErrorResume(e -> {
+                        if (e instanceof WebClientResponseException) {
+                            // 下游的4xx（比如未登录）原样返回状态码
+                            return write(exchange, ((WebClientResponseException) e).getStatusCode(), NullNode.getInstance());
+                        }
+                        log.error("购物车页面聚合失败", e);
+                        return write(exchange, HttpStatus.BAD_GATEWAY, NullNode.getInstance());
+                    });
+        }, ReactiveLoadBalancerClientFilter.LOAD_BALANCER_CLIENT_FILTER_ORDER - 1);
+    }
+
+    private Mono<JsonNode> get(String uri, HttpHeaders inbound, Duration timeout) {
+        return webClient.get()
+                .uri(uri)
+                .headers(headers -> {
+                    // 用户信息和链路信息（AuthGlobalFilter加上的），下游的SERVER span挂在网关的SERVER span下
+                    for (String name : FORWARD_HEADERS) {
+                        String value = inbound.getFirst(name);
+                        if (value != null) {
+                            headers.set(name, value);
+                        }
+                    }
+                })
+                .retrieve()
+                .bodyToMono(JsonNode.class)
+                .defaultIfEmpty(NullNode.getInstance())
+                .timeout(timeout);
+    }
+
+    private Mono<Void> write(ServerWebExchange exchange, HttpStatus status, JsonNode body) {
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(status);
+        if (body.isNull()) {
+            return response.setComplete();
+        }
+        byte[] bytes;
+        try {
+            bytes = objectMapper.writeValueAsBytes(body);
+        } catch (Exception e) {
+            return Mono.error(e);
+        }
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        response.getHeaders().setContentLength(bytes.length);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(bytes)));
+    }
+
+    @Data
+    public static class Config {
+        /**
+         * 购物车列表地址
+         */
+        private String cartUri = "http://cart-service/carts";
+        /**
+         * 收货地址列表地址
+         */
+        private String addressUri = "http://user-service/addresses";
+        /**
+         * 每个下游请求的超时时间
+         */
+        private Duration timeout = Duration.ofSeconds(3);
+    }
+}
@@ -0,0 +1,33 @@
+package com.hmall.gateway.cache;
+
+import com.hmall.common.constants.MqConstants;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.ExchangeTypes;
+import org.springframework.amqp.rabbit.annotation.Exchange;
+import org.springframework.amqp.rabbit.annotation.Queue;
+import org.springframework.amqp.rabbit.annotation.QueueBinding;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * 监听item-service发出的商品变更广播，清理本网关实例的响应缓存
+ * 队列不指定名字 ---> 每个网关实例一个匿名的、断开即删除的队列，广播给所有实例
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "hm.response-cache", name = "enabled", havingValue = "true")
+public class ItemChangeListener {
+
+    private final ResponseCache responseCache;
+
+    @RabbitListener(bindings = @QueueBinding(
+            value = @Queue,
+            exchange = @Exchange(name = MqConstants.ITEM_CHANGE_EXCHANGE, type = ExchangeTypes.FANOUT)
+    ))
+    public void onItemChange(Long itemId) {
+        responseCache.evictItem(itemId);
+    }
+}
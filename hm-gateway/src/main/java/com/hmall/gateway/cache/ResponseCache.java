@@ -0,0 +1,138 @@
+package com.hmall.gateway.cache;
+
+import cn.hutool.crypto.SecureUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.hmall.gateway.config.ResponseCacheProperties;
+import com.hmall.gateway.utils.PathExcludeMatcher;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 网关响应缓存的存储
+ * 按规则配置的ttl过期，按响应字节数限制总大小，key是 路径 + 排序后的查询参数
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "hm.response-cache", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(ResponseCacheProperties.class)
+public class ResponseCache {
+
+    private final List<CompiledRule> rules = new ArrayList<>();
+
+    private final int maxEntryBytes;
+
+    private final Cache<String, CachedResponse> cache;
+
+    public ResponseCache(ResponseCacheProperties properties, MeterRegistry meterRegistry) {
+        for (ResponseCacheProperties.Rule rule : properties.getRules()) {
+            rules.add(new CompiledRule(PathExcludeMatcher.compile(Collections.singletonList(rule.getPath())),
+                    rule.getTtl().toNanos(), rule.isEvictOnItemChange()));
+        }
+        this.maxEntryBytes = properties.getMaxEntryBytes();
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(properties.getMaximumBytes())
+                .weigher((String key, CachedResponse value) -> key.length() + value.getBody().length)
+                .expireAfter(new Expiry<String, CachedResponse>() {
+                    @Override
+                    public long expireAfterCreate(String key, CachedResponse value, long currentTime) {
+                        return value.getRule().ttlNanos;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, CachedResponse value, long currentTime, long currentDuration) {
+                        return value.getRule().ttlNanos;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, CachedResponse value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "gateway.response");
+    }
+
+    /**
+     * 找到路径对应的缓存规则
+     *
+     * @param path 请求路径
+     * @return 规则，没有配置时返回null
+     */
+    public CompiledRule findRule(String path) {
+        for (CompiledRule rule : rules) {
+            if (rule.matcher.matches(path)) {
+                return rule;
+            }
+        }
+        return null;
+    }
+
+    public CachedResponse get(String key) {
+        return cache.getIfPresent(key);
+    }
+
+    /**
+     * 保存响应，返回生成的ETag；响应太大时不缓存，返回null
+     */
+    public String put(String key, CompiledRule rule, byte[] body, String contentType) {
+        if (body.length > maxEntryBytes) {
+            return null;
+        }
+        String etag = etag(body);
+        cache.put(key, new CachedResponse(rule, body, contentType, etag));
+        return etag;
+    }
+
+    /**
+     * 根据响应体生成强ETag
+     */
+    public static String etag(byte[] body) {
+        return "\"" + SecureUtil.md5().digestHex(body) + "\"";
+    }
+
+    /**
+     * 商品变更时调用：清理该商品的详情缓存，以及所有配置了evictOnItemChange的列表缓存
+     *
+     * @param itemId 商品id
+     */
+    public void evictItem(Long itemId) {
+        cache.invalidate("/items/" + itemId);
+        cache.asMap().values().removeIf(v -> v.getRule().evictOnItemChange);
+        log.debug("商品{}变更，已清理网关响应缓存", itemId);
+    }
+
+    /**
+     * 编译后的缓存规则
+     */
+    @RequiredArgsConstructor
+    public static class CompiledRule {
+        private final PathExcludeMatcher matcher;
+        private final long ttlNanos;
+        private final boolean evictOnItemChange;
+    }
+
+    /**
+     * 缓存的响应
+     */
+    @Getter
+    @RequiredArgsConstructor
+    public static class CachedResponse {
+        private final CompiledRule rule;
+        private final byte[] body;
+        private final String contentType;
+        private final String etag;
+    }
+}
@@ -0,0 +1,93 @@
+package com.hmall.gateway.cache;
+
+import cn.hutool.crypto.SecureUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.hmall.gateway.config.AuthProperties;
+import com.hmall.gateway.utils.JwtTool;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 已校验token的本地缓存
+ * 网关每个需要登录的请求都要做一次RS256验签，这是网关最耗CPU的地方，
+ * 这里把验签通过的token缓存起来(key是token的摘要，value是用户id)，下次同一个token直接取用户id。
+ * 每个条目的过期时间取 token的exp 和 maxTtl 中较早的那个，保证缓存不会比token活得更久。
+ * 校验失败的token不缓存。
+ */
+@Component
+public class VerifiedTokenCache {
+
+    private final JwtTool jwtTool;
+
+    private final boolean enabled;
+
+    private final Cache<String, JwtTool.TokenInfo> cache;
+
+    public VerifiedTokenCache(JwtTool jwtTool, AuthProperties authProperties, MeterRegistry meterRegistry) {
+        this.jwtTool = jwtTool;
+        AuthProperties.TokenCache properties = authProperties.getTokenCache();
+        this.enabled = properties.isEnabled();
+        long maxTtlNanos = properties.getMaxTtl().toNanos();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfter(new Expiry<String, JwtTool.TokenInfo>() {
+                    @Override
+                    public long expireAfterCreate(String key, JwtTool.TokenInfo info, long currentTime) {
+                        long ttl = TimeUnit.MILLISECONDS.toNanos(info.getExpiresAt() - System.currentTimeMillis());
+                        return Math.max(0, Math.min(ttl, maxTtlNanos));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, JwtTool.TokenInfo info, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, JwtTool.TokenInfo info, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        // 命中率等通过 cache.gets{cache=gateway.token} 等指标暴露
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "gateway.token");
+    }
+
+    /**
+     * 解析token得到用户id，命中缓存时跳过验签
+     *
+     * @param token token
+     * @return 用户id
+     */
+    public Long parseToken(String token) {
+        return parseTokenInfo(token).getUserId();
+    }
+
+    /**
+     * 解析token得到用户id、过期时间和token的id，命中缓存时跳过验签
+     *
+     * @param token token
+     * @return token信息
+     */
+    public JwtTool.TokenInfo parseTokenInfo(String token) {
+        if (!enabled || token == null) {
+            return jwtTool.parseTokenInfo(token);
+        }
+        String key = SecureUtil.sha256(token);
+        JwtTool.TokenInfo info = cache.getIfPresent(key);
+        if (info != null && info.getExpiresAt() > System.currentTimeMillis()) {
+            return info;
+        }
+        // 未命中，完整校验一次，校验失败会直接抛出异常
+        info = jwtTool.parseTokenInfo(token);
+        if (info.getExpiresAt() > System.currentTimeMillis()) {
+            cache.put(key, info);
+        }
+        return info;
+    }
+}
@@ -0,0 +1,24 @@
+package com.hmall.gateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 网关访问日志和指标的配置
+ */
+@Data
+@ConfigurationProperties(prefix = "hm.access")
+public class AccessLogProperties {
+    /**
+     * 是否记录访问指标（各路由的耗时直方图、状态码、下游实例）
+     */
+    private boolean metricsEnabled = true;
+    /**
+     * 访问日志的采样率，0表示不打印，1表示每个请求都打印
+     */
+    private double logSampleRate = 0.01;
+    /**
+     * 访问日志缓冲区大小，写满后新的日志直接丢弃，不会阻塞请求线程
+     */
+    private int logBufferSize = 8192;
+}
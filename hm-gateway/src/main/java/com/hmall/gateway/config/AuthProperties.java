@@ -4,6 +4,7 @@ import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
 import java.util.List;
 
 /**
@@ -16,4 +17,44 @@ import java.util.List;
 public class AuthProperties {
     private List<String> includePaths;
     private List<String> excludePaths;
+    /**
+     * 已校验token的本地缓存配置
+     */
+    private TokenCache tokenCache = new TokenCache();
+    /**
+     * token吊销列表配置
+     */
+    private Revocation revocation = new Revocation();
+
+    @Data
+    public static class TokenCache {
+        /**
+         * 是否开启token校验结果缓存
+         */
+        private boolean enabled = true;
+        /**
+         * 最多缓存的token数量
+         */
+        private long maximumSize = 100_000;
+        /**
+         * 缓存的最长时间，实际过期时间取它和token的exp中较早的那个
+         */
+        private Duration maxTtl = Duration.ofMinutes(30);
+    }
+
+    @Data
+    public static class Revocation {
+        /**
+         * 是否检查token是否已被吊销
+         */
+        private boolean enabled = true;
+        /**
+         * 一个token有效期内预计吊销的token数量，用于确定布隆过滤器的大小
+         */
+        private int expectedInsertions = 100_000;
+        /**
+         * 布隆过滤器的误判率，误判的token会再查一次精确集合，不会被错误拒绝
+         */
+        private double falsePositiveRate = 0.001;
+    }
 }
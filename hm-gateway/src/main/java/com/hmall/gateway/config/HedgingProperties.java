@@ -0,0 +1,60 @@
+package com.hmall.gateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 对冲请求配置：首次请求迟迟不返回时，向另一个实例再发一次，谁先返回用谁
+ * 只对配置了的路由的GET请求生效，下游接口必须是幂等的
+ */
+@Data
+@ConfigurationProperties(prefix = "hm.hedging")
+public class HedgingProperties {
+    /**
+     * 是否开启对冲请求
+     */
+    private boolean enabled = false;
+    /**
+     * 全局对冲预算：每个请求攒多少个对冲令牌，0.1表示对冲请求最多占总请求的10%左右
+     */
+    private double budgetRatio = 0.1;
+    /**
+     * 最多攒多少个对冲令牌，防止长时间空闲后突然大量对冲
+     */
+    private int budgetMaxTokens = 100;
+    /**
+     * 对冲时缓存响应体的最大大小
+     */
+    private DataSize maxBodySize = DataSize.ofMegabytes(1);
+    /**
+     * 各路由的对冲配置，key是网关路由id
+     */
+    private Map<String, Route> routes = new HashMap<>();
+
+    @Data
+    public static class Route {
+        /**
+         * 只对冲这些路径（Ant风格），为空表示整个路由的GET请求
+         */
+        private List<String> paths = new ArrayList<>();
+        /**
+         * 首次请求超过最近延迟的这个分位数还没返回就发对冲请求
+         */
+        private double percentile = 0.95;
+        /**
+         * 对冲延迟的下限，避免延迟分布很集中时过早对冲
+         */
+        private Duration minDelay = Duration.ofMillis(20);
+        /**
+         * 对冲延迟的上限，也是还没有足够样本时使用的延迟
+         */
+        private Duration maxDelay = Duration.ofMillis(500);
+    }
+}
@@ -0,0 +1,15 @@
+package com.hmall.gateway.config;
+
+import com.hmall.gateway.loadbalancer.P2cLoadBalancerConfiguration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClients;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 所有 lb:// 路由的负载均衡器都由 P2cLoadBalancerConfiguration 创建，按配置选择P2C或轮询
+ */
+@Configuration
+@EnableConfigurationProperties(P2cLoadBalancerProperties.class)
+@LoadBalancerClients(defaultConfiguration = P2cLoadBalancerConfiguration.class)
+public class LoadBalancerConfig {
+}
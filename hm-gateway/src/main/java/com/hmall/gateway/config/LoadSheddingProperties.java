@@ -0,0 +1,68 @@
+package com.hmall.gateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 过载保护配置：自适应并发上限 + 按优先级分级丢弃
+ */
+@Data
+@ConfigurationProperties(prefix = "hm.load-shedding")
+public class LoadSheddingProperties {
+    /**
+     * 是否开启过载保护
+     */
+    private boolean enabled = false;
+    /**
+     * 初始并发上限
+     */
+    private int initialLimit = 200;
+    /**
+     * 并发上限的最小值
+     */
+    private int minLimit = 20;
+    /**
+     * 并发上限的最大值
+     */
+    private int maxLimit = 2000;
+    /**
+     * 允许最近延迟比长期基线高多少倍，超过后开始降低并发上限
+     */
+    private double tolerance = 1.5;
+    /**
+     * 每次调整并发上限时新值的权重，越大调整越快
+     */
+    private double smoothing = 0.2;
+    /**
+     * 多久调整一次并发上限
+     */
+    private Duration window = Duration.ofMillis(500);
+    /**
+     * 没有匹配任何优先级的请求可以用到并发上限的多少
+     */
+    private double defaultShare = 0.8;
+    /**
+     * 优先级，按顺序匹配，share越小越先被丢弃
+     */
+    private List<Priority> priorities = new ArrayList<>();
+
+    @Data
+    public static class Priority {
+        /**
+         * 优先级名称，用于指标
+         */
+        private String name;
+        /**
+         * 请求路径（Ant风格）
+         */
+        private List<String> paths = new ArrayList<>();
+        /**
+         * 这类请求可以用到并发上限的多少，1表示可以用满
+         */
+        private double share = 1;
+    }
+}
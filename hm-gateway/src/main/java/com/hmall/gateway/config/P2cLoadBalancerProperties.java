@@ -0,0 +1,28 @@
+package com.hmall.gateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 网关负载均衡配置
+ */
+@Data
+@ConfigurationProperties(prefix = "hm.load-balancer")
+public class P2cLoadBalancerProperties {
+    /**
+     * 使用P2C（随机挑两个实例选负载低的）负载均衡的服务，即路由 lb://xxx 中的xxx，其余服务仍然轮询
+     */
+    private List<String> p2cServices = new ArrayList<>();
+    /**
+     * 延迟EWMA的衰减时间常数，越小越看重最近的请求
+     */
+    private Duration decay = Duration.ofSeconds(10);
+    /**
+     * 请求失败（异常或5xx）时按这个延迟计入EWMA，让出问题的实例尽快被避开
+     */
+    private Duration failurePenalty = Duration.ofSeconds(1);
+}
@@ -0,0 +1,56 @@
+package com.hmall.gateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 网关限流配置，按 路由 + 请求方式 + 路径 配置令牌桶，每个用户一个桶
+ */
+@Data
+@ConfigurationProperties(prefix = "hm.rate-limit")
+public class RateLimitProperties {
+    /**
+     * 是否开启限流
+     */
+    private boolean enabled = false;
+    /**
+     * 每条规则最多保存多少个用户的桶，超过后淘汰最少使用的
+     */
+    private long maximumBuckets = 100_000;
+    /**
+     * 桶多久没被访问就淘汰（淘汰后再来的请求拿到的是满桶）
+     */
+    private Duration idleTimeout = Duration.ofMinutes(5);
+    /**
+     * 限流规则
+     */
+    private List<Rule> rules = new ArrayList<>();
+
+    @Data
+    public static class Rule {
+        /**
+         * 网关路由id
+         */
+        private String routeId;
+        /**
+         * 请求方式，为空表示所有请求方式
+         */
+        private String method;
+        /**
+         * 路径pattern（Ant风格），为空表示整个路由
+         */
+        private List<String> paths = new ArrayList<>();
+        /**
+         * 桶容量，即允许的突发请求数
+         */
+        private int capacity = 10;
+        /**
+         * 每秒补充的令牌数
+         */
+        private double refillPerSecond = 1;
+    }
+}
@@ -0,0 +1,49 @@
+package com.hmall.gateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 网关响应缓存配置
+ * 只缓存匿名可访问的GET请求（商品详情、商品分页、搜索），按规则顺序匹配，先匹配到的生效
+ */
+@Data
+@ConfigurationProperties(prefix = "hm.response-cache")
+public class ResponseCacheProperties {
+    /**
+     * 是否开启网关响应缓存
+     */
+    private boolean enabled = false;
+    /**
+     * 缓存占用的最大字节数
+     */
+    private long maximumBytes = 64 * 1024 * 1024;
+    /**
+     * 单个响应超过这个大小就不缓存
+     */
+    private int maxEntryBytes = 256 * 1024;
+    /**
+     * 缓存规则
+     */
+    private List<Rule> rules = new ArrayList<>();
+
+    @Data
+    public static class Rule {
+        /**
+         * Ant风格的路径，例如 /items/page
+         */
+        private String path;
+        /**
+         * 缓存时间
+         */
+        private Duration ttl = Duration.ofSeconds(10);
+        /**
+         * 任意商品变更时是否清空这条规则缓存的所有响应（分页、搜索这类列表接口需要）
+         */
+        private boolean evictOnItemChange = false;
+    }
+}
@@ -0,0 +1,36 @@
+package com.hmall.gateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 请求合并配置，key是网关路由id，只有配置了的路由才会合并相同的GET请求
+ */
+@Data
+@ConfigurationProperties(prefix = "hm.single-flight")
+public class SingleFlightProperties {
+    /**
+     * 是否开启请求合并
+     */
+    private boolean enabled = false;
+    /**
+     * 各路由的合并配置
+     */
+    private Map<String, Route> routes = new HashMap<>();
+
+    @Data
+    public static class Route {
+        /**
+         * 跟随请求最多等待首个请求多久，超时后自己去请求下游
+         */
+        private Duration maxWait = Duration.ofSeconds(2);
+        /**
+         * 一个请求最多带多少个跟随请求，超过的直接请求下游
+         */
+        private int maxWaiters = 1000;
+    }
+}
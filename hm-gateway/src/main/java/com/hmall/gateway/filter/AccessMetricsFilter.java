@@ -0,0 +1,112 @@
+package com.hmall.gateway.filter;
+
+import com.hmall.gateway.config.AccessLogProperties;
+import com.hmall.gateway.metrics.AccessLogWriter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+/**
+ * 网关访问指标过滤器（替换掉原来用System.out打印请求头的myGlobalFilter）
+ * 1.按 路由/请求方法/状态码类别/下游实例 记录耗时直方图，通过actuator暴露
+ * 2.按采样率记录访问日志，日志写入异步有界缓冲区，不会阻塞event loop
+ */
+@Component
+@RequiredArgsConstructor
+@EnableConfigurationProperties(AccessLogProperties.class)
+public class AccessMetricsFilter implements GlobalFilter, Ordered {
+
+    public static final String METRIC_NAME = "gateway.access";
+
+    private final AccessLogProperties properties;
+
+    private final MeterRegistry meterRegistry;
+
+    private final AccessLogWriter accessLogWriter;
+
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        long start = System.nanoTime();
+        return chain.filter(exchange)
+                .doFinally(signal -> record(exchange, System.nanoTime() - start));
+    }
+
+    private void record(ServerWebExchange exchange, long elapsedNanos) {
+        Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+        String routeId = route == null ? "none" : route.getId();
+        HttpStatus status = exchange.getResponse().getStatusCode();
+        String statusCode = status == null ? "UNKNOWN" : String.valueOf(status.value());
+        URI upstream = exchange.getAttribute(GATEWAY_REQUEST_URL_ATTR);
+        String instance = upstream == null ? "none" : upstream.getHost() + ":" + upstream.getPort();
+
+        if (properties.isMetricsEnabled()) {
+            timer(routeId, exchange.getRequest().getMethodValue(), statusClass(status), instance)
+                    .record(elapsedNanos, TimeUnit.NANOSECONDS);
+        }
+
+        double sampleRate = properties.getLogSampleRate();
+        if (sampleRate > 0 && (sampleRate >= 1 || ThreadLocalRandom.current().nextDouble() < sampleRate)) {
+            accessLogWriter.submit(exchange.getRequest().getMethodValue() + " "
+                    + exchange.getRequest().getPath().value()
+                    + " route=" + routeId
+                    + " status=" + statusCode
+                    + " instance=" + instance
+                    + " cost=" + TimeUnit.NANOSECONDS.toMillis(elapsedNanos) + "ms");
+        }
+    }
+
+    /**
+     * 每个 路由 + 方法 + 状态码类别 + 下游实例 第一次出现时注册Timer并缓存，之后每个请求只是一次map查找
+     * 分位数由服务端根据直方图计算（可以跨实例聚合），这里不再在客户端算分位数
+     * 下游实例（host:port）的个数就是注册中心里的实例数，按实例区分才能看出是哪个实例慢；
+     * 没有转发到下游的请求（鉴权失败、限流、BFF聚合）记为none。
+     */
+    private Timer timer(String routeId, String method, String statusClass, String instance) {
+        String key = routeId + ' ' + method + ' ' + statusClass + ' ' + instance;
+        Timer timer = timers.get(key);
+        if (timer == null) {
+            timer = timers.computeIfAbsent(key, k -> Timer.builder(METRIC_NAME)
+                    .description("网关请求耗时")
+                    .tag("route", routeId)
+                    .tag("method", method)
+                    .tag("status", statusClass)
+                    .tag("instance", instance)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+        return timer;
+    }
+
+    /**
+     * 状态码按类别（2xx、4xx……）打tag，避免每个状态码一条时间序列
+     */
+    private static String statusClass(HttpStatus status) {
+        return status == null ? "UNKNOWN" : status.series().value() + "xx";
+    }
+
+    @Override
+    public int getOrder() {
+        // 最先执行，统计的是网关内的完整耗时
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+}
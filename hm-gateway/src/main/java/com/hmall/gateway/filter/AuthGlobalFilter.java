@@ -1,25 +1,33 @@
 package com.hmall.gateway.filter;
 
+import com.hmall.common.context.RequestContext;
+import com.hmall.common.trace.Span;
+import com.hmall.gateway.cache.VerifiedTokenCache;
 import com.hmall.gateway.config.AuthProperties;
+import com.hmall.gateway.revocation.TokenRevocationList;
 import com.hmall.gateway.utils.JwtTool;
+import com.hmall.gateway.utils.PathExcludeMatcher;
 import lombok.RequiredArgsConstructor;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cloud.gateway.filter.GatewayFilterChain;
 import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
 import org.springframework.core.Ordered;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.stereotype.Component;
-import org.springframework.util.AntPathMatcher;
 import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
 
+import javax.annotation.PostConstruct;
 import java.util.List;
 
 /**
  * 这是网关的全局过滤器
- * 作用：1.拦截非法请求  2.保存用户信息到请求头中去token->request头
+ * 作用：1.拦截非法请求  2.保存用户信息到请求头中去token->request头  3.生成链路id，记录网关的span
  * 网关到微服务是一次新的http请求
  */
 @Component
@@ -29,17 +37,48 @@ public class AuthGlobalFilter implements GlobalFilter, Ordered {
 
     private final AuthProperties authProperties;
 
-    private final AntPathMatcher antPathMatcher = new AntPathMatcher();  //路径匹配的
+    //预编译好的放行路径匹配器，配置刷新后（excludePaths换成了新的List）会重新编译
+    private volatile CompiledExcludes compiledExcludes;
 
-    private final JwtTool jwtTool;
+    private final VerifiedTokenCache verifiedTokenCache;  //已校验token的缓存，命中时不再验签
 
+    private final TokenRevocationList revocationList;     //已吊销（退出登录）的token
+
+    //启动时先编译一次放行路径
+    @PostConstruct
+    public void compileExcludes() {
+        List<String> excludePaths = authProperties.getExcludePaths();
+        compiledExcludes = new CompiledExcludes(excludePaths, PathExcludeMatcher.compile(excludePaths));
+    }
 
     @Override
     public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        //链路的起点：生成链路id和网关的SERVER span，通过请求头传给下游微服务（放行的路径也要带上）
+        Span span = Span.start(Span.Kind.SERVER, spanName(exchange), Span.newTraceId(), null, null);
+        ServerWebExchange traced = exchange.mutate()
+                .request(builder -> builder
+                        .header(RequestContext.TRACE_HEADER, span.getTraceId())
+                        .header(RequestContext.SPAN_HEADER, span.getSpanId()))
+                .build();
+        return authenticate(traced, chain)
+                .doFinally(signal -> {
+                    HttpStatus status = traced.getResponse().getStatusCode();
+                    if (signal == SignalType.ON_ERROR) {
+                        span.fail("ERROR");
+                    } else if (signal == SignalType.CANCEL) {
+                        span.fail("CANCELLED");
+                    } else if (status != null && status.is5xxServerError()) {
+                        span.fail("HTTP_" + status.value());
+                    }
+                    span.finish();
+                });
+    }
+
+    private Mono<Void> authenticate(ServerWebExchange exchange, GatewayFilterChain chain) {
         //获取请求
         ServerHttpRequest request = exchange.getRequest();
         //获取请求路径，看是否需要放过
-        if (isExclude(request.getPath().toString())) {
+        if (isExclude(request.getPath().value())) {
             return chain.filter(exchange);
         }
         //获取请求头中的token
@@ -49,15 +88,18 @@ public class AuthGlobalFilter implements GlobalFilter, Ordered {
             token = headers.get(0);
         }
         //解析token拿到其中存放的数据（用户id）
-        Long userId = null;
+        JwtTool.TokenInfo tokenInfo;
         try {
-            userId = jwtTool.parseToken(token);
+            tokenInfo = verifiedTokenCache.parseTokenInfo(token);
         } catch (Exception e) {
             // 如果无效，拦截
-            ServerHttpResponse response = exchange.getResponse();
-            response.setStatusCode(HttpStatus.UNAUTHORIZED);   //401
-            return response.setComplete();  //完结，不会再执行后续的filter方法
+            return unauthorized(exchange);
+        }
+        //已经退出登录（被吊销）的token，同样拦截
+        if (authProperties.getRevocation().isEnabled() && revocationList.isRevoked(tokenInfo.getTokenId())) {
+            return unauthorized(exchange);
         }
+        Long userId = tokenInfo.getUserId();
         //保存用户信息到请求头（传递用户信息）
         //这就要修改原始的请求头了，新增数据用exchange.mutate方法
         String userInfo = userId.toString();
@@ -68,14 +110,40 @@ public class AuthGlobalFilter implements GlobalFilter, Ordered {
         return chain.filter(newExchange);
     }
 
+    /**
+     * 按路由命名，同一个路由的span才能汇总到一起，具体的接口看下游服务的span
+     */
+    private static String spanName(ServerWebExchange exchange) {
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        String target = route == null ? exchange.getRequest().getPath().value() : "route:" + route.getId();
+        return exchange.getRequest().getMethodValue() + " " + target;
+    }
+
+    private Mono<Void> unauthorized(ServerWebExchange exchange) {
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(HttpStatus.UNAUTHORIZED);   //401
+        return response.setComplete();  //完结，不会再执行后续的filter方法
+    }
+
     //获取请求路径，看是否需要放过
     private boolean isExclude(String antPath) {
-        for (String excludePath : authProperties.getExcludePaths()) {
-            if (antPathMatcher.match(excludePath, antPath)) {
-                return true;
-            }
+        List<String> excludePaths = authProperties.getExcludePaths();
+        CompiledExcludes compiled = compiledExcludes;
+        if (compiled.source != excludePaths) {
+            // 配置刷新了，重新编译
+            compileExcludes();
+            compiled = compiledExcludes;
         }
-        return false;
+        return compiled.matcher.matches(antPath);
+    }
+
+    /**
+     * 编译结果和它对应的配置
+     */
+    @RequiredArgsConstructor
+    private static class CompiledExcludes {
+        private final List<String> source;
+        private final PathExcludeMatcher matcher;
     }
 
     @Override
@@ -0,0 +1,237 @@
+package com.hmall.gateway.filter;
+
+import com.hmall.gateway.config.HedgingProperties;
+import com.hmall.gateway.hedge.HedgeBudget;
+import com.hmall.gateway.hedge.LatencyTracker;
+import com.hmall.gateway.loadbalancer.InstanceStatsRegistry;
+import com.hmall.gateway.utils.PathExcludeMatcher;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.ReactiveLoadBalancerClientFilter;
+import org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.netty.http.client.HttpClient;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_LOADBALANCER_RESPONSE_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.isAlreadyRouted;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.setAlreadyRouted;
+
+/**
+ * 对冲请求过滤器
+ * 对配置了的路由的GET请求，自己转发到负载均衡选好的实例；如果超过对冲延迟（最近延迟的某个分位数）还没返回，
+ * 就向另一个负载最低的实例再发一次，谁先返回用谁，另一个请求会被取消；两个都失败时返回最后一个下游错误。
+ * 对冲请求受全局预算限制（见HedgeBudget），下游整体变慢时不会把流量翻倍。
+ * 走对冲的请求响应体会先整个读进内存，所以只适合响应不大的查询接口。
+ */
+@Component
+@ConditionalOnProperty(prefix = "hm.hedging", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(HedgingProperties.class)
+public class HedgingFilter implements GlobalFilter, Ordered {
+
+    private static final String METRIC_NAME = "gateway.hedge";
+
+    private final Map<String, CompiledRoute> routes = new HashMap<>();
+
+    private final HedgeBudget budget;
+
+    private final WebClient webClient;
+
+    private final LoadBalancerClientFactory clientFactory;
+
+    private final InstanceStatsRegistry statsRegistry;
+
+    private final ObjectProvider<List<HttpHeadersFilter>> headersFilters;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+    public HedgingFilter(HedgingProperties properties, HttpClient httpClient,
+                         LoadBalancerClientFactory clientFactory, InstanceStatsRegistry statsRegistry,
+                         ObjectProvider<List<HttpHeadersFilter>> headersFilters, MeterRegistry meterRegistry) {
+        this.budget = new HedgeBudget(properties.getBudgetRatio(), properties.getBudgetMaxTokens());
+        // 用网关自己的HttpClient，连接池和超时配置与正常转发一致
+        this.webClient = WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .codecs(codecs -> codecs.defaultCodecs().maxInMemorySize((int) properties.getMaxBodySize().toBytes()))
+                .build();
+        this.clientFactory = clientFactory;
+        this.statsRegistry = statsRegistry;
+        this.headersFilters = headersFilters;
+        this.meterRegistry = meterRegistry;
+        properties.getRoutes().forEach((routeId, route) -> routes.put(routeId, new CompiledRoute(
+                route.getPaths() == null || route.getPaths().isEmpty() ? null : PathExcludeMatcher.compile(route.getPaths()),
+                new LatencyTracker(route.getPercentile(), route.getMinDelay().toNanos(), route.getMaxDelay().toNanos()))));
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+        URI url = exchange.getAttribute(GATEWAY_REQUEST_URL_ATTR);
+        Response<ServiceInstance> lbResponse = exchange.getAttribute(GATEWAY_LOADBALANCER_RESPONSE_ATTR);
+        if (route == null || url == null || lbResponse == null || !lbResponse.hasServer()
+                || isAlreadyRouted(exchange) || exchange.getRequest().getMethod() != HttpMethod.GET
+                || !"http".equals(url.getScheme())) {
+            return chain.filter(exchange);
+        }
+        CompiledRoute config = routes.get(route.getId());
+        if (config == null || (config.matcher != null && !config.matcher.matches(exchange.getRequest().getPath().value()))) {
+            return chain.filter(exchange);
+        }
+        // 由这里负责转发，后面的NettyRoutingFilter不再处理
+        setAlreadyRouted(exchange);
+        budget.deposit();
+        HttpHeaders headers = HttpHeadersFilter.filterRequest(headersFilters.getIfAvailable(), exchange);
+        ServiceInstance primary = lbResponse.getServer();
+
+        // 两个请求都失败时把最后一个下游错误交给网关的异常处理，而不是firstWithValue的NoSuchElementException
+        AtomicReference<Throwable> lastError = new AtomicReference<>();
+        Mono<Attempt> first = send(url, headers, false)
+                .doOnError(lastError::set);
+        Mono<Attempt> hedge = Mono.delay(Duration.ofNanos(config.tracker.getDelayNanos()))
+                .flatMap(tick -> pickOther(primary))
+                .filter(other -> {
+                    boolean allowed = budget.tryWithdraw();
+                    count(route, allowed ? "hedged" : "budget_exhausted");
+                    return allowed;
+                })
+                .flatMap(other -> sendHedge(url, headers, other)
+                        .doOnError(lastError::set));
+        return Mono.defer(() -> {
+            // 每个请求记录一个样本：从发出第一个请求到拿到胜出的响应。
+            // 不能只记录完成的那一次尝试——对冲胜出时被取消的正是慢的那个，只记快的会让分位数越来越小、对冲越来越多
+            long start = System.nanoTime();
+            return Mono.firstWithValue(first, hedge)
+                    .doOnNext(attempt -> config.tracker.record(System.nanoTime() - start));
+        })
+                .onErrorMap(e -> {
+                    Throwable upstream = lastError.get();
+                    return upstream == null ? e : upstream;
+                })
+                .flatMap(attempt -> {
+                    if (attempt.hedge) {
+                        count(route, "hedge_won");
+                    }
+                    return write(exchange, attempt);
+                });
+    }
+
+    //从其余实例中选负载分数最低的一个
+    private Mono<ServiceInstance> pickOther(ServiceInstance primary) {
+        ServiceInstanceListSupplier supplier = clientFactory.getInstance(primary.getServiceId(), ServiceInstanceListSupplier.class);
+        if (supplier == null) {
+            return Mono.empty();
+        }
+        return supplier.get().next()
+                .flatMap(instances -> Mono.justOrEmpty(instances.stream()
+                        .filter(i -> !(i.getHost().equals(primary.getHost()) && i.getPort() == primary.getPort()))
+                        .min(Comparator.comparingDouble(i -> statsRegistry.get(i).getScore()))));
+    }
+
+    private Mono<Attempt> sendHedge(URI url, HttpHeaders headers, ServiceInstance instance) {
+        URI uri = UriComponentsBuilder.fromUri(url)
+                .host(instance.getHost())
+                .port(instance.getPort())
+                .build(true)
+                .toUri();
+        InstanceStatsRegistry.InstanceStats stats = statsRegistry.get(instance);
+        long start = System.nanoTime();
+        stats.start();
+        return send(uri, headers, true)
+                .doFinally(signal -> stats.complete(System.nanoTime() - start, signal == SignalType.ON_ERROR));
+    }
+
+    private Mono<Attempt> send(URI uri, HttpHeaders headers, boolean hedge) {
+        return webClient.get()
+                .uri(uri)
+                .headers(h -> h.addAll(headers))
+                .exchangeToMono(response -> response.bodyToMono(byte[].class)
+                        .defaultIfEmpty(new byte[0])
+                        .map(body -> new Attempt(response.rawStatusCode(), response.headers().asHttpHeaders(), body, hedge)));
+    }
+
+    private Mono<Void> write(ServerWebExchange exchange, Attempt attempt) {
+        ServerHttpResponse response = exchange.getResponse();
+        response.setRawStatusCode(attempt.status);
+        HttpHeaders filtered = HttpHeadersFilter.filter(headersFilters.getIfAvailable(), attempt.headers,
+                exchange, HttpHeadersFilter.Type.RESPONSE);
+        HttpHeaders headers = response.getHeaders();
+        filtered.forEach((name, values) -> {
+            if (!HttpHeaders.TRANSFER_ENCODING.equalsIgnoreCase(name)) {
+                headers.put(name, values);
+            }
+        });
+        headers.setContentLength(attempt.body.length);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(attempt.body)));
+    }
+
+    /**
+     * 每个 路由 + 结果 第一次出现时注册Counter并缓存，之后每个请求只是一次map查找
+     */
+    private void count(Route route, String result) {
+        String key = route.getId() + ' ' + result;
+        Counter counter = counters.get(key);
+        if (counter == null) {
+            counter = counters.computeIfAbsent(key, k -> Counter.builder(METRIC_NAME)
+                    .tag("route", route.getId())
+                    .tag("result", result)
+                    .register(meterRegistry));
+        }
+        counter.increment();
+    }
+
+    @Override
+    public int getOrder() {
+        // 负载均衡选好实例、LoadBalancerStatsFilter开始统计之后
+        return ReactiveLoadBalancerClientFilter.LOAD_BALANCER_CLIENT_FILTER_ORDER + 2;
+    }
+
+    @RequiredArgsConstructor
+    private static class CompiledRoute {
+        private final PathExcludeMatcher matcher;
+        private final LatencyTracker tracker;
+    }
+
+    /**
+     * 一次转发的结果
+     */
+    @RequiredArgsConstructor
+    private static class Attempt {
+        private final int status;
+        private final HttpHeaders headers;
+        private final byte[] body;
+        private final boolean hedge;
+    }
+}
@@ -0,0 +1,101 @@
+package com.hmall.gateway.filter;
+
+import com.hmall.gateway.config.LoadSheddingProperties;
+import com.hmall.gateway.shedding.GradientLimiter;
+import com.hmall.gateway.utils.PathExcludeMatcher;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 过载保护过滤器
+ * 所有请求共用一个自适应并发上限（GradientLimiter），每个优先级只能用到上限的一定比例，
+ * 下游变慢、上限降低时，比例小的低优先级请求（浏览、搜索）先被拒绝，下单、支付最后才受影响。
+ * 被拒绝的请求直接返回503和Retry-After，不会走到鉴权和下游。
+ */
+@Component
+@ConditionalOnProperty(prefix = "hm.load-shedding", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(LoadSheddingProperties.class)
+public class LoadSheddingFilter implements GlobalFilter, Ordered {
+
+    private static final String METRIC_PREFIX = "gateway.shedding";
+
+    private final GradientLimiter limiter;
+
+    private final List<PriorityClass> priorities = new ArrayList<>();
+
+    private final PriorityClass defaultPriority;
+
+    public LoadSheddingFilter(LoadSheddingProperties properties, MeterRegistry meterRegistry) {
+        this.limiter = new GradientLimiter(properties);
+        for (LoadSheddingProperties.Priority priority : properties.getPriorities()) {
+            priorities.add(new PriorityClass(PathExcludeMatcher.compile(priority.getPaths()), priority.getShare(),
+                    rejectedCounter(meterRegistry, priority.getName())));
+        }
+        this.defaultPriority = new PriorityClass(null, properties.getDefaultShare(), rejectedCounter(meterRegistry, "default"));
+        Gauge.builder(METRIC_PREFIX + ".limit", limiter, GradientLimiter::getLimit)
+                .description("网关当前的自适应并发上限")
+                .register(meterRegistry);
+        Gauge.builder(METRIC_PREFIX + ".inflight", limiter, GradientLimiter::getInflight)
+                .description("网关正在处理的请求数")
+                .register(meterRegistry);
+    }
+
+    private static Counter rejectedCounter(MeterRegistry meterRegistry, String priority) {
+        return Counter.builder(METRIC_PREFIX + ".rejected")
+                .description("过载时被丢弃的请求数")
+                .tag("priority", priority)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        PriorityClass priority = findPriority(exchange.getRequest().getPath().value());
+        if (!limiter.tryAcquire(priority.share)) {
+            priority.rejected.increment();
+            ServerHttpResponse response = exchange.getResponse();
+            response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);   //503
+            response.getHeaders().set("Retry-After", "1");
+            return response.setComplete();
+        }
+        long start = System.nanoTime();
+        return chain.filter(exchange)
+                .doFinally(signal -> limiter.release(System.nanoTime() - start));
+    }
+
+    private PriorityClass findPriority(String path) {
+        for (PriorityClass priority : priorities) {
+            if (priority.matcher.matches(path)) {
+                return priority;
+            }
+        }
+        return defaultPriority;
+    }
+
+    @Override
+    public int getOrder() {
+        // 紧跟在AccessMetricsFilter之后，被丢弃的请求也会被统计，但不用再做鉴权
+        return Ordered.HIGHEST_PRECEDENCE + 1;
+    }
+
+    @RequiredArgsConstructor
+    private static class PriorityClass {
+        private final PathExcludeMatcher matcher;
+        private final double share;
+        private final Counter rejected;
+    }
+}
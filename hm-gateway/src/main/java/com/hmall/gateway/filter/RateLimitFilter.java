@@ -0,0 +1,117 @@
+package com.hmall.gateway.filter;
+
+import com.hmall.gateway.config.RateLimitProperties;
+import com.hmall.gateway.ratelimit.TokenBucketTable;
+import com.hmall.gateway.utils.PathExcludeMatcher;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+/**
+ * 网关限流过滤器
+ * 按配置的 路由 + 请求方式 + 路径 给每个用户一个令牌桶，用户取自AuthGlobalFilter放进请求头的user-info，
+ * 没有登录的请求按客户端ip限流。令牌不够时直接返回429，不再往下游转发。
+ */
+@Component
+@ConditionalOnProperty(prefix = "hm.rate-limit", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(RateLimitProperties.class)
+public class RateLimitFilter implements GlobalFilter, Ordered {
+
+    private static final String METRIC_NAME = "gateway.rate.limit.rejected";
+
+    private final List<CompiledRule> rules = new ArrayList<>();
+
+    private final MeterRegistry meterRegistry;
+
+    public RateLimitFilter(RateLimitProperties properties, MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        for (RateLimitProperties.Rule rule : properties.getRules()) {
+            rules.add(new CompiledRule(
+                    rule.getRouteId(),
+                    rule.getMethod() == null ? null : HttpMethod.resolve(rule.getMethod().toUpperCase()),
+                    rule.getPaths() == null || rule.getPaths().isEmpty() ? null : PathExcludeMatcher.compile(rule.getPaths()),
+                    new TokenBucketTable(rule.getCapacity(), rule.getRefillPerSecond(),
+                            properties.getMaximumBuckets(), properties.getIdleTimeout())));
+        }
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+        if (route == null) {
+            return chain.filter(exchange);
+        }
+        ServerHttpRequest request = exchange.getRequest();
+        CompiledRule rule = findRule(route.getId(), request.getMethod(), request.getPath().value());
+        if (rule == null) {
+            return chain.filter(exchange);
+        }
+        long waitNanos = rule.table.tryAcquire(limitKey(request));
+        if (waitNanos == 0) {
+            return chain.filter(exchange);
+        }
+        // 令牌不够，直接拒绝
+        meterRegistry.counter(METRIC_NAME, "route", route.getId()).increment();
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);   //429
+        response.getHeaders().set("Retry-After", String.valueOf(Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999L))));
+        return response.setComplete();
+    }
+
+    private CompiledRule findRule(String routeId, HttpMethod method, String path) {
+        for (CompiledRule rule : rules) {
+            if (rule.routeId.equals(routeId)
+                    && (rule.method == null || rule.method == method)
+                    && (rule.matcher == null || rule.matcher.matches(path))) {
+                return rule;
+            }
+        }
+        return null;
+    }
+
+    //登录用户按用户id限流，否则按ip
+    private String limitKey(ServerHttpRequest request) {
+        String userInfo = request.getHeaders().getFirst("user-info");
+        if (userInfo != null) {
+            return userInfo;
+        }
+        InetSocketAddress address = request.getRemoteAddress();
+        return address == null ? "ip:unknown" : "ip:" + address.getAddress().getHostAddress();
+    }
+
+    @Override
+    public int getOrder() {
+        // AuthGlobalFilter之后，这时请求头里已经有user-info了
+        return 1;
+    }
+
+    /**
+     * 编译好的限流规则
+     */
+    @RequiredArgsConstructor
+    private static class CompiledRule {
+        private final String routeId;
+        private final HttpMethod method;
+        private final PathExcludeMatcher matcher;
+        private final TokenBucketTable table;
+    }
+}
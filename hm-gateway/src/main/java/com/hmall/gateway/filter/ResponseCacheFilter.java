@@ -0,0 +1,109 @@
+package com.hmall.gateway.filter;
+
+import com.hmall.gateway.cache.ResponseCache;
+import com.hmall.gateway.utils.RequestKeyUtils;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * 网关响应缓存过滤器
+ * 对配置了缓存规则的匿名GET请求（商品详情、商品分页、搜索）直接返回缓存的响应，
+ * 并支持ETag/If-None-Match，内容没变时返回304不带响应体。
+ * 排在AuthGlobalFilter之后，保证需要登录的路径即使误配置了缓存也要先通过登录校验。
+ * 只缓存未压缩的响应体：未命中时去掉请求的Accept-Encoding，不会把gzip的响应返回给不支持的客户端。
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "hm.response-cache", name = "enabled", havingValue = "true")
+public class ResponseCacheFilter implements GlobalFilter, Ordered {
+
+    private static final String CACHE_HEADER = "X-Cache";
+
+    private final ResponseCache responseCache;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        if (request.getMethod() != HttpMethod.GET) {
+            return chain.filter(exchange);
+        }
+        String path = request.getPath().value();
+        ResponseCache.CompiledRule rule = responseCache.findRule(path);
+        if (rule == null) {
+            return chain.filter(exchange);
+        }
+        String key = RequestKeyUtils.normalize(path, request.getQueryParams());
+        ResponseCache.CachedResponse cached = responseCache.get(key);
+        if (cached != null) {
+            return writeCached(exchange, cached);
+        }
+        // 未命中，在响应体写出时顺便存入缓存。
+        // 缓存的响应会返回给所有客户端，所以去掉Accept-Encoding，只缓存未压缩的响应体
+        ResponseCaptureFilter.onBody(exchange, (response, body) -> {
+            HttpHeaders headers = response.getHeaders();
+            if (response.getStatusCode() != HttpStatus.OK || isEncoded(headers)) {
+                return;
+            }
+            String etag = responseCache.put(key, rule, body, headers.getFirst(HttpHeaders.CONTENT_TYPE));
+            if (etag != null) {
+                headers.setETag(etag);
+            }
+            headers.set(CACHE_HEADER, "MISS");
+        });
+        ServerHttpRequest identity = request.mutate()
+                .headers(headers -> headers.remove(HttpHeaders.ACCEPT_ENCODING))
+                .build();
+        return chain.filter(exchange.mutate().request(identity).build());
+    }
+
+    private static boolean isEncoded(HttpHeaders headers) {
+        String encoding = headers.getFirst(HttpHeaders.CONTENT_ENCODING);
+        return encoding != null && !"identity".equalsIgnoreCase(encoding);
+    }
+
+    private Mono<Void> writeCached(ServerWebExchange exchange, ResponseCache.CachedResponse cached) {
+        ServerHttpResponse response = exchange.getResponse();
+        HttpHeaders headers = response.getHeaders();
+        headers.setETag(cached.getEtag());
+        headers.set(CACHE_HEADER, "HIT");
+        if (notModified(exchange.getRequest(), cached.getEtag())) {
+            response.setStatusCode(HttpStatus.NOT_MODIFIED);
+            return response.setComplete();
+        }
+        response.setStatusCode(HttpStatus.OK);
+        if (cached.getContentType() != null) {
+            headers.set(HttpHeaders.CONTENT_TYPE, cached.getContentType());
+        }
+        headers.setContentLength(cached.getBody().length);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(cached.getBody())));
+    }
+
+    private boolean notModified(ServerHttpRequest request, String etag) {
+        List<String> ifNoneMatch = request.getHeaders().getIfNoneMatch();
+        for (String candidate : ifNoneMatch) {
+            if ("*".equals(candidate) || etag.equals(candidate) || ("W/" + etag).equals(candidate)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public int getOrder() {
+        // AuthGlobalFilter和RateLimitFilter之后；响应体由排在NettyWriteResponseFilter之前的ResponseCaptureFilter交给这里
+        return 2;
+    }
+}
@@ -0,0 +1,83 @@
+package com.hmall.gateway.filter;
+
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 让后面的过滤器（响应缓存、请求合并）拿到下游完整的响应体
+ * NettyWriteResponseFilter在调用后续过滤器之前就拿住了当时的response，下游的响应体写到这个response上，
+ * 排在它后面的过滤器再替换response是看不到响应体的。所以包装response只能在它前面做（和ModifyResponseBody一样），
+ * 后面的过滤器按自己原来的顺序（比如在登录校验之后）通过 onBody 登记回调。
+ * 没有登记回调的请求直接透传，不会把响应体攒在内存里。
+ */
+@Component
+public class ResponseCaptureFilter implements GlobalFilter, Ordered {
+
+    private static final String LISTENERS_ATTR = ResponseCaptureFilter.class.getName() + ".listeners";
+
+    /**
+     * 响应体写出前的回调，此时响应头还可以修改
+     */
+    public interface BodyListener {
+        void onBody(ServerHttpResponse response, byte[] body);
+    }
+
+    /**
+     * 登记回调，这次请求的响应体写出前调用
+     */
+    public static void onBody(ServerWebExchange exchange, BodyListener listener) {
+        List<BodyListener> listeners = exchange.getAttribute(LISTENERS_ATTR);
+        if (listeners == null) {
+            listeners = new ArrayList<>(2);
+            exchange.getAttributes().put(LISTENERS_ATTR, listeners);
+        }
+        listeners.add(listener);
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        ServerHttpResponseDecorator decorated = new ServerHttpResponseDecorator(exchange.getResponse()) {
+            @Override
+            public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+                List<BodyListener> listeners = exchange.getAttribute(LISTENERS_ATTR);
+                if (listeners == null || listeners.isEmpty()) {
+                    return super.writeWith(body);
+                }
+                return DataBufferUtils.join(Flux.from(body))
+                        .map(buffer -> {
+                            byte[] bytes = new byte[buffer.readableByteCount()];
+                            buffer.read(bytes);
+                            DataBufferUtils.release(buffer);
+                            return bytes;
+                        })
+                        .defaultIfEmpty(new byte[0])
+                        .flatMap(bytes -> {
+                            for (BodyListener listener : listeners) {
+                                listener.onBody(this, bytes);
+                            }
+                            return super.writeWith(Mono.just(bufferFactory().wrap(bytes)));
+                        });
+            }
+        };
+        return chain.filter(exchange.mutate().response(decorated).build());
+    }
+
+    @Override
+    public int getOrder() {
+        return NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1;
+    }
+}
@@ -0,0 +1,159 @@
+package com.hmall.gateway.filter;
+
+import com.hmall.gateway.config.SingleFlightProperties;
+import com.hmall.gateway.utils.RequestKeyUtils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+/**
+ * 请求合并（single-flight）过滤器
+ * 同一时刻多个相同的GET请求（同路由、同路径、同查询参数、同用户）只有第一个真正发往下游，
+ * 其余请求等待它的响应并复制一份返回。只合并正在进行中的请求，请求结束后立刻移除，不会返回旧数据。
+ * 跟随请求等待超时、首个请求失败或者跟随者太多时，跟随请求自己去请求下游。
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "hm.single-flight", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(SingleFlightProperties.class)
+public class SingleFlightFilter implements GlobalFilter, Ordered {
+
+    private static final String METRIC_NAME = "gateway.single.flight";
+
+    private final SingleFlightProperties properties;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, InFlight> inFlights = new ConcurrentHashMap<>();
+
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+        if (request.getMethod() != HttpMethod.GET || route == null) {
+            return chain.filter(exchange);
+        }
+        SingleFlightProperties.Route config = properties.getRoutes().get(route.getId());
+        if (config == null) {
+            return chain.filter(exchange);
+        }
+        // 带上用户信息，不同用户的请求不合并；Accept-Encoding不同的请求也不合并，避免把gzip的响应体复制给不支持的客户端
+        String key = route.getId() + ":" + request.getHeaders().getFirst("user-info") + ":"
+                + request.getHeaders().getFirst(HttpHeaders.ACCEPT_ENCODING) + ":"
+                + RequestKeyUtils.normalize(request.getPath().value(), request.getQueryParams());
+
+        InFlight created = new InFlight();
+        InFlight existing = inFlights.putIfAbsent(key, created);
+        if (existing == null) {
+            count(route, "leader");
+            return lead(exchange, chain, key, created);
+        }
+        if (existing.waiters.incrementAndGet() > config.getMaxWaiters()) {
+            existing.waiters.decrementAndGet();
+            count(route, "overflow");
+            return chain.filter(exchange);
+        }
+        count(route, "coalesced");
+        return existing.sink.asMono()
+                .timeout(config.getMaxWait())
+                .flatMap(captured -> write(exchange.getResponse(), captured))
+                .onErrorResume(e -> {
+                    // 等待超时或者首个请求失败，自己请求下游
+                    count(route, "fallback");
+                    return chain.filter(exchange);
+                });
+    }
+
+    /**
+     * 首个请求：正常发往下游，同时复制一份响应给跟随请求
+     */
+    private Mono<Void> lead(ServerWebExchange exchange, GatewayFilterChain chain, String key, InFlight inFlight) {
+        ResponseCaptureFilter.onBody(exchange, (response, body) -> {
+            HttpHeaders headers = new HttpHeaders();
+            headers.putAll(response.getHeaders());
+            inFlights.remove(key, inFlight);
+            inFlight.sink.tryEmitValue(new Captured(response.getStatusCode(), HttpHeaders.readOnlyHttpHeaders(headers), body));
+        });
+        return chain.filter(exchange)
+                .doFinally(signal -> {
+                    // 没有响应体、出错或者被取消时，通知跟随请求自己去请求下游
+                    inFlights.remove(key, inFlight);
+                    inFlight.sink.tryEmitError(new IllegalStateException("首个请求没有可复用的响应"));
+                });
+    }
+
+    private Mono<Void> write(ServerHttpResponse response, Captured captured) {
+        response.setStatusCode(captured.status);
+        HttpHeaders headers = response.getHeaders();
+        captured.headers.forEach((name, values) -> {
+            if (!HttpHeaders.TRANSFER_ENCODING.equalsIgnoreCase(name) && !HttpHeaders.CONNECTION.equalsIgnoreCase(name)) {
+                headers.put(name, values);
+            }
+        });
+        headers.setContentLength(captured.body.length);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(captured.body)));
+    }
+
+    /**
+     * 每个 路由 + 结果 第一次出现时注册Counter并缓存，之后每个请求只是一次map查找
+     */
+    private void count(Route route, String result) {
+        String key = route.getId() + ' ' + result;
+        Counter counter = counters.get(key);
+        if (counter == null) {
+            counter = counters.computeIfAbsent(key, k -> Counter.builder(METRIC_NAME)
+                    .tag("route", route.getId())
+                    .tag("result", result)
+                    .register(meterRegistry));
+        }
+        counter.increment();
+    }
+
+    @Override
+    public int getOrder() {
+        // AuthGlobalFilter(带上user-info)和ResponseCacheFilter之后；
+        // 首个请求的响应体由排在NettyWriteResponseFilter之前的ResponseCaptureFilter交给这里
+        return 3;
+    }
+
+    /**
+     * 正在进行中的请求
+     */
+    private static class InFlight {
+        private final Sinks.One<Captured> sink = Sinks.one();
+        private final AtomicInteger waiters = new AtomicInteger();
+    }
+
+    /**
+     * 复制下来的响应
+     */
+    @RequiredArgsConstructor
+    private static class Captured {
+        private final HttpStatus status;
+        private final HttpHeaders headers;
+        private final byte[] body;
+    }
+}
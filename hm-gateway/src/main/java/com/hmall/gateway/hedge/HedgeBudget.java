@@ -0,0 +1,53 @@
+package com.hmall.gateway.hedge;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 全局对冲预算
+ * 每个请求往预算里存 ratio 个令牌，每次对冲花掉1个，令牌不够就不对冲。
+ * 这样对冲请求的比例最多是 ratio，下游过载导致大量请求变慢时也不会因为对冲而把流量翻倍。
+ */
+public class HedgeBudget {
+
+    private static final long SCALE = 1000;   //令牌按千分之一为单位存，避免浮点CAS
+
+    private final long deposit;
+
+    private final long maxBalance;
+
+    private final AtomicLong balance = new AtomicLong();
+
+    public HedgeBudget(double ratio, int maxTokens) {
+        this.deposit = Math.max(0, Math.round(ratio * SCALE));
+        this.maxBalance = (long) maxTokens * SCALE;
+    }
+
+    /**
+     * 每个请求调用一次，存入令牌
+     */
+    public void deposit() {
+        long current;
+        do {
+            current = balance.get();
+            if (current >= maxBalance) {
+                return;
+            }
+        } while (!balance.compareAndSet(current, Math.min(maxBalance, current + deposit)));
+    }
+
+    /**
+     * 尝试花掉一个令牌
+     *
+     * @return 是否允许对冲
+     */
+    public boolean tryWithdraw() {
+        long current;
+        do {
+            current = balance.get();
+            if (current < SCALE) {
+                return false;
+            }
+        } while (!balance.compareAndSet(current, current - SCALE));
+        return true;
+    }
+}
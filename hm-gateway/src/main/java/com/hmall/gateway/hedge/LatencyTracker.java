@@ -0,0 +1,61 @@
+package com.hmall.gateway.hedge;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 记录一个路由最近的请求延迟，算出对冲延迟（最近延迟的某个分位数）
+ * 延迟写进固定大小的环形数组，每写满一批样本才重新排序计算一次分位数，平时读取只是读一个volatile字段。
+ */
+public class LatencyTracker {
+
+    private static final int SAMPLES = 1024;
+
+    private static final int RECOMPUTE_EVERY = 128;
+
+    private final AtomicLongArray ring = new AtomicLongArray(SAMPLES);
+
+    private final AtomicLong count = new AtomicLong();
+
+    private final double percentile;
+
+    private final long minDelayNanos;
+
+    private final long maxDelayNanos;
+
+    private volatile long delayNanos;
+
+    public LatencyTracker(double percentile, long minDelayNanos, long maxDelayNanos) {
+        this.percentile = percentile;
+        this.minDelayNanos = minDelayNanos;
+        this.maxDelayNanos = maxDelayNanos;
+        this.delayNanos = maxDelayNanos;   //样本不够时用上限
+    }
+
+    public void record(long latencyNanos) {
+        long n = count.getAndIncrement();
+        ring.set((int) (n % SAMPLES), latencyNanos);
+        if ((n + 1) % RECOMPUTE_EVERY == 0) {
+            recompute((int) Math.min(n + 1, SAMPLES));
+        }
+    }
+
+    private void recompute(int size) {
+        long[] copy = new long[size];
+        for (int i = 0; i < size; i++) {
+            copy[i] = ring.get(i);
+        }
+        Arrays.sort(copy);
+        int index = (int) Math.ceil(percentile * size) - 1;
+        long value = copy[Math.max(0, Math.min(size - 1, index))];
+        delayNanos = Math.max(minDelayNanos, Math.min(maxDelayNanos, value));
+    }
+
+    /**
+     * 当前的对冲延迟，单位纳秒
+     */
+    public long getDelayNanos() {
+        return delayNanos;
+    }
+}
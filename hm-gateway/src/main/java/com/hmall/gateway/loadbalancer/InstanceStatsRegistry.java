@@ -0,0 +1,94 @@
+package com.hmall.gateway.loadbalancer;
+
+import com.hmall.gateway.config.P2cLoadBalancerProperties;
+import lombok.Getter;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 下游实例的负载统计：正在处理的请求数 + 延迟的peak-EWMA
+ * peak-EWMA：延迟比当前值高时直接取新值（慢了马上就能发现），否则按时间指数衰减地靠近新值；
+ * 读取时也按距离上次更新的时间衰减，这样一个曾经慢过、之后没被选中的实例分数会慢慢降下来，重新获得流量。
+ */
+@Component
+public class InstanceStatsRegistry {
+
+    private final Map<String, Map<String, InstanceStats>> services = new ConcurrentHashMap<>();
+
+    private final double decayNanos;
+
+    @Getter
+    private final long failurePenaltyNanos;
+
+    public InstanceStatsRegistry(P2cLoadBalancerProperties properties) {
+        this.decayNanos = properties.getDecay().toNanos();
+        this.failurePenaltyNanos = properties.getFailurePenalty().toNanos();
+    }
+
+    public InstanceStats get(ServiceInstance instance) {
+        return services.computeIfAbsent(instance.getServiceId(), k -> new ConcurrentHashMap<>())
+                .computeIfAbsent(instance.getHost() + ":" + instance.getPort(), k -> new InstanceStats());
+    }
+
+    /**
+     * 所有实例的统计，key是服务名，value的key是 host:port
+     */
+    public Map<String, Map<String, InstanceStats>> getServices() {
+        return services;
+    }
+
+    /**
+     * 单个实例的统计
+     */
+    public class InstanceStats {
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private double ewmaNanos;
+        private long lastUpdate;
+
+        public void start() {
+            outstanding.incrementAndGet();
+        }
+
+        public void complete(long latencyNanos, boolean failed) {
+            outstanding.decrementAndGet();
+            observe(failed ? Math.max(latencyNanos, failurePenaltyNanos) : latencyNanos);
+        }
+
+        private synchronized void observe(long latencyNanos) {
+            long now = System.nanoTime();
+            if (lastUpdate == 0 || latencyNanos > ewmaNanos) {
+                ewmaNanos = latencyNanos;
+            } else {
+                double w = Math.exp(-(now - lastUpdate) / decayNanos);
+                ewmaNanos = ewmaNanos * w + latencyNanos * (1 - w);
+            }
+            lastUpdate = now;
+        }
+
+        public int getOutstanding() {
+            return outstanding.get();
+        }
+
+        /**
+         * 按空闲时间衰减后的延迟EWMA，单位纳秒
+         */
+        public synchronized double getEwmaNanos() {
+            if (lastUpdate == 0) {
+                return 0;
+            }
+            return ewmaNanos * Math.exp(-(System.nanoTime() - lastUpdate) / decayNanos);
+        }
+
+        /**
+         * 负载分数，越小越好：延迟 × (正在处理的请求数 + 1)
+         * 没有统计数据的新实例延迟按0算，会先分到一些请求，正在处理的请求数会限制它一下子被打满
+         */
+        public double getScore() {
+            return (getEwmaNanos() + 1) * (getOutstanding() + 1);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.hmall.gateway.loadbalancer;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.EmptyResponse;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.loadbalancer.core.NoopServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * P2C（power of two choices）负载均衡
+ * 每次随机挑两个实例，选负载分数低的那个（分数见 InstanceStatsRegistry.InstanceStats#getScore）。
+ * 比起每次找全局最优，随机挑两个不需要遍历所有实例，也不会让所有网关同时扎堆到同一个"最好"的实例上。
+ */
+@RequiredArgsConstructor
+public class P2cLoadBalancer implements ReactorServiceInstanceLoadBalancer {
+
+    private final ObjectProvider<ServiceInstanceListSupplier> supplierProvider;
+
+    private final String serviceId;
+
+    private final InstanceStatsRegistry statsRegistry;
+
+    @Override
+    public Mono<Response<ServiceInstance>> choose(Request request) {
+        ServiceInstanceListSupplier supplier = supplierProvider.getIfAvailable(NoopServiceInstanceListSupplier::new);
+        return supplier.get(request).next().map(this::choose);
+    }
+
+    private Response<ServiceInstance> choose(List<ServiceInstance> instances) {
+        int size = instances.size();
+        if (size == 0) {
+            return new EmptyResponse();
+        }
+        if (size == 1) {
+            return new DefaultResponse(instances.get(0));
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int a = random.nextInt(size);
+        int b = random.nextInt(size - 1);
+        if (b >= a) {
+            b++;
+        }
+        ServiceInstance first = instances.get(a);
+        ServiceInstance second = instances.get(b);
+        double firstScore = statsRegistry.get(first).getScore();
+        double secondScore = statsRegistry.get(second).getScore();
+        return new DefaultResponse(firstScore <= secondScore ? first : second);
+    }
+}
@@ -0,0 +1,31 @@
+package com.hmall.gateway.loadbalancer;
+
+import com.hmall.gateway.config.P2cLoadBalancerProperties;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.loadbalancer.core.ReactorLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.RoundRobinLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.Environment;
+
+/**
+ * 每个下游服务的负载均衡器配置，由 @LoadBalancerClients(defaultConfiguration=...) 引入到各服务自己的子容器中
+ * 注意：这个类不能加@Configuration，否则会被主容器扫描到，所有服务共用同一个负载均衡器
+ */
+public class P2cLoadBalancerConfiguration {
+
+    @Bean
+    public ReactorLoadBalancer<ServiceInstance> reactorServiceInstanceLoadBalancer(
+            Environment environment, LoadBalancerClientFactory clientFactory,
+            P2cLoadBalancerProperties properties, InstanceStatsRegistry statsRegistry) {
+        String serviceId = environment.getProperty(LoadBalancerClientFactory.PROPERTY_NAME);
+        if (properties.getP2cServices().contains(serviceId)) {
+            return new P2cLoadBalancer(
+                    clientFactory.getLazyProvider(serviceId, ServiceInstanceListSupplier.class), serviceId, statsRegistry);
+        }
+        // 没有配置的服务保持默认的轮询
+        return new RoundRobinLoadBalancer(
+                clientFactory.getLazyProvider(serviceId, ServiceInstanceListSupplier.class), serviceId);
+    }
+}
@@ -0,0 +1,77 @@
+package com.hmall.gateway.metrics;
+
+import com.hmall.gateway.config.AccessLogProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 异步访问日志
+ * 请求线程(netty的event loop)只负责把日志放进有界缓冲区，放不下就丢弃并计数，绝不等待；
+ * 真正的日志输出由一个后台线程完成。
+ */
+@Slf4j(topic = "gateway.access")
+@Component
+public class AccessLogWriter {
+
+    private final BlockingQueue<String> buffer;
+
+    private final LongAdder dropped = new LongAdder();
+
+    private final Thread worker;
+
+    private volatile boolean running = true;
+
+    public AccessLogWriter(AccessLogProperties properties) {
+        this.buffer = new ArrayBlockingQueue<>(Math.max(1, properties.getLogBufferSize()));
+        this.worker = new Thread(this::drain, "gateway-access-log");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * 提交一条访问日志，缓冲区满时直接丢弃
+     *
+     * @param line 日志内容
+     */
+    public void submit(String line) {
+        if (!buffer.offer(line)) {
+            dropped.increment();
+        }
+    }
+
+    /**
+     * 因缓冲区满而丢弃的日志条数
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    private void drain() {
+        while (running || !buffer.isEmpty()) {
+            try {
+                String line = buffer.poll(500, TimeUnit.MILLISECONDS);
+                if (line != null) {
+                    log.info(line);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                // 写日志失败不能让后台线程退出
+                log.warn("写访问日志失败", e);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        worker.join(2000);
+    }
+}
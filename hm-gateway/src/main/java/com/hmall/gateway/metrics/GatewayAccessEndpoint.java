@@ -0,0 +1,87 @@
+package com.hmall.gateway.metrics;
+
+import com.hmall.gateway.filter.AccessMetricsFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.CountAtBucket;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 网关访问指标端点  GET /actuator/gatewayaccess
+ * 按路由汇总请求数、耗时分位数、状态码类别分布、请求方法分布和下游实例分布
+ * 分位数由各时间序列的直方图合并后计算，精度是直方图桶的宽度
+ */
+@Component
+@Endpoint(id = "gatewayaccess")
+@RequiredArgsConstructor
+public class GatewayAccessEndpoint {
+
+    private static final double[] PERCENTILES = {0.5, 0.95, 0.99};
+
+    private final MeterRegistry meterRegistry;
+
+    private final AccessLogWriter accessLogWriter;
+
+    @ReadOperation
+    public Map<String, Object> access() {
+        Map<String, Map<String, Object>> routes = new TreeMap<>();
+        Map<String, TreeMap<Double, Long>> buckets = new TreeMap<>();
+        for (Timer timer : meterRegistry.find(AccessMetricsFilter.METRIC_NAME).timers()) {
+            String routeId = timer.getId().getTag("route");
+            Map<String, Object> route = routes.computeIfAbsent(routeId, k -> new LinkedHashMap<>());
+            HistogramSnapshot snapshot = timer.takeSnapshot();
+            route.merge("count", snapshot.count(), (a, b) -> (Long) a + (Long) b);
+            addTo(route, "status", timer.getId().getTag("status"), snapshot.count());
+            addTo(route, "method", timer.getId().getTag("method"), snapshot.count());
+            addTo(route, "instance", timer.getId().getTag("instance"), snapshot.count());
+            // 同一路由各时间序列的直方图按桶相加，再从合并后的直方图算分位数
+            TreeMap<Double, Long> merged = buckets.computeIfAbsent(routeId, k -> new TreeMap<>());
+            for (CountAtBucket bucket : snapshot.histogramCounts()) {
+                merged.merge(bucket.bucket(TimeUnit.MILLISECONDS), (long) bucket.count(), Long::sum);
+            }
+            route.merge("maxMs", snapshot.max(TimeUnit.MILLISECONDS), (a, b) -> Math.max((Double) a, (Double) b));
+        }
+        routes.forEach((routeId, route) -> {
+            long count = (Long) route.get("count");
+            TreeMap<Double, Long> merged = buckets.get(routeId);
+            for (double percentile : PERCENTILES) {
+                route.put("p" + Math.round(percentile * 100) + "Ms", percentile(merged, count, percentile));
+            }
+        });
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("routes", routes);
+        result.put("droppedAccessLogs", accessLogWriter.getDropped());
+        return result;
+    }
+
+    /**
+     * 从累计直方图（每个桶是 <= 上界 的次数）中取分位数，结果是所在桶的上界
+     */
+    private static double percentile(TreeMap<Double, Long> cumulative, long count, double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(percentile * count);
+        for (Map.Entry<Double, Long> bucket : cumulative.entrySet()) {
+            if (bucket.getValue() >= rank) {
+                return bucket.getKey();
+            }
+        }
+        return cumulative.isEmpty() ? 0 : cumulative.lastKey();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void addTo(Map<String, Object> route, String name, String key, long count) {
+        Map<String, Long> counts = (Map<String, Long>) route.computeIfAbsent(name, k -> new TreeMap<String, Long>());
+        counts.merge(key, count, Long::sum);
+    }
+}
@@ -0,0 +1,40 @@
+package com.hmall.gateway.metrics;
+
+import com.hmall.gateway.loadbalancer.InstanceStatsRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 负载均衡实例统计端点  GET /actuator/gatewaylb
+ * 按服务列出每个实例正在处理的请求数、延迟EWMA和负载分数
+ */
+@Component
+@Endpoint(id = "gatewaylb")
+@RequiredArgsConstructor
+public class GatewayLoadBalancerEndpoint {
+
+    private final InstanceStatsRegistry statsRegistry;
+
+    @ReadOperation
+    public Map<String, Map<String, Object>> instances() {
+        Map<String, Map<String, Object>> result = new TreeMap<>();
+        statsRegistry.getServices().forEach((serviceId, instances) -> {
+            Map<String, Object> service = new TreeMap<>();
+            instances.forEach((address, stats) -> {
+                Map<String, Object> item = new LinkedHashMap<>();
+                item.put("outstanding", stats.getOutstanding());
+                item.put("ewmaMs", stats.getEwmaNanos() / 1_000_000);
+                item.put("score", stats.getScore());
+                service.put(address, item);
+            });
+            result.put(serviceId, service);
+        });
+        return result;
+    }
+}
@@ -0,0 +1,67 @@
+package com.hmall.gateway.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 一条限流规则下所有用户的令牌桶
+ * 每个桶只有一个AtomicLong，用GCRA（理论到达时间）算法实现令牌桶：
+ * 记录"令牌已经用到了哪个时间点"，(now - 它) / 间隔 就是桶里剩余的令牌数（最多capacity个），
+ * 取令牌就是把这个时间点往后推一个间隔，CAS更新，不加锁。
+ * 桶放在Caffeine里（内部分段、读写都不阻塞），数量有上限，长时间不访问的桶会被淘汰，
+ * 淘汰的桶本来也已经满了，所以不影响限流结果。
+ */
+public class TokenBucketTable {
+
+    private final long intervalNanos;   //补充一个令牌需要的时间
+
+    private final long burstNanos;      //装满整个桶需要的时间
+
+    private final Cache<String, AtomicLong> buckets;
+
+    public TokenBucketTable(int capacity, double refillPerSecond, long maximumBuckets, Duration idleTimeout) {
+        if (capacity <= 0 || refillPerSecond <= 0) {
+            throw new IllegalArgumentException("限流规则的capacity和refillPerSecond必须大于0");
+        }
+        this.intervalNanos = Math.max(1, (long) (1_000_000_000L / refillPerSecond));
+        this.burstNanos = intervalNanos * capacity;
+        // 空闲时间至少要能把桶补满，否则淘汰会让用户提前拿到满桶
+        long idleNanos = Math.max(idleTimeout.toNanos(), burstNanos);
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maximumBuckets)
+                .expireAfterAccess(Duration.ofNanos(idleNanos))
+                .build();
+    }
+
+    /**
+     * 尝试取一个令牌
+     *
+     * @param key 桶的key（用户）
+     * @return 0表示取到了；大于0表示被限流，值为还需要等待的纳秒数
+     */
+    public long tryAcquire(String key) {
+        AtomicLong tat = buckets.get(key, k -> new AtomicLong(Long.MIN_VALUE));
+        long now = System.nanoTime();
+        while (true) {
+            long current = tat.get();
+            long next = Math.max(current, now - burstNanos) + intervalNanos;
+            long wait = next - now;
+            if (wait > 0) {
+                return wait;
+            }
+            if (tat.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * 当前桶的数量（近似值）
+     */
+    public long size() {
+        return buckets.estimatedSize();
+    }
+}
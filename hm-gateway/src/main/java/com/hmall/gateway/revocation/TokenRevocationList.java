@@ -0,0 +1,98 @@
+package com.hmall.gateway.revocation;
+
+import com.hmall.gateway.config.AuthProperties;
+import com.hmall.gateway.config.JwtProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 网关本地的token吊销列表
+ * 布隆过滤器 + 精确集合：绝大多数token没有被吊销，布隆过滤器直接判断不在，不用查Map；
+ * 布隆过滤器说可能在时再查精确集合，所以误判不会拒绝正常的token。
+ * 布隆过滤器没法删除元素，所以按token有效期轮换：保留当前和上一代两个，每过一个有效期换一代，
+ * 一个token被吊销后至少会保留一个完整的有效期，这时token本身也已经过期了。
+ */
+@Component
+public class TokenRevocationList {
+
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();   //token id -> 过期时间
+
+    private final long rotateMillis;
+
+    private final int expectedInsertions;
+
+    private final double falsePositiveRate;
+
+    private volatile Generation current;
+
+    private volatile Generation previous;
+
+    public TokenRevocationList(AuthProperties authProperties, JwtProperties jwtProperties) {
+        AuthProperties.Revocation properties = authProperties.getRevocation();
+        this.rotateMillis = jwtProperties.getTokenTTL().toMillis();
+        this.expectedInsertions = properties.getExpectedInsertions();
+        this.falsePositiveRate = properties.getFalsePositiveRate();
+        this.current = newGeneration(System.currentTimeMillis());
+        this.previous = current;
+    }
+
+    /**
+     * 吊销一个token
+     *
+     * @param tokenId   token的id
+     * @param expiresAt token的过期时间
+     */
+    public synchronized void revoke(String tokenId, long expiresAt) {
+        long now = System.currentTimeMillis();
+        if (expiresAt <= now) {
+            return;
+        }
+        if (now - current.createdAt >= rotateMillis) {
+            rotate(now);
+        }
+        revoked.put(tokenId, expiresAt);
+        current.bloom.put(tokenId);
+    }
+
+    /**
+     * 判断token是否已被吊销，不创建任何对象
+     *
+     * @param tokenId token的id，为null时（旧token）返回false
+     */
+    public boolean isRevoked(String tokenId) {
+        if (tokenId == null) {
+            return false;
+        }
+        if (!current.bloom.mightContain(tokenId) && !previous.bloom.mightContain(tokenId)) {
+            return false;
+        }
+        return revoked.containsKey(tokenId);
+    }
+
+    private void rotate(long now) {
+        previous = current;
+        current = newGeneration(now);
+        // 顺便清理已经过期的token
+        revoked.values().removeIf(expiresAt -> expiresAt <= now);
+    }
+
+    private Generation newGeneration(long now) {
+        return new Generation(new BloomFilter(expectedInsertions, falsePositiveRate), now);
+    }
+
+    public int size() {
+        return revoked.size();
+    }
+
+    private static class Generation {
+        private final BloomFilter bloom;
+        private final long createdAt;
+
+        private Generation(BloomFilter bloom, long createdAt) {
+            this.bloom = bloom;
+            this.createdAt = createdAt;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.hmall.gateway.revocation;
+
+import com.hmall.common.constants.MqConstants;
+import com.hmall.common.constants.RedisConstants;
+import com.hmall.common.domain.RevokedToken;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.ExchangeTypes;
+import org.springframework.amqp.rabbit.annotation.Exchange;
+import org.springframework.amqp.rabbit.annotation.Queue;
+import org.springframework.amqp.rabbit.annotation.QueueBinding;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 监听user-service发出的token吊销广播，加入本网关实例的吊销列表
+ * 队列不指定名字 ---> 每个网关实例一个匿名的、断开即删除的队列，广播给所有实例
+ * 匿名队列收不到实例启动前的广播，所以启动后再从Redis（user-service同时写入的有序集合）恢复还没过期的吊销记录；
+ * 恢复在监听开始之后进行，两者之间的吊销不会漏掉，重复加入没有影响。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "hm.auth.revocation", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class TokenRevokeListener {
+
+    private final TokenRevocationList revocationList;
+
+    private final ReactiveStringRedisTemplate redisTemplate;
+
+    @RabbitListener(bindings = @QueueBinding(
+            value = @Queue,
+            exchange = @Exchange(name = MqConstants.TOKEN_REVOKE_EXCHANGE, type = ExchangeTypes.FANOUT)
+    ))
+    public void onTokenRevoked(RevokedToken token) {
+        if (token.getTokenId() != null && token.getExpiresAt() != null) {
+            revocationList.revoke(token.getTokenId(), token.getExpiresAt());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void restore() {
+        Range<Double> unexpired = Range.rightUnbounded(Range.Bound.inclusive((double) System.currentTimeMillis()));
+        redisTemplate.opsForZSet().rangeByScoreWithScores(RedisConstants.REVOKED_TOKENS_KEY, unexpired)
+                .doOnNext(tuple -> revocationList.revoke(tuple.getValue(), tuple.getScore().longValue()))
+                .count()
+                .timeout(Duration.ofSeconds(10))
+                .subscribe(count -> log.info("从Redis恢复了 {} 个已吊销的token", count),
+                        // Redis不可用时只依赖MQ广播，重启前吊销的token在过期前仍然可以使用
+                        e -> log.warn("从Redis恢复已吊销的token失败", e));
+    }
+}
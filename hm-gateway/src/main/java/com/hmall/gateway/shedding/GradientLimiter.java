@@ -0,0 +1,122 @@
+package com.hmall.gateway.shedding;
+
+import com.hmall.gateway.config.LoadSheddingProperties;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 基于延迟梯度的自适应并发上限（思路同Netflix concurrency-limits的Gradient2）
+ * 每个窗口统计一次平均延迟(shortRtt)，和缓慢变化的长期基线(longRtt)比较：
+ * gradient = tolerance * longRtt / shortRtt，限制在[0.5, 1]之间，
+ * 新上限 = 当前上限 * gradient + sqrt(当前上限)（留一点排队余量，让上限在延迟正常时能慢慢涨上去）。
+ * 延迟升高时gradient小于1，上限随之降低，网关就会开始丢弃请求。
+ */
+public class GradientLimiter {
+
+    private final AtomicInteger inflight = new AtomicInteger();
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final double tolerance;
+
+    private final double smoothing;
+
+    private final long windowNanos;
+
+    private volatile double limit;
+
+    private double longRtt;         //长期延迟基线，只在调整上限时（单线程）读写
+
+    private final AtomicLong windowStart = new AtomicLong(System.nanoTime());
+
+    private final LongAdder windowRttSum = new LongAdder();
+
+    private final LongAdder windowCount = new LongAdder();
+
+    private final AtomicInteger windowMaxInflight = new AtomicInteger();
+
+    public GradientLimiter(LoadSheddingProperties properties) {
+        this.minLimit = properties.getMinLimit();
+        this.maxLimit = properties.getMaxLimit();
+        this.tolerance = properties.getTolerance();
+        this.smoothing = properties.getSmoothing();
+        this.windowNanos = properties.getWindow().toNanos();
+        this.limit = properties.getInitialLimit();
+    }
+
+    /**
+     * 尝试占用一个并发名额
+     *
+     * @param share 这类请求可以用到上限的多少
+     * @return 是否放行，放行后必须调用 release
+     */
+    public boolean tryAcquire(double share) {
+        int allowed = (int) (limit * share);
+        while (true) {
+            int current = inflight.get();
+            if (current >= allowed) {
+                return false;
+            }
+            if (inflight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 请求结束，释放名额并记录延迟
+     */
+    public void release(long rttNanos) {
+        int current = inflight.getAndDecrement();
+        sample(rttNanos, current);
+    }
+
+    private void sample(long rttNanos, int inflightAtEnd) {
+        windowRttSum.add(rttNanos);
+        windowCount.increment();
+        windowMaxInflight.accumulateAndGet(inflightAtEnd, Math::max);
+        long start = windowStart.get();
+        long now = System.nanoTime();
+        // 窗口到期后只有CAS成功的那个线程去调整上限，其余线程不等待
+        if (now - start < windowNanos || windowCount.sum() < 10 || !windowStart.compareAndSet(start, now)) {
+            return;
+        }
+        long count = windowCount.sumThenReset();
+        double shortRtt = (double) windowRttSum.sumThenReset() / Math.max(1, count);
+        int maxInflight = windowMaxInflight.getAndSet(0);
+        update(shortRtt, maxInflight);
+    }
+
+    private synchronized void update(double shortRtt, int maxInflight) {
+        if (shortRtt <= 0) {
+            return;
+        }
+        longRtt = longRtt == 0 ? shortRtt : longRtt * 0.95 + shortRtt * 0.05;
+        // 延迟基线会被持续的过载拖高，短期延迟明显更低时说明已经恢复，基线跟着往下走
+        if (longRtt / shortRtt > 2) {
+            longRtt *= 0.9;
+        }
+        double current = limit;
+        // 并发远没有用到上限时延迟说明不了什么，不调大上限
+        if (maxInflight >= current / 2) {
+            double gradient = Math.max(0.5, Math.min(1.0, tolerance * longRtt / shortRtt));
+            double newLimit = current * gradient + Math.sqrt(current);
+            current = current * (1 - smoothing) + newLimit * smoothing;
+        } else if (shortRtt > tolerance * longRtt) {
+            current = current * (1 - smoothing) + current * 0.5 * smoothing;
+        }
+        limit = Math.max(minLimit, Math.min(maxLimit, current));
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInflight() {
+        return inflight.get();
+    }
+}
@@ -2,10 +2,13 @@ package com.hmall.gateway.utils;
 
 import cn.hutool.core.exceptions.ValidateException;
 import cn.hutool.jwt.JWT;
+import cn.hutool.jwt.JWTPayload;
 import cn.hutool.jwt.JWTValidator;
 import cn.hutool.jwt.signers.JWTSigner;
 import cn.hutool.jwt.signers.JWTSignerUtil;
 import com.hmall.common.exception.UnauthorizedException;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
 import org.springframework.stereotype.Component;
 
 import java.security.KeyPair;
@@ -42,6 +45,16 @@ public class JwtTool {
      * @return 解析刷新token得到的用户信息
      */
     public Long parseToken(String token) {
+        return parseTokenInfo(token).getUserId();
+    }
+
+    /**
+     * 解析token，同时返回token的过期时间（供网关缓存校验结果使用）
+     *
+     * @param token token
+     * @return 用户id和过期时间
+     */
+    public TokenInfo parseTokenInfo(String token) {
         // 1.校验token是否为空
         if (token == null) {
             throw new UnauthorizedException("未登录");
@@ -72,11 +85,45 @@ public class JwtTool {
         }
 
         // 5.数据解析
+        Long userId;
         try {
-            return Long.valueOf(userPayload.toString());
+            userId = Long.valueOf(userPayload.toString());
         } catch (RuntimeException e) {
             // 数据格式有误
             throw new UnauthorizedException("无效的token");
         }
+        // 6.过期时间，jwt中exp的单位是秒
+        Object exp = jwt.getPayload(JWTPayload.EXPIRES_AT);
+        long expiresAt = 0L;
+        if (exp != null) {
+            try {
+                expiresAt = Long.parseLong(exp.toString()) * 1000;
+            } catch (NumberFormatException e) {
+                throw new UnauthorizedException("无效的token");
+            }
+        }
+        // 7.token的id，吊销token时使用，旧版本签发的token没有
+        Object tokenId = jwt.getPayload(JWTPayload.JWT_ID);
+        return new TokenInfo(userId, expiresAt, tokenId == null ? null : tokenId.toString());
+    }
+
+    /**
+     * 校验通过的token信息
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class TokenInfo {
+        /**
+         * 用户id
+         */
+        private final Long userId;
+        /**
+         * 过期时间的毫秒值，0表示token中没有exp
+         */
+        private final long expiresAt;
+        /**
+         * token的id（jti），可能为null
+         */
+        private final String tokenId;
     }
 }
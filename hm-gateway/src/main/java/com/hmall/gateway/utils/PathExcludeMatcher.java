@@ -0,0 +1,310 @@
+package com.hmall.gateway.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * 预编译的路径匹配器，语义与 AntPathMatcher 一致（? * ** {var} {var:regex}）
+ * AntPathMatcher.match 每次调用都要重新切分pattern和path，放行路径一多、请求一多就很浪费。
+ * 这里在启动时把所有pattern按路径段编译成一棵前缀树，请求来了只需要沿着path走一遍，
+ * 纯字面量和 * ? 通配的段都不会产生新对象（只有带 {var:regex} 的段会用到正则）。
+ */
+public class PathExcludeMatcher {
+
+    private static final char SEPARATOR = '/';
+
+    private final Node absoluteRoot = new Node();   //以 / 开头的pattern
+
+    private final Node relativeRoot = new Node();   //不以 / 开头的pattern
+
+    private PathExcludeMatcher() {
+    }
+
+    /**
+     * 把一组Ant风格的pattern编译成匹配器
+     *
+     * @param patterns pattern列表，可以为null
+     * @return 匹配器
+     */
+    public static PathExcludeMatcher compile(List<String> patterns) {
+        PathExcludeMatcher matcher = new PathExcludeMatcher();
+        if (patterns == null) {
+            return matcher;
+        }
+        for (String pattern : patterns) {
+            if (pattern != null) {
+                matcher.add(pattern.trim());
+            }
+        }
+        return matcher;
+    }
+
+    private void add(String pattern) {
+        Node node = pattern.startsWith("/") ? absoluteRoot : relativeRoot;
+        for (String segment : pattern.split("/")) {
+            if (segment.isEmpty()) {
+                //和AntPathMatcher一样忽略空段
+                continue;
+            }
+            node = node.child(Segment.of(segment));
+        }
+        if (pattern.endsWith("/")) {
+            node.terminalWithSlash = true;
+        } else {
+            node.terminalWithoutSlash = true;
+        }
+    }
+
+    /**
+     * 判断path是否匹配任意一个pattern
+     *
+     * @param path 请求路径
+     * @return 是否匹配
+     */
+    public boolean matches(String path) {
+        if (path == null) {
+            return false;
+        }
+        Node root = !path.isEmpty() && path.charAt(0) == SEPARATOR ? absoluteRoot : relativeRoot;
+        return match(root, path, 0, !path.isEmpty() && path.charAt(path.length() - 1) == SEPARATOR, false);
+    }
+
+    /**
+     * @param afterDoubleStar 是否已经经过了 ** 段，经过之后 /a/* 匹配 /a/ 的特例不再适用（和AntPathMatcher一致）
+     */
+    private static boolean match(Node node, String path, int pos, boolean pathEndsWithSlash, boolean afterDoubleStar) {
+        int len = path.length();
+        //跳过分隔符
+        while (pos < len && path.charAt(pos) == SEPARATOR) {
+            pos++;
+        }
+        if (pos >= len) {
+            return matchEnd(node, pathEndsWithSlash, afterDoubleStar);
+        }
+        int end = path.indexOf(SEPARATOR, pos);
+        if (end < 0) {
+            end = len;
+        }
+        for (int i = 0; i < node.size; i++) {
+            Segment segment = node.segments[i];
+            Node child = node.children[i];
+            if (segment.type == SegmentType.DOUBLE_STAR) {
+                // ** 匹配0个或多个路径段
+                // pattern以 ** 结尾时匹配剩下的任意路径，不管结尾有没有斜杠
+                if (child.isTerminal()) {
+                    return true;
+                }
+                int p = pos;
+                while (true) {
+                    if (match(child, path, p, pathEndsWithSlash, true)) {
+                        return true;
+                    }
+                    if (p >= len) {
+                        break;
+                    }
+                    int next = path.indexOf(SEPARATOR, p + 1);
+                    p = next < 0 ? len : next;
+                }
+            } else if (segment.matches(path, pos, end) && match(child, path, end, pathEndsWithSlash, afterDoubleStar)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * path已经走完，判断当前节点能否结束匹配
+     */
+    private static boolean matchEnd(Node node, boolean pathEndsWithSlash, boolean afterDoubleStar) {
+        if (pathEndsWithSlash ? node.terminalWithSlash : node.terminalWithoutSlash) {
+            return true;
+        }
+        for (int i = 0; i < node.size; i++) {
+            Segment segment = node.segments[i];
+            Node child = node.children[i];
+            if (segment.type == SegmentType.DOUBLE_STAR) {
+                // 剩下的pattern都是 ** 时也算匹配
+                if (child.isTerminal() || matchEnd(child, pathEndsWithSlash, true)) {
+                    return true;
+                }
+            } else if (pathEndsWithSlash && !afterDoubleStar && segment.type == SegmentType.GLOB && "*".equals(segment.text)
+                    && child.isTerminal()) {
+                // AntPathMatcher中 /a/* 可以匹配 /a/（前面没有 ** 时）
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private enum SegmentType {
+        LITERAL, GLOB, REGEX, DOUBLE_STAR
+    }
+
+    /**
+     * pattern中的一个路径段
+     */
+    private static final class Segment {
+        private final SegmentType type;
+        private final String text;
+        private final Pattern regex;
+
+        private Segment(SegmentType type, String text, Pattern regex) {
+            this.type = type;
+            this.text = text;
+            this.regex = regex;
+        }
+
+        static Segment of(String text) {
+            if ("**".equals(text)) {
+                return new Segment(SegmentType.DOUBLE_STAR, text, null);
+            }
+            if (text.indexOf('{') >= 0) {
+                return new Segment(SegmentType.REGEX, text, toRegex(text));
+            }
+            if (text.indexOf('*') >= 0 || text.indexOf('?') >= 0) {
+                return new Segment(SegmentType.GLOB, text, null);
+            }
+            return new Segment(SegmentType.LITERAL, text, null);
+        }
+
+        boolean matches(String path, int start, int end) {
+            switch (type) {
+                case LITERAL:
+                    return end - start == text.length() && path.regionMatches(start, text, 0, text.length());
+                case GLOB:
+                    return glob(text, path, start, end);
+                case REGEX:
+                    return regex.matcher(path).region(start, end).matches();
+                default:
+                    return false;
+            }
+        }
+
+        boolean sameAs(Segment other) {
+            return type == other.type && text.equals(other.text);
+        }
+
+        /**
+         * 只含 * 和 ? 的通配匹配，回溯法，不产生新对象
+         */
+        private static boolean glob(String pattern, String path, int start, int end) {
+            int p = 0, s = start, starP = -1, starS = -1;
+            int pLen = pattern.length();
+            while (s < end) {
+                if (p < pLen && (pattern.charAt(p) == '?' || pattern.charAt(p) == path.charAt(s))) {
+                    p++;
+                    s++;
+                } else if (p < pLen && pattern.charAt(p) == '*') {
+                    starP = p++;
+                    starS = s;
+                } else if (starP >= 0) {
+                    p = starP + 1;
+                    s = ++starS;
+                } else {
+                    return false;
+                }
+            }
+            while (p < pLen && pattern.charAt(p) == '*') {
+                p++;
+            }
+            return p == pLen;
+        }
+
+        /**
+         * 按AntPathStringMatcher的规则把带 {var} 的段转换成正则
+         */
+        private static Pattern toRegex(String text) {
+            StringBuilder sb = new StringBuilder();
+            StringBuilder literal = new StringBuilder();
+            int i = 0;
+            while (i < text.length()) {
+                char c = text.charAt(i);
+                if (c == '{') {
+                    int close = findClose(text, i);
+                    appendLiteral(sb, literal);
+                    String var = text.substring(i + 1, close);
+                    int colon = var.indexOf(':');
+                    sb.append(colon < 0 ? "(.*)" : "(" + var.substring(colon + 1) + ")");
+                    i = close + 1;
+                    continue;
+                }
+                if (c == '*') {
+                    appendLiteral(sb, literal);
+                    sb.append(".*");
+                } else if (c == '?') {
+                    appendLiteral(sb, literal);
+                    sb.append('.');
+                } else {
+                    literal.append(c);
+                }
+                i++;
+            }
+            appendLiteral(sb, literal);
+            return Pattern.compile(sb.toString(), Pattern.DOTALL);
+        }
+
+        private static int findClose(String text, int open) {
+            int depth = 0;
+            for (int i = open; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (c == '{') {
+                    depth++;
+                } else if (c == '}' && --depth == 0) {
+                    return i;
+                }
+            }
+            throw new IllegalArgumentException("路径pattern中的{}不匹配: " + text);
+        }
+
+        private static void appendLiteral(StringBuilder sb, StringBuilder literal) {
+            if (literal.length() > 0) {
+                sb.append(Pattern.quote(literal.toString()));
+                literal.setLength(0);
+            }
+        }
+    }
+
+    /**
+     * 前缀树节点，子节点用数组保存，匹配时按顺序遍历
+     */
+    private static final class Node {
+        private Segment[] segments = new Segment[0];
+        private Node[] children = new Node[0];
+        private int size;
+        private boolean terminalWithSlash;
+        private boolean terminalWithoutSlash;
+
+        boolean isTerminal() {
+            return terminalWithSlash || terminalWithoutSlash;
+        }
+
+        Node child(Segment segment) {
+            for (int i = 0; i < size; i++) {
+                if (segments[i].sameAs(segment)) {
+                    return children[i];
+                }
+            }
+            List<Segment> newSegments = new ArrayList<>(List.of(segments));
+            List<Node> newChildren = new ArrayList<>(List.of(children));
+            Node child = new Node();
+            // 字面量段放在前面，先走最便宜的比较
+            int index = segment.type == SegmentType.LITERAL ? firstNonLiteral() : size;
+            newSegments.add(index, segment);
+            newChildren.add(index, child);
+            segments = newSegments.toArray(new Segment[0]);
+            children = newChildren.toArray(new Node[0]);
+            size++;
+            return child;
+        }
+
+        private int firstNonLiteral() {
+            for (int i = 0; i < size; i++) {
+                if (segments[i].type != SegmentType.LITERAL) {
+                    return i;
+                }
+            }
+            return size;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.hmall.gateway.utils;
+
+import org.springframework.util.MultiValueMap;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 生成请求的规范化key（响应缓存、请求合并使用）
+ */
+public class RequestKeyUtils {
+
+    /**
+     * 路径 + 按参数名、参数值排序后的查询参数，参数顺序不同的同一个请求得到相同的key
+     *
+     * @param path        请求路径
+     * @param queryParams 查询参数
+     * @return key
+     */
+    public static String normalize(String path, MultiValueMap<String, String> queryParams) {
+        if (queryParams == null || queryParams.isEmpty()) {
+            return path;
+        }
+        StringBuilder sb = new StringBuilder(path).append('?');
+        for (Map.Entry<String, List<String>> entry : new TreeMap<>(queryParams).entrySet()) {
+            List<String> values = new ArrayList<>(entry.getValue());
+            values.removeIf(v -> v == null);
+            Collections.sort(values);
+            if (values.isEmpty()) {
+                sb.append(entry.getKey()).append('&');
+                continue;
+            }
+            for (String value : values) {
+                sb.append(entry.getKey()).append('=').append(value).append('&');
+            }
+        }
+        sb.setLength(sb.length() - 1);
+        return sb.toString();
+    }
+}
@@ -0,0 +1,66 @@
+package com.hmall.gateway.cache;
+
+import com.hmall.gateway.config.AuthProperties;
+import com.hmall.gateway.utils.JwtTool;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 网关校验token的耗时：每次完整RS256验签（JwtTool.parseTokenInfo）对比命中已校验token缓存（sha256摘要 + Caffeine查找）
+ * 在IDE中运行main方法，或者用 test classpath 执行 java com.hmall.gateway.cache.VerifiedTokenCacheBenchmark。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VerifiedTokenCacheBenchmark {
+
+    private JwtTool jwtTool;
+
+    private VerifiedTokenCache cache;
+
+    private String token;
+
+    @Setup
+    public void setup() throws NoSuchAlgorithmException {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        jwtTool = new JwtTool(generator.generateKeyPair());
+        cache = new VerifiedTokenCache(jwtTool, new AuthProperties(), new SimpleMeterRegistry());
+        token = jwtTool.createToken(1L, Duration.ofHours(1));
+        cache.parseTokenInfo(token);
+    }
+
+    @Benchmark
+    public JwtTool.TokenInfo verify() {
+        return jwtTool.parseTokenInfo(token);
+    }
+
+    @Benchmark
+    public JwtTool.TokenInfo cacheHit() {
+        return cache.parseTokenInfo(token);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(VerifiedTokenCacheBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,102 @@
+package com.hmall.gateway.filter;
+
+import com.hmall.gateway.config.SingleFlightProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+/**
+ * 按网关中的顺序串起 ResponseCaptureFilter -> SingleFlightFilter -> 下游，
+ * 下游把响应体写到 ResponseCaptureFilter 包装过的response上（和NettyWriteResponseFilter一样）
+ */
+class SingleFlightFilterTest {
+
+    private static final Route ROUTE = Route.async()
+            .id("item-service")
+            .uri(URI.create("http://localhost"))
+            .predicate(exchange -> true)
+            .build();
+
+    private final AtomicInteger upstreamCalls = new AtomicInteger();
+
+    private final ResponseCaptureFilter captureFilter = new ResponseCaptureFilter();
+
+    private final SingleFlightFilter singleFlightFilter = new SingleFlightFilter(properties(), new SimpleMeterRegistry());
+
+    private static SingleFlightProperties properties() {
+        SingleFlightProperties properties = new SingleFlightProperties();
+        properties.getRoutes().put(ROUTE.getId(), new SingleFlightProperties.Route());
+        return properties;
+    }
+
+    /**
+     * 下游：延迟一会儿再返回，保证其它请求到达时首个请求还在进行中
+     */
+    private final GatewayFilterChain upstream = exchange -> {
+        upstreamCalls.incrementAndGet();
+        ServerHttpResponse response = exchange.getResponse();
+        return Mono.delay(Duration.ofMillis(200))
+                .then(Mono.defer(() -> {
+                    response.setStatusCode(HttpStatus.OK);
+                    return response.writeWith(Mono.just(response.bufferFactory()
+                            .wrap("item-1".getBytes(StandardCharsets.UTF_8))));
+                }));
+    };
+
+    private Mono<Void> handle(MockServerWebExchange exchange) {
+        exchange.getAttributes().put(GATEWAY_ROUTE_ATTR, ROUTE);
+        return captureFilter.filter(exchange, captured -> singleFlightFilter.filter(captured, upstream));
+    }
+
+    private static MockServerWebExchange get(String userInfo) {
+        return MockServerWebExchange.from(MockServerHttpRequest.get("/items/1").header("user-info", userInfo));
+    }
+
+    @Test
+    void concurrentIdenticalGetsCallUpstreamOnce() {
+        int n = 20;
+        List<MockServerWebExchange> exchanges = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            exchanges.add(get("1"));
+        }
+        Flux.fromIterable(exchanges).flatMap(this::handle).blockLast(Duration.ofSeconds(5));
+
+        assertThat(upstreamCalls).hasValue(1);
+        for (MockServerWebExchange exchange : exchanges) {
+            assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+            assertThat(exchange.getResponse().getBodyAsString().block(Duration.ofSeconds(1))).isEqualTo("item-1");
+        }
+    }
+
+    @Test
+    void differentUsersAreNotCoalesced() {
+        Flux.just(get("1"), get("2"), get("1")).flatMap(this::handle).blockLast(Duration.ofSeconds(5));
+
+        assertThat(upstreamCalls).hasValue(2);
+    }
+
+    @Test
+    void sequentialRequestsAreNotCoalesced() {
+        handle(get("1")).block(Duration.ofSeconds(5));
+        handle(get("1")).block(Duration.ofSeconds(5));
+
+        assertThat(upstreamCalls).hasValue(2);
+    }
+}
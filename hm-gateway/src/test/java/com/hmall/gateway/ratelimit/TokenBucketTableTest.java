@@ -0,0 +1,52 @@
+package com.hmall.gateway.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TokenBucketTableTest {
+
+    /**
+     * 新用户的桶是满的，连续取完capacity个令牌后被限流，等待时间不超过补充一个令牌的间隔
+     */
+    @Test
+    void burstUpToCapacityThenLimited() {
+        TokenBucketTable table = new TokenBucketTable(3, 1, 1000, Duration.ofMinutes(1));
+        assertThat(table.tryAcquire("u1")).isZero();
+        assertThat(table.tryAcquire("u1")).isZero();
+        assertThat(table.tryAcquire("u1")).isZero();
+        long wait = table.tryAcquire("u1");
+        assertThat(wait).isPositive().isLessThanOrEqualTo(Duration.ofSeconds(1).toNanos());
+        // 被拒绝的请求不消耗令牌
+        assertThat(table.tryAcquire("u1")).isPositive();
+    }
+
+    @Test
+    void bucketsAreIndependentPerKey() {
+        TokenBucketTable table = new TokenBucketTable(1, 1, 1000, Duration.ofMinutes(1));
+        assertThat(table.tryAcquire("u1")).isZero();
+        assertThat(table.tryAcquire("u1")).isPositive();
+        assertThat(table.tryAcquire("u2")).isZero();
+    }
+
+    @Test
+    void refillsOverTime() throws InterruptedException {
+        TokenBucketTable table = new TokenBucketTable(1, 50, 1000, Duration.ofMinutes(1));
+        assertThat(table.tryAcquire("u1")).isZero();
+        long wait = table.tryAcquire("u1");
+        assertThat(wait).isPositive();
+        Thread.sleep(Duration.ofNanos(wait).toMillis() + 5);
+        assertThat(table.tryAcquire("u1")).isZero();
+    }
+
+    @Test
+    void rejectsInvalidRule() {
+        assertThatThrownBy(() -> new TokenBucketTable(0, 1, 1000, Duration.ofMinutes(1)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new TokenBucketTable(1, 0, 1000, Duration.ofMinutes(1)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,66 @@
+package com.hmall.gateway.shedding;
+
+import com.hmall.gateway.config.LoadSheddingProperties;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GradientLimiterTest {
+
+    private static LoadSheddingProperties properties(int initialLimit) {
+        LoadSheddingProperties properties = new LoadSheddingProperties();
+        properties.setInitialLimit(initialLimit);
+        properties.setMinLimit(10);
+        properties.setMaxLimit(1000);
+        // 窗口为0：每攒够10个样本就调整一次上限
+        properties.setWindow(Duration.ZERO);
+        return properties;
+    }
+
+    @Test
+    void acquireRespectsLimitAndShare() {
+        GradientLimiter limiter = new GradientLimiter(properties(10));
+        for (int i = 0; i < 5; i++) {
+            assertThat(limiter.tryAcquire(0.5)).isTrue();
+        }
+        assertThat(limiter.tryAcquire(0.5)).isFalse();
+        // 份额更大的请求还能进
+        assertThat(limiter.tryAcquire(1.0)).isTrue();
+        assertThat(limiter.getInflight()).isEqualTo(6);
+        limiter.release(1_000_000);
+        assertThat(limiter.getInflight()).isEqualTo(5);
+        assertThat(limiter.tryAcquire(0.5)).isFalse();
+        limiter.release(1_000_000);
+        assertThat(limiter.tryAcquire(0.5)).isTrue();
+    }
+
+    /**
+     * 延迟稳定时上限慢慢涨，延迟升高后上限下降，但不低于minLimit
+     */
+    @Test
+    void limitFollowsLatencyGradient() {
+        GradientLimiter limiter = new GradientLimiter(properties(100));
+        for (int i = 0; i < 80; i++) {
+            assertThat(limiter.tryAcquire(1.0)).isTrue();
+        }
+        run(limiter, 200, Duration.ofMillis(1));
+        int steady = limiter.getLimit();
+        assertThat(steady).isGreaterThan(100);
+
+        run(limiter, 500, Duration.ofMillis(20));
+        int overloaded = limiter.getLimit();
+        assertThat(overloaded).isLessThan(steady).isGreaterThanOrEqualTo(10);
+    }
+
+    /**
+     * 保持并发不变：每结束一个请求就马上再进来一个
+     */
+    private static void run(GradientLimiter limiter, int requests, Duration rtt) {
+        for (int i = 0; i < requests; i++) {
+            limiter.release(rtt.toNanos());
+            limiter.tryAcquire(1.0);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.hmall.gateway.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.util.AntPathMatcher;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * PathExcludeMatcher和AntPathMatcher的匹配结果必须完全一致
+ */
+class PathExcludeMatcherTest {
+
+    private static final AntPathMatcher ANT = new AntPathMatcher();
+
+    /**
+     * 网关application.yml中配置的放行路径
+     */
+    private static final List<String> EXCLUDE_PATHS = List.of("/search/**", "/users/login", "/items/**");
+
+    private static final List<String> PATTERNS = List.of(
+            "/search/**", "/users/login", "/items/**",
+            "/**", "/**/login", "/a/**/b", "/a/**/b/", "/**/a/*", "/a/**/b/**/c", "/a/*/**",
+            "/a/*", "/a/*/", "/a/*.html", "/a/x?z", "/a/b*c",
+            "/items/{id}", "/items/{id:\\d+}", "/items/{id}/stock", "/users/{id}/**",
+            "/users/", "users/login", "/a//b");
+
+    private static final List<String> PATHS = List.of(
+            "", "/", "/search", "/search/", "/search/list", "/search/list/", "/searching",
+            "/users/login", "/users/login/", "/users/logout", "/users", "/users/", "/users/1/addresses",
+            "users/login", "/items", "/items/", "/items/1", "/items/1/", "/items/abc", "/items/1/stock",
+            "/items/1/stock/", "/login", "/x/y/login", "/x/login/",
+            "/a", "/a/", "/a/b", "/a/b/", "/a/x/b", "/a/x/y/b/", "/a/b/c", "/a/x/b/y/c", "/a/x/c",
+            "/x/a/", "/x/a/b", "/a/x.html", "/a/.html", "/a/xyz", "/a/xz", "/a/bc", "/a/bxyc", "/a//b");
+
+    static Stream<Arguments> cases() {
+        List<Arguments> cases = new ArrayList<>();
+        for (String pattern : PATTERNS) {
+            for (String path : PATHS) {
+                cases.add(Arguments.of(pattern, path));
+            }
+        }
+        return cases.stream();
+    }
+
+    @ParameterizedTest(name = "{0} <- \"{1}\"")
+    @MethodSource("cases")
+    void matchesLikeAntPathMatcher(String pattern, String path) {
+        assertThat(PathExcludeMatcher.compile(List.of(pattern)).matches(path))
+                .isEqualTo(ANT.match(pattern, path));
+    }
+
+    @ParameterizedTest(name = "\"{0}\"")
+    @MethodSource("paths")
+    void excludePathsMatchLikeAntPathMatcher(String path) {
+        boolean expected = EXCLUDE_PATHS.stream().anyMatch(pattern -> ANT.match(pattern, path));
+        assertThat(PathExcludeMatcher.compile(EXCLUDE_PATHS).matches(path)).isEqualTo(expected);
+    }
+
+    static Stream<String> paths() {
+        return PATHS.stream();
+    }
+
+    /**
+     * 多个pattern共用前缀树节点时，一个pattern的结尾不能影响另一个
+     */
+    @Test
+    void sharedPrefixesMatchLikeAntPathMatcher() {
+        List<List<String>> groups = List.of(
+                List.of("/a/**", "/a/**/b"),
+                List.of("/a/*", "/a/**/c"),
+                List.of("/a/b", "/a/b/", "/a/{x}"),
+                List.of("/items/**", "/items/{id}/stock"),
+                List.of("/**/a/*", "/x/a"));
+        for (List<String> group : groups) {
+            PathExcludeMatcher matcher = PathExcludeMatcher.compile(group);
+            for (String path : PATHS) {
+                boolean expected = group.stream().anyMatch(pattern -> ANT.match(pattern, path));
+                assertThat(matcher.matches(path)).as("%s <- \"%s\"", group, path).isEqualTo(expected);
+            }
+        }
+    }
+
+    @Test
+    void nullAndEmptyPatterns() {
+        assertThat(PathExcludeMatcher.compile(null).matches("/items")).isFalse();
+        assertThat(PathExcludeMatcher.compile(Arrays.asList(null, " /items/** ")).matches("/items/1")).isTrue();
+        assertThat(PathExcludeMatcher.compile(EXCLUDE_PATHS).matches(null)).isFalse();
+    }
+}
@@ -0,0 +1,9 @@
+-- --------------------------------------------------------
+-- hm-item 的索引变更（item表结构本身不在这个仓库中）
+-- --------------------------------------------------------
+
+USE `hm-item`;
+
+-- 商品游标分页：ORDER BY update_time DESC, id DESC，条件 (update_time < ? OR update_time = ? AND id < ?)
+-- 按 (update_time, id) 的联合索引倒序扫描，翻到多深每页都只读 size+1 行
+ALTER TABLE `item` ADD INDEX `idx_update_time_id` (`update_time`, `id`);
@@ -1,9 +1,12 @@
 package com.hmall.controller;
 
 
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.hmall.common.domain.CountStrategy;
 import com.hmall.common.domain.PageDTO;
 import com.hmall.common.domain.PageQuery;
+import com.hmall.common.domain.SeekPage;
 import com.hmall.common.utils.BeanUtils;
 import com.hmall.domain.dto.ItemDTO;
 import com.hmall.domain.dto.OrderDetailDTO;
@@ -27,8 +30,14 @@ public class ItemController {
     @ApiOperation("分页查询商品")
     @GetMapping("/page")
     public PageDTO<ItemDTO> queryItemByPage(PageQuery query) {
-        // 1.分页查询
-        Page<Item> result = itemService.page(query.toMpPage("update_time", false));
+        if (query.useCursor()) {
+            // 游标分页，依赖 (update_time, id) 联合索引，不查总数
+            SeekPage<Item> page = query.toSeekPage(Item::getUpdateTime, Item::getId, false);
+            List<Item> records = itemService.list(page.apply(Wrappers.lambdaQuery()));
+            return PageDTO.of(page, records, ItemDTO.class);
+        }
+        // 1.分页查询，不带过滤条件，总条数用表统计信息估算
+        Page<Item> result = itemService.page(query.toMpPage("update_time", false, CountStrategy.ESTIMATED));
         // 2.封装并返回
         return PageDTO.of(result, ItemDTO.class);
     }
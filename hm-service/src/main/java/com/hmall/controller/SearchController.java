@@ -2,8 +2,12 @@ package com.hmall.controller;
 
 
 import cn.hutool.core.util.StrUtil;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.hmall.common.domain.CountStrategy;
 import com.hmall.common.domain.PageDTO;
+import com.hmall.common.domain.SeekPage;
 import com.hmall.domain.dto.ItemDTO;
 import com.hmall.domain.po.Item;
 import com.hmall.domain.query.ItemPageQuery;
@@ -26,14 +30,19 @@ public class SearchController {
     @ApiOperation("搜索商品")
     @GetMapping("/list")
     public PageDTO<ItemDTO> search(ItemPageQuery query) {
-        // 分页查询
-        Page<Item> result = itemService.lambdaQuery()
+        LambdaQueryWrapper<Item> wrapper = Wrappers.<Item>lambdaQuery()
                 .like(StrUtil.isNotBlank(query.getKey()), Item::getName, query.getKey())
                 .eq(StrUtil.isNotBlank(query.getBrand()), Item::getBrand, query.getBrand())
                 .eq(StrUtil.isNotBlank(query.getCategory()), Item::getCategory, query.getCategory())
                 .eq(Item::getStatus, 1)
-                .between(query.getMaxPrice() != null, Item::getPrice, query.getMinPrice(), query.getMaxPrice())
-                .page(query.toMpPage("update_time", false));
+                .between(query.getMaxPrice() != null, Item::getPrice, query.getMinPrice(), query.getMaxPrice());
+        if (query.useCursor()) {
+            // 游标分页，不查总数
+            SeekPage<Item> page = query.toSeekPage(Item::getUpdateTime, Item::getId, false);
+            return PageDTO.of(page, itemService.list(page.apply(wrapper)), ItemDTO.class);
+        }
+        // 分页查询，同样的搜索条件短时间内复用总条数
+        Page<Item> result = itemService.page(query.toMpPage("update_time", false, CountStrategy.CACHED), wrapper);
         // 封装并返回
         return PageDTO.of(result, ItemDTO.class);
     }
@@ -2,6 +2,7 @@ package com.hmall.service.impl;
 
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.hmall.common.exception.BizIllegalException;
+import com.hmall.common.exception.ErrorCodes;
 import com.hmall.common.utils.BeanUtils;
 import com.hmall.domain.dto.ItemDTO;
 import com.hmall.domain.dto.OrderDetailDTO;
@@ -33,7 +34,7 @@ public class ItemServiceImpl extends ServiceImpl<ItemMapper, Item> implements II
             throw new BizIllegalException("更新库存异常，可能是库存不足!", e);
         }
         if (!r) {
-            throw new BizIllegalException("库存不足！");
+            throw ErrorCodes.STOCK_NOT_ENOUGH.exception();
         }
     }
 
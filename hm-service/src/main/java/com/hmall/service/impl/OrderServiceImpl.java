@@ -1,7 +1,7 @@
 package com.hmall.service.impl;
 
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
-import com.hmall.common.exception.BadRequestException;
+import com.hmall.common.exception.ErrorCodes;
 import com.hmall.common.utils.UserContext;
 import com.hmall.domain.dto.ItemDTO;
 import com.hmall.domain.dto.OrderDetailDTO;
@@ -54,7 +54,7 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
         // 1.3.查询商品
         List<ItemDTO> items = itemService.queryItemByIds(itemIds);
         if (items == null || items.size() < itemIds.size()) {
-            throw new BadRequestException("商品不存在");
+            throw ErrorCodes.ITEM_NOT_FOUND.exception();
         }
         // 1.4.基于商品价格、购买数量计算商品总价：totalFee
         int total = 0;
@@ -3,7 +3,7 @@ package com.hmall.service.impl;
 import com.baomidou.mybatisplus.core.toolkit.IdWorker;
 import com.baomidou.mybatisplus.core.toolkit.StringUtils;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
-import com.hmall.common.exception.BizIllegalException;
+import com.hmall.common.exception.ErrorCodes;
 import com.hmall.common.utils.BeanUtils;
 import com.hmall.common.utils.UserContext;
 import com.hmall.domain.dto.PayApplyDTO;
@@ -53,14 +53,14 @@ public class PayOrderServiceImpl extends ServiceImpl<PayOrderMapper, PayOrder> i
         // 2.判断状态
         if (!PayStatus.WAIT_BUYER_PAY.equalsValue(po.getStatus())) {
             // 订单不是未支付，状态异常
-            throw new BizIllegalException("交易已支付或关闭！");
+            throw ErrorCodes.TRADE_PAID_OR_CLOSED.exception();
         }
         // 3.尝试扣减余额
         userService.deductMoney(payOrderFormDTO.getPw(), po.getAmount());
         // 4.修改支付单状态
         boolean success = markPayOrderSuccess(payOrderFormDTO.getId(), LocalDateTime.now());
         if (!success) {
-            throw new BizIllegalException("交易已支付或关闭！");
+            throw ErrorCodes.TRADE_PAID_OR_CLOSED.exception();
         }
         // 5.修改订单状态
         Order order = new Order();
@@ -95,12 +95,12 @@ public class PayOrderServiceImpl extends ServiceImpl<PayOrderMapper, PayOrder> i
         // 3.旧单已经存在，判断是否支付成功
         if (PayStatus.TRADE_SUCCESS.equalsValue(oldOrder.getStatus())) {
             // 已经支付成功，抛出异常
-            throw new BizIllegalException("订单已经支付！");
+            throw ErrorCodes.ORDER_PAID.exception();
         }
         // 4.旧单已经存在，判断是否已经关闭
         if (PayStatus.TRADE_CLOSED.equalsValue(oldOrder.getStatus())) {
             // 已经关闭，抛出异常
-            throw new BizIllegalException("订单已关闭");
+            throw ErrorCodes.ORDER_CLOSED.exception();
         }
         // 5.旧单已经存在，判断支付渠道是否一致
         if (!StringUtils.equals(oldOrder.getPayChannelCode(), applyDTO.getPayChannelCode())) {
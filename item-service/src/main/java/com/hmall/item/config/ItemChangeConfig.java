@@ -0,0 +1,19 @@
+package com.hmall.item.config;
+
+import com.hmall.common.constants.MqConstants;
+import org.springframework.amqp.core.FanoutExchange;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 声明商品变更的广播交换机
+ * 网关启动时也会声明它，这里再声明一次，保证网关没启动时item-service发送消息也不会报交换机不存在
+ */
+@Configuration
+public class ItemChangeConfig {
+
+    @Bean
+    public FanoutExchange itemChangeExchange() {
+        return new FanoutExchange(MqConstants.ITEM_CHANGE_EXCHANGE);
+    }
+}
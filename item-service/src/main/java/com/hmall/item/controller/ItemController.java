@@ -1,7 +1,9 @@
 package com.hmall.item.controller;
 
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.hmall.api.client.ResearchClient;
+import com.hmall.common.constants.MqConstants;
 import com.hmall.common.domain.*;
 import com.hmall.common.utils.BeanUtils;
 import com.hmall.item.domain.dto.OrderDetailDTO;
@@ -10,6 +12,7 @@ import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -25,11 +28,19 @@ public class ItemController {
 
     private final ResearchClient researchClient;
 
+    private final RabbitTemplate rabbitTemplate;
+
     @ApiOperation("分页查询商品")
     @GetMapping("/page")
     public PageDTO<ItemDTO> queryItemByPage(PageQuery query) {
-        // 1.分页查询
-        Page<Item> result = itemService.page(query.toMpPage("update_time", false));
+        if (query.useCursor()) {
+            // 游标分页，依赖 (update_time, id) 联合索引（hm-item-index.sql），不查总数
+            SeekPage<Item> page = query.toSeekPage(Item::getUpdateTime, Item::getId, false);
+            List<Item> records = itemService.list(page.apply(Wrappers.lambdaQuery()));
+            return PageDTO.of(page, records, ItemDTO.class);
+        }
+        // 1.分页查询，不带过滤条件，总条数用表统计信息估算
+        Page<Item> result = itemService.page(query.toMpPage("update_time", false, CountStrategy.ESTIMATED));
         // 2.封装并返回
         return PageDTO.of(result, ItemDTO.class);
     }
@@ -43,7 +54,7 @@ public class ItemController {
     @ApiOperation("根据id查询商品")
     @GetMapping("{id}")
     public ItemDTO queryItemById(@PathVariable("id") Long id) {
-        return BeanUtils.copyBean(itemService.getById(id), ItemDTO.class);
+        return itemService.queryItemById(id);
     }
 
     @ApiOperation("新增商品")
@@ -81,6 +92,8 @@ public class ItemController {
             log.info("修改同步到es失败:{}", id);
             log.info("失败原因:{}", e);
         }
+        // 通知网关清理响应缓存
+        notifyItemChange(id);
     }
 
     @ApiOperation("更新商品")
@@ -98,6 +111,8 @@ public class ItemController {
             log.info("修改同步到es失败:{}", item);
             log.info("失败原因:{}", e);
         }
+        // 通知网关清理响应缓存
+        notifyItemChange(item.getId());
     }
 
     @ApiOperation("根据id删除商品")
@@ -112,6 +127,8 @@ public class ItemController {
             log.info("删除同步到es失败:{}", id);
             log.info("失败原因:{}", e);
         }
+        // 通知网关清理响应缓存
+        notifyItemChange(id);
     }
 
     @ApiOperation("批量扣减库存")
@@ -149,4 +166,19 @@ public class ItemController {
             log.info("失败原因:{}", e);
         }
     }
+
+    /**
+     * 广播商品变更消息，网关收到后清理该商品相关的响应缓存
+     * 发送失败不影响主流程，网关缓存最多在ttl之后过期
+     *
+     * @param id 商品id
+     */
+    private void notifyItemChange(Long id) {
+        try {
+            rabbitTemplate.convertAndSend(MqConstants.ITEM_CHANGE_EXCHANGE, "", id);
+        } catch (Exception e) {
+            log.info("商品变更消息发送失败:{}", id);
+            log.info("失败原因:{}", e);
+        }
+    }
 }
@@ -0,0 +1,23 @@
+package com.hmall.item.jfr;
+
+import com.hmall.common.jfr.BusinessEvent;
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import lombok.Setter;
+
+/**
+ * 扣减库存（ItemServiceImpl.deductStock）的JFR事件
+ */
+@Name("com.hmall.item.StockDeduct")
+@Label("扣减库存")
+@Category({BusinessEvent.CATEGORY, "Item"})
+@Setter
+public class StockDeductEvent extends BusinessEvent {
+
+    @Label("商品种类数")
+    private int itemCount;
+
+    @Label("扣减总数量")
+    private int totalNum;
+}
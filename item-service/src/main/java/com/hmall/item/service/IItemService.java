@@ -23,5 +23,10 @@ public interface IItemService extends IService<Item> {
 
     List<ItemDTO> queryItemByIds(Collection<Long> ids);
 
+    /**
+     * 根据id查询商品详情，走两级缓存，商品修改、删除、库存变化时失效
+     */
+    ItemDTO queryItemById(Long id);
+
     void incrStock(Long itemId, Integer itemNum);
 }
@@ -5,13 +5,23 @@ import com.baomidou.mybatisplus.extension.toolkit.Db;
 import com.hmall.common.domain.Item;
 import com.hmall.common.domain.ItemDTO;
 import com.hmall.common.exception.BizIllegalException;
+import com.hmall.common.exception.ErrorCodes;
 import com.hmall.common.utils.BeanUtils;
 
 import com.hmall.item.domain.dto.OrderDetailDTO;
+import com.hmall.item.jfr.StockDeductEvent;
 import com.hmall.item.mapper.ItemMapper;
 import com.hmall.item.service.IItemService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 
+import java.io.Serializable;
 import java.util.Collection;
 import java.util.List;
 
@@ -22,11 +32,41 @@ import java.util.List;
  *
  * @author 虎哥
  */
+@Slf4j
 @Service
+@RequiredArgsConstructor
 public class ItemServiceImpl extends ServiceImpl<ItemMapper, Item> implements IItemService {
 
+    /**
+     * 商品详情缓存
+     */
+    public static final String ITEM_CACHE = "item";
+
+    private final ObjectProvider<CacheManager> cacheManager;
+
     @Override
     public void deductStock(List<OrderDetailDTO> items) {
+        StockDeductEvent event = new StockDeductEvent();
+        event.setItemCount(items.size());
+        if (event.isEnabled()) {
+            int totalNum = 0;
+            for (OrderDetailDTO item : items) {
+                totalNum += item.getNum() == null ? 0 : item.getNum();
+            }
+            event.setTotalNum(totalNum);
+        }
+        event.start();
+        try {
+            doDeductStock(items);
+        } catch (RuntimeException e) {
+            event.fail(e);
+            throw e;
+        } finally {
+            event.finish();
+        }
+    }
+
+    private void doDeductStock(List<OrderDetailDTO> items) {
         String sqlStatement = "com.hmall.item.mapper.ItemMapper.updateStock";
         boolean r = false;
         try {
@@ -35,8 +75,10 @@ public class ItemServiceImpl extends ServiceImpl<ItemMapper, Item> implements II
             throw new BizIllegalException("更新库存异常，可能是库存不足!", e);
         }
         if (!r) {
-            throw new BizIllegalException("库存不足！");
+            throw ErrorCodes.STOCK_NOT_ENOUGH.exception();
         }
+        // 库存变了，商品详情缓存失效；库存已经扣减成功，缓存失效失败不能让接口报错
+        evictItems(items);
     }
 
     @Override
@@ -45,10 +87,46 @@ public class ItemServiceImpl extends ServiceImpl<ItemMapper, Item> implements II
     }
 
     @Override
+    @Cacheable(cacheNames = ITEM_CACHE, key = "#id", sync = true)
+    public ItemDTO queryItemById(Long id) {
+        return BeanUtils.copyBean(getById(id), ItemDTO.class);
+    }
+
+    @Override
+    @CacheEvict(cacheNames = ITEM_CACHE, key = "#entity.id")
+    public boolean updateById(Item entity) {
+        return super.updateById(entity);
+    }
+
+    @Override
+    @CacheEvict(cacheNames = ITEM_CACHE, key = "#id")
+    public boolean removeById(Serializable id) {
+        return super.removeById(id);
+    }
+
+    @Override
+    @CacheEvict(cacheNames = ITEM_CACHE, key = "#itemId")
     public void incrStock(Long itemId, Integer itemNum) {
         Db.lambdaUpdate(Item.class)
                 .eq(Item::getId, itemId)
                 .setSql("stock = stock + " + itemNum)
                 .update();
     }
+
+    private void evictItems(List<OrderDetailDTO> items) {
+        CacheManager manager = cacheManager.getIfAvailable();
+        Cache cache = manager == null ? null : manager.getCache(ITEM_CACHE);
+        if (cache == null) {
+            // 没有开启缓存
+            return;
+        }
+        for (OrderDetailDTO item : items) {
+            try {
+                cache.evict(item.getItemId());
+            } catch (RuntimeException e) {
+                // Redis不可用等，缓存会在过期后自然刷新
+                log.warn("商品缓存失效失败，itemId: {}", item.getItemId(), e);
+            }
+        }
+    }
 }
@@ -0,0 +1,26 @@
+package com.hmall.pay.jfr;
+
+import com.hmall.common.jfr.BusinessEvent;
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import lombok.Setter;
+
+/**
+ * 余额支付（PayOrderServiceImpl.tryPayOrderByBalance）的JFR事件
+ */
+@Name("com.hmall.pay.BalancePay")
+@Label("余额支付")
+@Category({BusinessEvent.CATEGORY, "Pay"})
+@Setter
+public class BalancePayEvent extends BusinessEvent {
+
+    @Label("支付单id")
+    private long payOrderId;
+
+    @Label("交易单id")
+    private long bizOrderNo;
+
+    @Label("支付金额")
+    private int amount;
+}
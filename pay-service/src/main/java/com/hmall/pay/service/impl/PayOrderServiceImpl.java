@@ -10,7 +10,7 @@ import com.hmall.api.client.TradeClient;
 import com.hmall.api.client.UserClient;
 import com.hmall.api.dto.OrderDetail;
 import com.hmall.api.dto.PayOrderDTO;
-import com.hmall.common.exception.BizIllegalException;
+import com.hmall.common.exception.ErrorCodes;
 import com.hmall.common.utils.BeanUtils;
 import com.hmall.common.utils.UserContext;
 import com.hmall.pay.domain.dto.PayApplyDTO;
@@ -67,19 +67,35 @@ public class PayOrderServiceImpl extends ServiceImpl<PayOrderMapper, PayOrder> i
     @Override
     @Transactional
     public void tryPayOrderByBalance(PayOrderFormDTO payOrderFormDTO) {
+        BalancePayEvent event = new BalancePayEvent();
+        event.setPayOrderId(payOrderFormDTO.getId());
+        event.start();
+        try {
+            doTryPayOrderByBalance(payOrderFormDTO, event);
+        } catch (RuntimeException e) {
+            event.fail(e);
+            throw e;
+        } finally {
+            event.finish();
+        }
+    }
+
+    private void doTryPayOrderByBalance(PayOrderFormDTO payOrderFormDTO, BalancePayEvent event) {
         // 1.查询支付单，在pay的微服务里已经创建好了支付单PayOrder
         PayOrder po = getById(payOrderFormDTO.getId());
+        event.setBizOrderNo(po.getBizOrderNo());
+        event.setAmount(po.getAmount());
         // 2.判断状态
         if (!PayStatus.WAIT_BUYER_PAY.equalsValue(po.getStatus())) {
             // 订单不是未支付，状态异常
-            throw new BizIllegalException("交易已支付或关闭！");
+            throw ErrorCodes.TRADE_PAID_OR_CLOSED.exception();
         }
         // 3.尝试扣减余额
         userClient.deductMoney(payOrderFormDTO.getPw(), po.getAmount());  //这里使用了微服务调用
         // 4.《《修改支付单状态》》 pay_order表儿 《《设置状态为3》》 《《设置状态为3》》 《《设置状态为3》》
         boolean success = markPayOrderSuccess(payOrderFormDTO.getId(), LocalDateTime.now());
         if (!success) {
-            throw new BizIllegalException("交易已支付或关闭！");
+            throw ErrorCodes.TRADE_PAID_OR_CLOSED.exception();
         }
 
         //交易成功、在这里清理购物车***
@@ -179,12 +195,12 @@ public class PayOrderServiceImpl extends ServiceImpl<PayOrderMapper, PayOrder> i
         // 3.旧单已经存在，判断是否支付成功
         if (PayStatus.TRADE_SUCCESS.equalsValue(oldOrder.getStatus())) {
             // 已经支付成功，抛出异常
-            throw new BizIllegalException("订单已经支付！");
+            throw ErrorCodes.ORDER_PAID.exception();
         }
         // 4.旧单已经存在，判断是否已经关闭
         if (PayStatus.TRADE_CLOSED.equalsValue(oldOrder.getStatus())) {
             // 已经关闭，抛出异常
-            throw new BizIllegalException("订单已关闭");
+            throw ErrorCodes.ORDER_CLOSED.exception();
         }
         // 5.旧单已经存在，判断支付渠道是否一致
         if (!StringUtils.equals(oldOrder.getPayChannelCode(), applyDTO.getPayChannelCode())) {
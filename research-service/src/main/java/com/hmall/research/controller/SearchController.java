@@ -4,6 +4,7 @@ import cn.hutool.core.util.StrUtil;
 import com.hmall.common.domain.ItemDTO;
 import com.hmall.common.domain.ItemPageQuery;
 import com.hmall.common.domain.PageDTO;
+import com.hmall.research.jfr.ItemSearchEvent;
 import com.hmall.research.util.parseResult;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
@@ -87,10 +88,24 @@ public class SearchController {
             request.source().sort("updateTime", query.getIsAsc() ? SortOrder.ASC : SortOrder.DESC);
         }
 
-        //发送请求
-        SearchResponse response = client.search(request, RequestOptions.DEFAULT);
-        //解析结果
-        PageDTO<ItemDTO> itemDTOPageDTO = parseResult.parseResponseResult(response, query);
+        ItemSearchEvent event = new ItemSearchEvent();
+        event.setKeyword(query.getKey());
+        event.setPageNo(query.getPageNo());
+        event.start();
+        PageDTO<ItemDTO> itemDTOPageDTO;
+        try {
+            //发送请求
+            SearchResponse response = client.search(request, RequestOptions.DEFAULT);
+            event.setTookMillis(response.getTook().millis());
+            //解析结果
+            itemDTOPageDTO = parseResult.parseResponseResult(response, query);
+            event.setHits(itemDTOPageDTO.getTotal());
+        } catch (IOException | RuntimeException e) {
+            event.fail(e);
+            throw e;
+        } finally {
+            event.finish();
+        }
         System.out.println("--查询条件:" + query);
         System.out.print("数据总条数:" + itemDTOPageDTO.getTotal());
         System.out.println(", 数据总页数:" + itemDTOPageDTO.getPages());
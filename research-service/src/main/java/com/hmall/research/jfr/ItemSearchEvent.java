@@ -0,0 +1,32 @@
+package com.hmall.research.jfr;
+
+import com.hmall.common.jfr.BusinessEvent;
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+import lombok.Setter;
+
+/**
+ * ES商品搜索（SearchController.search）的JFR事件
+ * tookMillis是ES自己统计的执行时间，和事件的耗时相比可以看出网络和结果解析花了多少。
+ */
+@Name("com.hmall.research.ItemSearch")
+@Label("商品搜索")
+@Category({BusinessEvent.CATEGORY, "Search"})
+@Setter
+public class ItemSearchEvent extends BusinessEvent {
+
+    @Label("关键字")
+    private String keyword;
+
+    @Label("页码")
+    private int pageNo;
+
+    @Label("命中总数")
+    private long hits;
+
+    @Label("ES执行耗时")
+    @Timespan(Timespan.MILLISECONDS)
+    private long tookMillis;
+}
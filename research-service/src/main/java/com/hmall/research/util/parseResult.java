@@ -1,12 +1,13 @@
 package com.hmall.research.util;
 
 import cn.hutool.core.bean.BeanUtil;
-import cn.hutool.json.JSONUtil;
 import com.hmall.common.domain.ItemDTO;
 import com.hmall.common.domain.ItemDoc;
 import com.hmall.common.domain.ItemPageQuery;
 import com.hmall.common.domain.PageDTO;
+import com.hmall.common.utils.JsonUtils;
 import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.SearchHits;
 
@@ -28,8 +29,8 @@ public class parseResult {
         //获取源数据
         SearchHit[] hits = searchHits.getHits();
         for (SearchHit hit : hits) {
-            String json = hit.getSourceAsString();
-            ItemDoc doc = JSONUtil.toBean(json, ItemDoc.class);
+            //直接解析_source的字节，不转成String
+            ItemDoc doc = JsonUtils.parse(BytesReference.toBytes(hit.getSourceRef()), ItemDoc.class);
             itemDocList.add(doc);
         }
         List<ItemDTO> itemDTOS = BeanUtil.copyToList(itemDocList, ItemDTO.class);
@@ -0,0 +1,23 @@
+package com.hmall.trade.jfr;
+
+import com.hmall.common.jfr.BusinessEvent;
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import lombok.Setter;
+
+/**
+ * 创建订单（OrderServiceImpl.createOrder）的JFR事件
+ */
+@Name("com.hmall.trade.OrderCreate")
+@Label("创建订单")
+@Category({BusinessEvent.CATEGORY, "Trade"})
+@Setter
+public class OrderCreateEvent extends BusinessEvent {
+
+    @Label("订单id")
+    private long orderId;
+
+    @Label("商品种类数")
+    private int itemCount;
+}
@@ -8,12 +8,13 @@ import com.hmall.api.client.PayClient;
 import com.hmall.api.dto.ItemDTO;
 import com.hmall.api.dto.OrderDetailDTO;
 import com.hmall.api.dto.PayOrderDTO;
-import com.hmall.common.exception.BadRequestException;
+import com.hmall.common.exception.ErrorCodes;
 import com.hmall.common.utils.UserContext;
 import com.hmall.trade.constants.MQConstants;
 import com.hmall.trade.domain.dto.OrderFormDTO;
 import com.hmall.trade.domain.po.Order;
 import com.hmall.trade.domain.po.OrderDetail;
+import com.hmall.trade.jfr.OrderCreateEvent;
 import com.hmall.trade.mapper.OrderMapper;
 import com.hmall.trade.service.IOrderDetailService;
 import com.hmall.trade.service.IOrderService;
@@ -63,6 +64,22 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
     @Override
     @Transactional
     public Long createOrder(OrderFormDTO orderFormDTO) {
+        OrderCreateEvent event = new OrderCreateEvent();
+        event.setItemCount(orderFormDTO.getDetails().size());
+        event.start();
+        try {
+            Long orderId = doCreateOrder(orderFormDTO);
+            event.setOrderId(orderId);
+            return orderId;
+        } catch (RuntimeException e) {
+            event.fail(e);
+            throw e;
+        } finally {
+            event.finish();
+        }
+    }
+
+    private Long doCreateOrder(OrderFormDTO orderFormDTO) {
         // 1.订单数据
         Order order = new Order();
         // 1.1.查询商品
@@ -74,7 +91,7 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
         // 1.3.查询商品
         List<ItemDTO> items = itemClient.queryItemByIds(itemIds);  //这里使用了微服务调用
         if (items == null || items.size() < itemIds.size()) {
-            throw new BadRequestException("商品不存在");
+            throw ErrorCodes.ITEM_NOT_FOUND.exception();
         }
         // 1.4.基于商品价格、购买数量计算商品总价：totalFee
         int total = 0;
@@ -107,19 +124,21 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements
         //这样即便trade微服务的MQ通知失败，还可以利用定时任务作为兜底方案2，确保订单支付状态的最终一致性
         //开启生产者确认机制publisher confirm,即使失败了也能记录日志
         //对应消费者方--->配置死信交换机，应对消费者重试达到最大失败重试次数导致的消息丢弃问题
+        // 回执的回调在MQ的线程中执行，拿不到当前线程的用户，先取出来
+        Long userId = UserContext.getUser();
         CorrelationData cd = new CorrelationData();
         cd.getFuture().addCallback(new ListenableFutureCallback<CorrelationData.Confirm>() {
             @Override
             public void onFailure(Throwable ex) {
                 // Future发生异常时的处理逻辑，基本不会触发
-                log.info(UserContext.getUser() + "--->" + order.getId() + "--->" + MQConstants.DELAY_EXCHANGE_NAME + " and " + MQConstants.DELAY_ORDER_KEY + ":");
+                log.info(userId + "--->" + order.getId() + "--->" + MQConstants.DELAY_EXCHANGE_NAME + " and " + MQConstants.DELAY_ORDER_KEY + ":");
                 log.error("com.hmall.trade.service.impl.OrderServiceImpl.createOrder 发送消息失败！", ex);
             }
 
             @Override
             public void onSuccess(CorrelationData.Confirm result) {
                 //记录日志
-                log.info(UserContext.getUser() + "--->" + order.getId() + "--->" + MQConstants.DELAY_EXCHANGE_NAME + " and " + MQConstants.DELAY_ORDER_KEY + ":");
+                log.info(userId + "--->" + order.getId() + "--->" + MQConstants.DELAY_EXCHANGE_NAME + " and " + MQConstants.DELAY_ORDER_KEY + ":");
                 // Future接收到回执的处理逻辑，参数中的result就是回执内容
                 if (result.isAck()) { // result.isAck()，boolean类型，true代表ack回执，false 代表 nack回执
                     log.debug("发送消息成功，收到 ack!");
@@ -0,0 +1,19 @@
+package com.hmall.user.config;
+
+import com.hmall.common.constants.MqConstants;
+import org.springframework.amqp.core.FanoutExchange;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 声明token吊销的广播交换机
+ * 网关启动时也会声明它，这里再声明一次，保证网关没启动时user-service发送消息也不会报交换机不存在
+ */
+@Configuration
+public class TokenRevokeConfig {
+
+    @Bean
+    public FanoutExchange tokenRevokeExchange() {
+        return new FanoutExchange(MqConstants.TOKEN_REVOKE_EXCHANGE);
+    }
+}
@@ -25,6 +25,12 @@ public class UserController {
         return userService.login(loginFormDTO);
     }
 
+    @ApiOperation("退出登录，吊销当前token")
+    @PostMapping("logout")
+    public void logout(@RequestHeader("authorization") String token){
+        userService.logout(token);
+    }
+
     @ApiOperation("扣减余额")
     @ApiImplicitParams({
             @ApiImplicitParam(name = "pw", value = "支付密码"),
@@ -18,4 +18,6 @@ public interface IUserService extends IService<User> {
     UserLoginVO login(LoginFormDTO loginFormDTO);
 
     void deductMoney(String pw, Integer totalFee);
+
+    void logout(String token);
 }
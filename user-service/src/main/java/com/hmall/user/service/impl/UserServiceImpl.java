@@ -1,6 +1,9 @@
 package com.hmall.user.service.impl;
 
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.hmall.common.constants.MqConstants;
+import com.hmall.common.constants.RedisConstants;
+import com.hmall.common.domain.RevokedToken;
 import com.hmall.common.exception.BadRequestException;
 import com.hmall.common.exception.BizIllegalException;
 import com.hmall.common.exception.ForbiddenException;
@@ -15,6 +18,8 @@ import com.hmall.user.service.IUserService;
 import com.hmall.user.utils.JwtTool;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.util.Assert;
@@ -37,6 +42,10 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements IU
 
     private final JwtProperties jwtProperties;
 
+    private final RabbitTemplate rabbitTemplate;
+
+    private final StringRedisTemplate redisTemplate;
+
     @Override
     public UserLoginVO login(LoginFormDTO loginDTO) {
         // 1.数据校验
@@ -82,4 +91,22 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements IU
         }
         log.info("扣款成功");
     }
+
+    @Override
+    public void logout(String token) {
+        // 1.解析token，拿到token的id和过期时间
+        RevokedToken revokedToken = jwtTool.parseRevokedToken(token);
+        if (revokedToken == null) {
+            // 旧token没有id，没法吊销，只能等它自然过期
+            log.warn("token中没有id，无法吊销");
+            return;
+        }
+        // 2.记到Redis，网关实例重启后从这里恢复吊销列表；顺便删掉已经过期的，整个key最多保留一个token有效期
+        String key = RedisConstants.REVOKED_TOKENS_KEY;
+        redisTemplate.opsForZSet().add(key, revokedToken.getTokenId(), revokedToken.getExpiresAt());
+        redisTemplate.opsForZSet().removeRangeByScore(key, 0, System.currentTimeMillis());
+        redisTemplate.expire(key, jwtProperties.getTokenTTL());
+        // 3.广播给网关，网关在token过期前都会拒绝它
+        rabbitTemplate.convertAndSend(MqConstants.TOKEN_REVOKE_EXCHANGE, "", revokedToken);
+    }
 }
@@ -1,10 +1,13 @@
 package com.hmall.user.utils;
 
 import cn.hutool.core.exceptions.ValidateException;
+import cn.hutool.core.util.IdUtil;
 import cn.hutool.jwt.JWT;
+import cn.hutool.jwt.JWTPayload;
 import cn.hutool.jwt.JWTValidator;
 import cn.hutool.jwt.signers.JWTSigner;
 import cn.hutool.jwt.signers.JWTSignerUtil;
+import com.hmall.common.domain.RevokedToken;
 import com.hmall.common.exception.UnauthorizedException;
 import org.springframework.stereotype.Component;
 
@@ -30,6 +33,7 @@ public class JwtTool {
         // 1.生成jws
         return JWT.create()
                 .setPayload("user", userId)
+                .setJWTId(IdUtil.fastSimpleUUID())   //token的id，吊销token时使用
                 .setExpiresAt(new Date(System.currentTimeMillis() + ttl.toMillis()))
                 .setSigner(jwtSigner)
                 .sign();
@@ -42,6 +46,48 @@ public class JwtTool {
      * @return 解析刷新token得到的用户信息
      */
     public Long parseToken(String token) {
+        JWT jwt = verify(token);
+        // 4.数据格式校验
+        Object userPayload = jwt.getPayload("user");
+        if (userPayload == null) {
+            // 数据为空
+            throw new UnauthorizedException("无效的token");
+        }
+
+        // 5.数据解析
+        try {
+            return Long.valueOf(userPayload.toString());
+        } catch (RuntimeException e) {
+            // 数据格式有误
+            throw new UnauthorizedException("无效的token");
+        }
+    }
+
+    /**
+     * 解析token，得到吊销token需要的id和过期时间
+     *
+     * @param token token
+     * @return 被吊销的token，旧版本签发的token没有id时返回null
+     */
+    public RevokedToken parseRevokedToken(String token) {
+        JWT jwt = verify(token);
+        Object tokenId = jwt.getPayload(JWTPayload.JWT_ID);
+        Object exp = jwt.getPayload(JWTPayload.EXPIRES_AT);
+        if (tokenId == null || exp == null) {
+            return null;
+        }
+        try {
+            // jwt中exp的单位是秒
+            return new RevokedToken(tokenId.toString(), Long.parseLong(exp.toString()) * 1000);
+        } catch (NumberFormatException e) {
+            throw new UnauthorizedException("无效的token");
+        }
+    }
+
+    /**
+     * 校验token的签名和有效期
+     */
+    private JWT verify(String token) {
         // 1.校验token是否为空
         if (token == null) {
             throw new UnauthorizedException("未登录");
@@ -64,19 +110,6 @@ public class JwtTool {
         } catch (ValidateException e) {
             throw new UnauthorizedException("token已经过期");
         }
-        // 4.数据格式校验
-        Object userPayload = jwt.getPayload("user");
-        if (userPayload == null) {
-            // 数据为空
-            throw new UnauthorizedException("无效的token");
-        }
-
-        // 5.数据解析
-        try {
-            return Long.valueOf(userPayload.toString());
-        } catch (RuntimeException e) {
-            // 数据格式有误
-            throw new UnauthorizedException("无效的token");
-        }
+        return jwt;
     }
 }
\ No newline at end of file